@@ -0,0 +1,67 @@
+package org.es4j.serialization.api.axon;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Serializer that can write objects directly to a stream or channel, and read them back from one, without holding the
+ * complete serialized form in memory. This is useful for large objects, such as aggregate snapshots, of which the
+ * serialized form would otherwise be buffered and copied several times.
+ * <p/>
+ * Streams and channels passed to these methods are not closed. The data written is the same as the data contained in
+ * a SerializedObject created by {@link #serialize(Object, Class)}, so objects written to a stream may also be read
+ * using {@link #deserialize(SerializedObject)}, and vice versa.
+ *
+ * @since 2.0
+ */
+public interface StreamingSerializer extends Serializer {
+
+    /**
+     * Serializes the given <code>object</code> to the given <code>outputStream</code>. The stream is flushed, but not
+     * closed.
+     *
+     * @param object       The object to serialize
+     * @param outputStream The stream to write the serialized form of the object to
+     * @return the type of the serialized object, needed to deserialize it
+     *
+     * @throws SerializationException if the object cannot be serialized or writing to the stream fails
+     */
+    SerializedType serialize(Object object, OutputStream outputStream);
+
+    /**
+     * Serializes the given <code>object</code> to the given <code>channel</code>. The channel is not closed.
+     *
+     * @param object  The object to serialize
+     * @param channel The channel to write the serialized form of the object to
+     * @return the type of the serialized object, needed to deserialize it
+     *
+     * @throws SerializationException if the object cannot be serialized or writing to the channel fails
+     */
+    SerializedType serialize(Object object, WritableByteChannel channel);
+
+    /**
+     * Deserializes an object of the given <code>type</code> from the given <code>inputStream</code>. The stream is
+     * not closed, but may have been read beyond the end of the serialized object.
+     *
+     * @param type        The type of the serialized object, as returned when it was serialized
+     * @param inputStream The stream to read the serialized form of the object from
+     * @return the deserialized object
+     *
+     * @throws SerializationException if the object cannot be deserialized or reading from the stream fails
+     */
+    Object deserialize(SerializedType type, InputStream inputStream);
+
+    /**
+     * Deserializes an object of the given <code>type</code> from the given <code>channel</code>. The channel is not
+     * closed, but may have been read beyond the end of the serialized object.
+     *
+     * @param type    The type of the serialized object, as returned when it was serialized
+     * @param channel The channel to read the serialized form of the object from
+     * @return the deserialized object
+     *
+     * @throws SerializationException if the object cannot be deserialized or reading from the channel fails
+     */
+    Object deserialize(SerializedType type, ReadableByteChannel channel);
+}
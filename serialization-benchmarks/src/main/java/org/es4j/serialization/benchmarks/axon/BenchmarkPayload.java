@@ -0,0 +1,57 @@
+package org.es4j.serialization.benchmarks.axon;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.es4j.serialization.core.axon.Revision;
+
+/**
+ * Event payload used by the benchmarks. Its size is determined by the number of entries, each of which adds a list
+ * element and a map entry.
+ *
+ * @since 2.0
+ */
+@Revision("1")
+public class BenchmarkPayload implements Serializable {
+
+    private static final long serialVersionUID = 6023423094137516392L;
+
+    private final String aggregateIdentifier;
+    private final long sequenceNumber;
+    private final List<String> lines;
+    private final Map<String, Integer> quantities;
+
+    /**
+     * Creates a payload with the given number of <code>entries</code>.
+     *
+     * @param entries The number of list elements and map entries to create
+     */
+    public BenchmarkPayload(int entries) {
+        this.aggregateIdentifier = "aggregate-" + entries;
+        this.sequenceNumber = entries;
+        this.lines = new ArrayList<String>(entries);
+        this.quantities = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < entries; i++) {
+            lines.add("order line " + i);
+            quantities.put("product-" + i, i);
+        }
+    }
+
+    public String getAggregateIdentifier() {
+        return aggregateIdentifier;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    public Map<String, Integer> getQuantities() {
+        return quantities;
+    }
+}
@@ -0,0 +1,80 @@
+package org.es4j.serialization.benchmarks.axon;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.dom4j.Document;
+import org.es4j.serialization.core.axon.ChainedConverter;
+import org.es4j.serialization.core.axon.ChainingConverterFactory;
+import org.es4j.serialization.core.axon.ContentTypeConverter;
+import org.es4j.serialization.xml.xstream.axon.Dom4JToByteArrayConverter;
+import org.es4j.serialization.xml.xstream.axon.InputStreamToDom4jConverter;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. It accepts the regular JMH command line options, and adds the GC profiler to
+ * report allocation rates alongside the timings. Before running the benchmarks, it prints the converter routes the
+ * benchmarks will use, so that changes in route selection show up next to changes in the numbers.
+ * <p/>
+ * Build the jar using <code>mvn package</code> and run it using <code>java -jar
+ * serialization-benchmarks/target/benchmarks.jar [regexp]</code>.
+ *
+ * @since 2.0
+ */
+public final class BenchmarkRunner {
+
+    private static final String[] OPENS_FOR_XSTREAM = {
+            "--add-opens=java.base/java.lang=ALL-UNNAMED",
+            "--add-opens=java.base/java.util=ALL-UNNAMED",
+            "--add-opens=java.base/java.lang.reflect=ALL-UNNAMED",
+            "--add-opens=java.base/java.text=ALL-UNNAMED",
+            "--add-opens=java.desktop/java.awt.font=ALL-UNNAMED"
+    };
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks selected by the given JMH command line <code>args</code>.
+     *
+     * @param args The JMH command line options
+     * @throws Exception when the options are invalid or running the benchmarks fails
+     */
+    public static void main(String[] args) throws Exception {
+        printRoutes();
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(new CommandLineOptions(args))
+                                                            .addProfiler(GCProfiler.class);
+        if (!System.getProperty("java.specification.version").startsWith("1.")) {
+            // XStream reflects on JDK internals, which must be opened explicitly on Java 9 and later
+            options.jvmArgsAppend(OPENS_FOR_XSTREAM);
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static void printRoutes() {
+        // the same converters as registered by XStreamSerializer, without initializing XStream in this JVM
+        ChainingConverterFactory converterFactory =
+                new ChainingConverterFactory(ChainingConverterFactory.sharedInstance());
+        converterFactory.registerConverter(Dom4JToByteArrayConverter.class);
+        converterFactory.registerConverter(InputStreamToDom4jConverter.class);
+        Class<?>[][] routes = {
+                {byte[].class, InputStream.class},
+                {InputStream.class, byte[].class},
+                {String.class, InputStream.class},
+                {ByteBuffer.class, String.class},
+                {byte[].class, Document.class},
+                {String.class, Document.class},
+                {Document.class, ByteBuffer.class}
+        };
+        System.out.println("# Converter routes");
+        for (Class<?>[] route : routes) {
+            ContentTypeConverter<?, ?> converter = converterFactory.getConverter(route[0], route[1]);
+            System.out.println(String.format("#   %s -> %s: %s", route[0].getSimpleName(), route[1].getSimpleName(),
+                                             converter instanceof ChainedConverter
+                                                     ? converter : converter.getClass().getSimpleName()));
+        }
+    }
+}
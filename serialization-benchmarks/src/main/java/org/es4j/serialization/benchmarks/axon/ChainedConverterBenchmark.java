@@ -0,0 +1,87 @@
+package org.es4j.serialization.benchmarks.axon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.dom4j.Document;
+import org.es4j.serialization.core.axon.ContentTypeConverter;
+import org.es4j.serialization.xml.xstream.axon.XStreamSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures conversions through chains of two or more converters, as resolved by the converter factory of an {@link
+ * XStreamSerializer}, for serialized forms of several sizes.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainedConverterBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int payloadEntries;
+
+    private String xml;
+    private byte[] bytes;
+    private ContentTypeConverter<String, InputStream> stringToInputStream;
+    private ContentTypeConverter<ByteBuffer, String> byteBufferToString;
+    private ContentTypeConverter<String, Document> stringToDocument;
+    private ContentTypeConverter<Document, ByteBuffer> documentToByteBuffer;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        XStreamSerializer serializer = new XStreamSerializer();
+        xml = serializer.serialize(new BenchmarkPayload(payloadEntries), String.class).getData();
+        bytes = serializer.serialize(new BenchmarkPayload(payloadEntries), byte[].class).getData();
+        stringToInputStream = serializer.getConverterFactory().getConverter(String.class, InputStream.class);
+        byteBufferToString = serializer.getConverterFactory().getConverter(ByteBuffer.class, String.class);
+        stringToDocument = serializer.getConverterFactory().getConverter(String.class, Document.class);
+        documentToByteBuffer = serializer.getConverterFactory().getConverter(Document.class, ByteBuffer.class);
+        document = stringToDocument.convert(xml);
+    }
+
+    @Benchmark
+    public void stringToInputStream(Blackhole blackhole) throws IOException {
+        InputStream stream = stringToInputStream.convert(xml);
+        blackhole.consume(stream.read());
+    }
+
+    @Benchmark
+    public String byteBufferToString() {
+        return byteBufferToString.convert(ByteBuffer.wrap(bytes));
+    }
+
+    @Benchmark
+    public Document stringToDocument() {
+        return stringToDocument.convert(xml);
+    }
+
+    @Benchmark
+    public ByteBuffer documentToByteBuffer() {
+        return documentToByteBuffer.convert(document);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Document stringToDocumentContended() {
+        return stringToDocument.convert(xml);
+    }
+}
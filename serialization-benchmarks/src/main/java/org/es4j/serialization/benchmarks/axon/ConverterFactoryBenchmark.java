@@ -0,0 +1,76 @@
+package org.es4j.serialization.benchmarks.axon;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.es4j.serialization.core.axon.ChainingConverterFactory;
+import org.es4j.serialization.core.axon.ContentTypeConverter;
+import org.es4j.serialization.core.axon.StringToByteArrayConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures converter lookups on a {@link ChainingConverterFactory}: cached direct converters, cached chains, cached
+ * absence of a converter, and the resolution of a route on a factory that has not cached it yet.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterFactoryBenchmark {
+
+    private ChainingConverterFactory factory;
+
+    @Setup
+    public void setUp() {
+        factory = new ChainingConverterFactory();
+        factory.getConverter(byte[].class, InputStream.class);
+        factory.getConverter(String.class, InputStream.class);
+        factory.hasConverter(Reader.class, ByteBuffer.class);
+    }
+
+    @Benchmark
+    public ContentTypeConverter<byte[], InputStream> directHit() {
+        return factory.getConverter(byte[].class, InputStream.class);
+    }
+
+    @Benchmark
+    public ContentTypeConverter<String, InputStream> chainHit() {
+        return factory.getConverter(String.class, InputStream.class);
+    }
+
+    @Benchmark
+    public boolean unsupportedHit() {
+        return factory.hasConverter(Reader.class, ByteBuffer.class);
+    }
+
+    /**
+     * Registers a converter with a new overlay, so that the lookup that follows cannot use any cached route.
+     */
+    @Benchmark
+    public ContentTypeConverter<String, InputStream> chainMiss() {
+        ChainingConverterFactory overlay = new ChainingConverterFactory(factory);
+        overlay.registerConverter(new StringToByteArrayConverter());
+        return overlay.getConverter(String.class, InputStream.class);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ContentTypeConverter<String, InputStream> chainHitContended() {
+        return factory.getConverter(String.class, InputStream.class);
+    }
+}
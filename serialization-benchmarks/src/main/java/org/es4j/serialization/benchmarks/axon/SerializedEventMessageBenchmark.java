@@ -0,0 +1,108 @@
+package org.es4j.serialization.benchmarks.axon;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.es4j.messaging.api.axon.EventMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.Serializer;
+import org.es4j.serialization.core.axon.SerializedEventMessage;
+import org.es4j.serialization.core.axon.SerializedMetaData;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the access patterns of a {@link SerializedEventMessage}: reading only the envelope, the first and repeated
+ * access to the payload, and reading or adding meta data. Each benchmark except the repeated access creates a new
+ * message, as a message read from an event store would be.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializedEventMessageBenchmark {
+
+    private static final Map<String, Object> ADDITIONAL_META_DATA =
+            Collections.singletonMap("correlationId", (Object) "benchmark");
+
+    @Param({"xstream", "xstream-binary", "java", "kryo", "json", "binary"})
+    private String serializerType;
+
+    private Serializer serializer;
+    private SerializedObject<byte[]> serializedPayload;
+    private SerializedObject<byte[]> serializedMetaData;
+    private DateTime timestamp;
+    private SerializedEventMessage<BenchmarkPayload> deserializedMessage;
+
+    @Setup
+    public void setUp() {
+        serializer = SerializerBenchmark.createSerializer(serializerType);
+        serializedPayload = serializer.serialize(new BenchmarkPayload(10), byte[].class);
+        MetaData metaData = MetaData.from(Collections.singletonMap("userId", (Object) "user-1"));
+        serializedMetaData = new SerializedMetaData<byte[]>(serializer.serialize(metaData, byte[].class).getData(),
+                                                            byte[].class);
+        timestamp = new DateTime();
+        deserializedMessage = newMessage();
+        deserializedMessage.getPayload();
+        deserializedMessage.getMetaData();
+    }
+
+    private SerializedEventMessage<BenchmarkPayload> newMessage() {
+        return new SerializedEventMessage<BenchmarkPayload>("event-1", timestamp, serializedPayload,
+                                                            serializedMetaData, serializer);
+    }
+
+    @Benchmark
+    public String envelopeOnly() {
+        SerializedEventMessage<BenchmarkPayload> message = newMessage();
+        message.getTimestamp();
+        return message.getIdentifier();
+    }
+
+    @Benchmark
+    public Class payloadType() {
+        return newMessage().getPayloadType();
+    }
+
+    @Benchmark
+    public BenchmarkPayload payloadFirstAccess() {
+        return newMessage().getPayload();
+    }
+
+    @Benchmark
+    public BenchmarkPayload payloadRepeatedAccess() {
+        return deserializedMessage.getPayload();
+    }
+
+    @Benchmark
+    public MetaData metaDataFirstAccess() {
+        return newMessage().getMetaData();
+    }
+
+    @Benchmark
+    public EventMessage<BenchmarkPayload> andMetaData() {
+        return newMessage().andMetaData(ADDITIONAL_META_DATA);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BenchmarkPayload payloadFirstAccessContended() {
+        return newMessage().getPayload();
+    }
+}
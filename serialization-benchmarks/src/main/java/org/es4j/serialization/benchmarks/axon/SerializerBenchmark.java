@@ -0,0 +1,109 @@
+package org.es4j.serialization.benchmarks.axon;
+
+import java.util.concurrent.TimeUnit;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.Serializer;
+import org.es4j.serialization.binary.axon.CompactBinarySerializer;
+import org.es4j.serialization.json.axon.JacksonSerializer;
+import org.es4j.serialization.kryo.axon.KryoSerializer;
+import org.es4j.serialization.xml.xstream.axon.BinaryXStreamSerializer;
+import org.es4j.serialization.xml.xstream.axon.XStreamSerializer;
+import org.es4j.serializaiton.java.axon.JavaSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serialization and deserialization of a payload to and from <code>byte[]</code>, per serializer and payload
+ * size. The <code>Contended</code> variants run on four threads sharing a single serializer. The size of the serialized
+ * payload is printed when each trial starts.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"xstream", "xstream-fast", "xstream-binary", "java", "kryo", "json", "binary"})
+    private String serializerType;
+
+    @Param({"1", "10", "100", "1000"})
+    private int payloadEntries;
+
+    private Serializer serializer;
+    private BenchmarkPayload payload;
+    private SerializedObject<byte[]> serializedPayload;
+
+    @Setup
+    public void setUp() {
+        serializer = createSerializer(serializerType);
+        payload = new BenchmarkPayload(payloadEntries);
+        serializedPayload = serializer.serialize(payload, byte[].class);
+        System.out.println(String.format("# Serialized size (%s, %d entries): %d bytes", serializerType,
+                                         payloadEntries, serializedPayload.getData().length));
+    }
+
+    /**
+     * Creates the serializer identified by the given <code>serializerType</code>.
+     *
+     * @param serializerType The type of serializer, either <code>xstream</code>, <code>xstream-fast</code> (with
+     *                       the payload registered as fast class), <code>xstream-binary</code> (XStream's binary
+     *                       format), <code>java</code>, <code>kryo</code>, <code>json</code> or <code>binary</code>
+     * @return the serializer identified by the given type
+     */
+    static Serializer createSerializer(String serializerType) {
+        if ("xstream".equals(serializerType)) {
+            return new XStreamSerializer();
+        } else if ("xstream-fast".equals(serializerType)) {
+            XStreamSerializer serializer = new XStreamSerializer();
+            serializer.registerFastClass(BenchmarkPayload.class);
+            return serializer;
+        } else if ("xstream-binary".equals(serializerType)) {
+            return new BinaryXStreamSerializer();
+        } else if ("java".equals(serializerType)) {
+            return new JavaSerializer();
+        } else if ("kryo".equals(serializerType)) {
+            return new KryoSerializer();
+        } else if ("json".equals(serializerType)) {
+            return new JacksonSerializer();
+        } else if ("binary".equals(serializerType)) {
+            return new CompactBinarySerializer();
+        }
+        throw new IllegalArgumentException("Unknown serializer type: " + serializerType);
+    }
+
+    @Benchmark
+    public SerializedObject<byte[]> serialize() {
+        return serializer.serialize(payload, byte[].class);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serializedPayload);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SerializedObject<byte[]> serializeContended() {
+        return serializer.serialize(payload, byte[].class);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object deserializeContended() {
+        return serializer.deserialize(serializedPayload);
+    }
+}
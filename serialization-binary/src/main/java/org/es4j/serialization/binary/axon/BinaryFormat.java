@@ -0,0 +1,62 @@
+package org.es4j.serialization.binary.axon;
+
+/**
+ * Constants describing the compact binary format. Every value starts with a single byte identifying its kind, which
+ * determines how the length of the value is found: fixed for numbers and booleans, prefixed for strings, byte arrays
+ * and collections, and delimited by an end marker for the fields of an object. This allows values of unknown fields to
+ * be skipped without knowing the class they were written for.
+ * <p/>
+ * Names (type names, field names, meta data keys and enum constants) are written once per serialized object. A name
+ * reference is a variable length integer: {@link #END_OF_FIELDS} ends a list of fields, {@link #NEW_NAME} is followed
+ * by a name that is added to the table of names, and any larger value refers to the name at index <code>value -
+ * FIRST_NAME_INDEX</code> in that table.
+ *
+ * @since 2.0
+ */
+final class BinaryFormat {
+
+    static final int END_OF_FIELDS = 0;
+    static final int NEW_NAME = 1;
+    static final int FIRST_NAME_INDEX = 2;
+
+    static final int NULL = 0;
+    static final int TRUE = 1;
+    static final int FALSE = 2;
+    static final int INT = 3;
+    static final int LONG = 4;
+    static final int DOUBLE = 5;
+    static final int FLOAT = 6;
+    static final int SHORT = 7;
+    static final int BYTE = 8;
+    static final int CHAR = 9;
+    static final int STRING = 10;
+    static final int BYTES = 11;
+    static final int BIG_INTEGER = 12;
+    static final int BIG_DECIMAL = 13;
+    static final int UUID = 14;
+    static final int DATE_TIME = 15;
+    static final int CLASS = 16;
+    static final int ENUM = 17;
+    static final int LIST = 18;
+    static final int SET = 19;
+    static final int MAP = 20;
+    static final int ARRAY = 21;
+    static final int META_DATA = 22;
+    static final int EVENT_MESSAGE = 23;
+    /**
+     * An object of the type declared by the field (or serialized type) it is written for. No type name is written.
+     */
+    static final int OBJECT = 24;
+    /**
+     * An object of which the type name is written, because it differs from the declared type.
+     */
+    static final int TYPED_OBJECT = 25;
+
+    /**
+     * The maximum nesting depth of objects, to fail fast on object graphs that contain cycles.
+     */
+    static final int MAX_DEPTH = 256;
+
+    private BinaryFormat() {
+    }
+}
@@ -0,0 +1,474 @@
+package org.es4j.serialization.binary.axon;
+
+import static org.es4j.serialization.binary.axon.BinaryFormat.*;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.es4j.messaging.api.axon.GenericEventMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Reads values in the compact binary format from a byte array. A reader is not thread safe, but may be reused for a
+ * next object after calling {@link #reset(byte[])}.
+ * <p/>
+ * Values are converted to the type of the field they are read into where possible, such as an <code>int</code> read
+ * into a <code>long</code> field. Values of fields that do not exist in the class are skipped. Values that cannot be
+ * converted to the type of their field cause a {@link SerializationException}, rather than leaving the field empty.
+ *
+ * @since 2.0
+ */
+final class BinaryReader {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final CompactBinarySerializer serializer;
+    private final List<String> names = new ArrayList<String>();
+    private byte[] buffer;
+    private int position;
+    private int depth;
+
+    BinaryReader(CompactBinarySerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    void reset(byte[] data) {
+        buffer = data;
+        position = 0;
+        depth = 0;
+        names.clear();
+    }
+
+    /**
+     * Releases the data read, so that it can be garbage collected while this reader is retained for reuse.
+     */
+    void release() {
+        buffer = null;
+        names.clear();
+    }
+
+    /**
+     * Reads a value. Objects written without type name are read as instances of the given <code>expectedType</code>.
+     */
+    Object readValue(Class<?> expectedType) {
+        int kind = readByte();
+        switch (kind) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT:
+                return (int) unZigZag(readVarLong());
+            case LONG:
+                return unZigZag(readVarLong());
+            case DOUBLE:
+                return Double.longBitsToDouble(readFixedLong());
+            case FLOAT:
+                return Float.intBitsToFloat((int) readVarLong());
+            case SHORT:
+                return (short) unZigZag(readVarLong());
+            case BYTE:
+                return (byte) readByte();
+            case CHAR:
+                return (char) readVarLong();
+            case STRING:
+                return readString();
+            case BYTES:
+                return readBytes();
+            case BIG_INTEGER:
+                return new BigInteger(readString());
+            case BIG_DECIMAL:
+                return new BigDecimal(readString());
+            case UUID:
+                return new java.util.UUID(readFixedLong(), readFixedLong());
+            case DATE_TIME:
+                return readDateTime();
+            case CLASS:
+                return serializer.resolveClass(readName());
+            case ENUM:
+                return readEnum();
+            case META_DATA:
+                return readMetaData();
+            case EVENT_MESSAGE:
+                return readEventMessage();
+            case LIST:
+            case SET:
+                return readCollection(kind, expectedType);
+            case MAP:
+                return readMap(expectedType);
+            case ARRAY:
+                return readArray();
+            case OBJECT:
+                return readObject(expectedType);
+            case TYPED_OBJECT:
+                return readObject(serializer.resolveClass(readName()));
+            default:
+                throw new SerializationException("Unknown value kind " + kind + " at position " + (position - 1));
+        }
+    }
+
+    private Object readObject(Class<?> type) {
+        if (++depth > MAX_DEPTH) {
+            throw new SerializationException("Object graph is nested too deeply.");
+        }
+        ClassSchema schema = ClassSchema.of(type);
+        Object instance = schema.newInstance();
+        int reference = (int) readVarLong();
+        while (reference != END_OF_FIELDS) {
+            ClassSchema.FieldAccessor field = schema.field(nameFor(reference));
+            if (field == null) {
+                skipValue();
+            } else {
+                readField(instance, field);
+            }
+            reference = (int) readVarLong();
+        }
+        depth--;
+        return instance;
+    }
+
+    /**
+     * Reads the value of the given <code>field</code> into the given <code>instance</code>. Values of the kind
+     * matching a primitive field are set without boxing them.
+     */
+    @SuppressWarnings("unchecked")
+    private void readField(Object instance, ClassSchema.FieldAccessor field) {
+        try {
+            int kind = buffer[position] & 0xFF;
+            if (field.kind == ClassSchema.FieldAccessor.INT_FIELD && kind == INT) {
+                position++;
+                field.setter.invokeExact(instance, (int) unZigZag(readVarLong()));
+            } else if (field.kind == ClassSchema.FieldAccessor.LONG_FIELD && kind == LONG) {
+                position++;
+                field.setter.invokeExact(instance, unZigZag(readVarLong()));
+            } else if (field.kind == ClassSchema.FieldAccessor.BOOLEAN_FIELD && (kind == TRUE || kind == FALSE)) {
+                position++;
+                field.setter.invokeExact(instance, kind == TRUE);
+            } else if (field.kind == ClassSchema.FieldAccessor.DOUBLE_FIELD && kind == DOUBLE) {
+                position++;
+                field.setter.invokeExact(instance, Double.longBitsToDouble(readFixedLong()));
+            } else {
+                Object value = readValue(field.type);
+                if (value != null) {
+                    Object fieldValue = coerce(value, field.type);
+                    if (fieldValue == null) {
+                        throw new SerializationException("Value of type " + value.getClass().getName()
+                                                                 + " cannot be assigned to field " + field.name
+                                                                 + " of " + instance.getClass().getName());
+                    }
+                    field.genericSetter.invokeExact(instance, fieldValue);
+                }
+            }
+        } catch (SerializationException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SerializationException("Unable to set field " + field.name + " of "
+                                                     + instance.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Converts the given non-null <code>value</code> to the given <code>type</code>. Returns <code>null</code> if the
+     * value cannot be converted.
+     */
+    private static Object coerce(Object value, Class<?> type) {
+        Class<?> boxedType = type.isPrimitive() ? boxed(type) : type;
+        if (boxedType.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (boxedType == Long.class) {
+                return number.longValue();
+            } else if (boxedType == Integer.class) {
+                return number.intValue();
+            } else if (boxedType == Double.class) {
+                return number.doubleValue();
+            } else if (boxedType == Float.class) {
+                return number.floatValue();
+            } else if (boxedType == Short.class) {
+                return number.shortValue();
+            } else if (boxedType == Byte.class) {
+                return number.byteValue();
+            }
+        }
+        return null;
+    }
+
+    private static Class<?> boxed(Class<?> primitiveType) {
+        if (primitiveType == int.class) {
+            return Integer.class;
+        } else if (primitiveType == long.class) {
+            return Long.class;
+        } else if (primitiveType == boolean.class) {
+            return Boolean.class;
+        } else if (primitiveType == double.class) {
+            return Double.class;
+        } else if (primitiveType == float.class) {
+            return Float.class;
+        } else if (primitiveType == short.class) {
+            return Short.class;
+        } else if (primitiveType == byte.class) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Object> readCollection(int kind, Class<?> expectedType) {
+        int size = (int) readVarLong();
+        Collection<Object> collection = (Collection<Object>) instantiate(kind, expectedType);
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(null));
+        }
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> readMap(Class<?> expectedType) {
+        int size = (int) readVarLong();
+        Map<Object, Object> map = (Map<Object, Object>) instantiate(MAP, expectedType);
+        for (int i = 0; i < size; i++) {
+            map.put(readValue(null), readValue(null));
+        }
+        return map;
+    }
+
+    private static Object instantiate(int kind, Class<?> expectedType) {
+        Class<?> type = CollectionTypes.implementationFor(kind, expectedType);
+        if (type == null) {
+            throw new SerializationException("Unable to create a collection or map of type " + expectedType.getName());
+        }
+        try {
+            return type.getConstructor().newInstance();
+        } catch (Exception e) {
+            throw new SerializationException("Unable to create a collection or map of type " + type.getName(), e);
+        }
+    }
+
+    private Object readArray() {
+        Class<?> componentType = serializer.resolveClass(readName());
+        int length = (int) readVarLong();
+        Object array = Array.newInstance(componentType, length);
+        for (int i = 0; i < length; i++) {
+            Object value = readValue(componentType);
+            if (value != null) {
+                Object element = coerce(value, componentType);
+                if (element == null) {
+                    throw new SerializationException("Value of type " + value.getClass().getName()
+                                                             + " cannot be stored in an array of "
+                                                             + componentType.getName());
+                }
+                Array.set(array, i, element);
+            }
+        }
+        return array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readEnum() {
+        Class enumType = serializer.resolveClass(readName());
+        return Enum.valueOf(enumType, readName());
+    }
+
+    private MetaData readMetaData() {
+        int size = (int) readVarLong();
+        if (size == 0) {
+            return MetaData.emptyInstance();
+        }
+        Map<String, Object> entries = new HashMap<String, Object>(size * 2);
+        for (int i = 0; i < size; i++) {
+            entries.put(readName(), readValue(null));
+        }
+        return MetaData.from(entries);
+    }
+
+    private GenericEventMessage<Object> readEventMessage() {
+        String identifier = readString();
+        DateTime timestamp = readDateTime();
+        Object payload = readValue(null);
+        return new GenericEventMessage<Object>(identifier, timestamp, payload, readMetaData());
+    }
+
+    private DateTime readDateTime() {
+        long millis = unZigZag(readVarLong());
+        return new DateTime(millis, DateTimeZone.forID(readName()));
+    }
+
+    /**
+     * Skips a value without instantiating any of the classes it was written for.
+     */
+    private void skipValue() {
+        int kind = readByte();
+        switch (kind) {
+            case NULL:
+            case TRUE:
+            case FALSE:
+                break;
+            case INT:
+            case LONG:
+            case FLOAT:
+            case SHORT:
+            case CHAR:
+                readVarLong();
+                break;
+            case DOUBLE:
+                skipBytes(8);
+                break;
+            case BYTE:
+                position++;
+                break;
+            case STRING:
+            case BYTES:
+            case BIG_INTEGER:
+            case BIG_DECIMAL:
+                skipBytes((int) readVarLong());
+                break;
+            case UUID:
+                skipBytes(16);
+                break;
+            case DATE_TIME:
+                readVarLong();
+                readName();
+                break;
+            case CLASS:
+                readName();
+                break;
+            case ENUM:
+                readName();
+                readName();
+                break;
+            case META_DATA:
+                skipMetaData();
+                break;
+            case EVENT_MESSAGE:
+                skipBytes((int) readVarLong());
+                readVarLong();
+                readName();
+                skipValue();
+                skipMetaData();
+                break;
+            case LIST:
+            case SET:
+                for (int i = (int) readVarLong(); i > 0; i--) {
+                    skipValue();
+                }
+                break;
+            case MAP:
+                for (int i = (int) readVarLong() * 2; i > 0; i--) {
+                    skipValue();
+                }
+                break;
+            case ARRAY:
+                readName();
+                for (int i = (int) readVarLong(); i > 0; i--) {
+                    skipValue();
+                }
+                break;
+            case TYPED_OBJECT:
+                readName();
+                skipFields();
+                break;
+            case OBJECT:
+                skipFields();
+                break;
+            default:
+                throw new SerializationException("Unknown value kind " + kind + " at position " + (position - 1));
+        }
+    }
+
+    private void skipBytes(int length) {
+        position += length;
+    }
+
+    private void skipFields() {
+        int reference = (int) readVarLong();
+        while (reference != END_OF_FIELDS) {
+            nameFor(reference);
+            skipValue();
+            reference = (int) readVarLong();
+        }
+    }
+
+    private void skipMetaData() {
+        for (int i = (int) readVarLong(); i > 0; i--) {
+            readName();
+            skipValue();
+        }
+    }
+
+    String readName() {
+        return nameFor((int) readVarLong());
+    }
+
+    private String nameFor(int reference) {
+        if (reference == NEW_NAME) {
+            String name = readString();
+            names.add(name);
+            return name;
+        }
+        int index = reference - FIRST_NAME_INDEX;
+        if (index < 0 || index >= names.size()) {
+            throw new SerializationException("Invalid name reference " + reference + " at position " + position);
+        }
+        return names.get(index);
+    }
+
+    private String readString() {
+        int length = (int) readVarLong();
+        String value = new String(buffer, position, length, UTF8);
+        position += length;
+        return value;
+    }
+
+    private byte[] readBytes() {
+        int length = (int) readVarLong();
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    private int readByte() {
+        if (position >= buffer.length) {
+            throw new SerializationException("Unexpected end of serialized data");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed variable length integer at position " + position);
+    }
+
+    private long readFixedLong() {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,356 @@
+package org.es4j.serialization.binary.axon;
+
+import static org.es4j.serialization.binary.axon.BinaryFormat.*;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.es4j.messaging.api.axon.GenericEventMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.joda.time.DateTime;
+
+/**
+ * Writes values in the compact binary format into a growing buffer. A writer is not thread safe, but may be reused for
+ * a next object after calling {@link #reset()}.
+ *
+ * @since 2.0
+ */
+final class BinaryWriter {
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = new HashMap<Class<?>, Object>();
+
+    static {
+        PRIMITIVE_DEFAULTS.put(float.class, 0f);
+        PRIMITIVE_DEFAULTS.put(short.class, (short) 0);
+        PRIMITIVE_DEFAULTS.put(byte.class, (byte) 0);
+        PRIMITIVE_DEFAULTS.put(char.class, (char) 0);
+    }
+
+    private final Map<String, Integer> names = new HashMap<String, Integer>();
+    private byte[] buffer;
+    private int position;
+    private int depth;
+
+    BinaryWriter(int initialCapacity) {
+        buffer = new byte[initialCapacity];
+    }
+
+    void reset() {
+        position = 0;
+        depth = 0;
+        names.clear();
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Writes the given <code>value</code>. If it is an object of the <code>declaredType</code>, its type name is not
+     * written, as the reader is expected to know it.
+     */
+    void writeValue(Object value, Class<?> declaredType) {
+        if (value == null) {
+            writeByte(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            writeByte(STRING);
+            writeString((String) value);
+        } else if (type == Integer.class) {
+            writeByte(INT);
+            writeVarLong(zigZag((Integer) value));
+        } else if (type == Long.class) {
+            writeByte(LONG);
+            writeVarLong(zigZag((Long) value));
+        } else if (type == Boolean.class) {
+            writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (type == Double.class) {
+            writeByte(DOUBLE);
+            writeFixedLong(Double.doubleToLongBits((Double) value));
+        } else if (type == Float.class) {
+            writeByte(FLOAT);
+            writeVarLong(Float.floatToIntBits((Float) value) & 0xFFFFFFFFL);
+        } else if (type == Short.class) {
+            writeByte(SHORT);
+            writeVarLong(zigZag((Short) value));
+        } else if (type == Byte.class) {
+            writeByte(BYTE);
+            writeByte((Byte) value);
+        } else if (type == Character.class) {
+            writeByte(CHAR);
+            writeVarLong((Character) value);
+        } else if (type == byte[].class) {
+            byte[] bytes = (byte[]) value;
+            writeByte(BYTES);
+            writeVarLong(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        } else if (type == BigInteger.class) {
+            writeByte(BIG_INTEGER);
+            writeString(value.toString());
+        } else if (type == BigDecimal.class) {
+            writeByte(BIG_DECIMAL);
+            writeString(value.toString());
+        } else if (type == java.util.UUID.class) {
+            java.util.UUID uuid = (java.util.UUID) value;
+            writeByte(UUID);
+            writeFixedLong(uuid.getMostSignificantBits());
+            writeFixedLong(uuid.getLeastSignificantBits());
+        } else if (type == DateTime.class) {
+            writeByte(DATE_TIME);
+            writeDateTime((DateTime) value);
+        } else if (type == Class.class) {
+            writeByte(CLASS);
+            writeName(((Class<?>) value).getName());
+        } else if (value instanceof Enum) {
+            writeByte(ENUM);
+            writeName(((Enum<?>) value).getDeclaringClass().getName());
+            writeName(((Enum<?>) value).name());
+        } else if (type == MetaData.class) {
+            writeByte(META_DATA);
+            writeMetaData((MetaData) value);
+        } else if (type == GenericEventMessage.class) {
+            writeByte(EVENT_MESSAGE);
+            writeEventMessage((GenericEventMessage<?>) value);
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            int kind = value instanceof Set ? SET : LIST;
+            CollectionTypes.verifyWritable(value, kind, declaredType);
+            writeByte(kind);
+            writeVarLong(collection.size());
+            for (Object element : collection) {
+                writeValue(element, null);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            CollectionTypes.verifyWritable(value, MAP, declaredType);
+            writeByte(MAP);
+            writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey(), null);
+                writeValue(entry.getValue(), null);
+            }
+        } else if (type.isArray()) {
+            int length = Array.getLength(value);
+            writeByte(ARRAY);
+            writeName(type.getComponentType().getName());
+            writeVarLong(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(Array.get(value, i), type.getComponentType());
+            }
+        } else if (type.getName().startsWith("java.")) {
+            throw new SerializationException("Unsupported type: " + type.getName());
+        } else {
+            if (type == declaredType) {
+                writeByte(OBJECT);
+            } else {
+                writeByte(TYPED_OBJECT);
+                writeName(type.getName());
+            }
+            writeFields(value, ClassSchema.of(type));
+        }
+    }
+
+    private void writeFields(Object instance, ClassSchema schema) {
+        if (++depth > MAX_DEPTH) {
+            throw new SerializationException("Object graph is nested too deeply. It may contain a cycle.");
+        }
+        try {
+            for (ClassSchema.FieldAccessor field : schema.fields()) {
+                writeField(instance, field);
+            }
+        } catch (SerializationException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SerializationException("Unable to read the fields of " + instance.getClass().getName(), e);
+        }
+        writeVarLong(END_OF_FIELDS);
+        depth--;
+    }
+
+    /**
+     * Writes the given field, unless it holds the default value of its type. Defaults are not written, as they are
+     * the values of fields that are absent when reading.
+     */
+    private void writeField(Object instance, ClassSchema.FieldAccessor field) throws Throwable {
+        switch (field.kind) {
+            case ClassSchema.FieldAccessor.INT_FIELD:
+                int intValue = (int) field.getter.invokeExact(instance);
+                if (intValue != 0) {
+                    writeName(field.name);
+                    writeByte(INT);
+                    writeVarLong(zigZag(intValue));
+                }
+                break;
+            case ClassSchema.FieldAccessor.LONG_FIELD:
+                long longValue = (long) field.getter.invokeExact(instance);
+                if (longValue != 0) {
+                    writeName(field.name);
+                    writeByte(LONG);
+                    writeVarLong(zigZag(longValue));
+                }
+                break;
+            case ClassSchema.FieldAccessor.BOOLEAN_FIELD:
+                boolean booleanValue = (boolean) field.getter.invokeExact(instance);
+                if (booleanValue) {
+                    writeName(field.name);
+                    writeByte(TRUE);
+                }
+                break;
+            case ClassSchema.FieldAccessor.DOUBLE_FIELD:
+                double doubleValue = (double) field.getter.invokeExact(instance);
+                if (Double.doubleToRawLongBits(doubleValue) != 0L) {
+                    writeName(field.name);
+                    writeByte(DOUBLE);
+                    writeFixedLong(Double.doubleToLongBits(doubleValue));
+                }
+                break;
+            default:
+                Object value = (Object) field.getter.invokeExact(instance);
+                if (value != null && !isPrimitiveDefault(field.type, value)) {
+                    writeName(field.name);
+                    writeValue(value, field.type);
+                }
+        }
+    }
+
+    private static boolean isPrimitiveDefault(Class<?> fieldType, Object value) {
+        return fieldType.isPrimitive() && value.equals(PRIMITIVE_DEFAULTS.get(fieldType));
+    }
+
+    private void writeMetaData(MetaData metaData) {
+        writeVarLong(metaData.size());
+        for (Map.Entry<String, Object> entry : metaData.entrySet()) {
+            writeName(entry.getKey());
+            writeValue(entry.getValue(), null);
+        }
+    }
+
+    private void writeEventMessage(GenericEventMessage<?> message) {
+        writeString(message.getIdentifier());
+        writeDateTime(message.getTimestamp());
+        writeValue(message.getPayload(), null);
+        writeMetaData(message.getMetaData());
+    }
+
+    private void writeDateTime(DateTime dateTime) {
+        writeVarLong(zigZag(dateTime.getMillis()));
+        writeName(dateTime.getZone().getID());
+    }
+
+    /**
+     * Writes a reference to the given <code>name</code>, writing the name itself only the first time it is used.
+     */
+    void writeName(String name) {
+        Integer index = names.get(name);
+        if (index != null) {
+            writeVarLong(index + FIRST_NAME_INDEX);
+        } else {
+            names.put(name, names.size());
+            writeVarLong(NEW_NAME);
+            writeString(name);
+        }
+    }
+
+    /**
+     * Writes the length of the UTF-8 representation of the given <code>value</code>, followed by that representation.
+     */
+    void writeString(String value) {
+        int length = value.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (isSurrogatePair(value, i)) {
+                utf8Length += 4;
+                i++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        writeVarLong(utf8Length);
+        ensureCapacity(utf8Length);
+        byte[] bytes = buffer;
+        int p = position;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[p++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[p++] = (byte) (0xC0 | (c >> 6));
+                bytes[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[p++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[p++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                if (Character.isSurrogate(c)) {
+                    c = '?';
+                }
+                bytes[p++] = (byte) (0xE0 | (c >> 12));
+                bytes[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        position = p;
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1));
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeFixedLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void ensureCapacity(int additional) {
+        if (position + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.es4j.serialization.binary.axon;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.core.axon.Instantiators;
+
+/**
+ * Describes how instances of a class are written and read: the persistent fields, with method handles to access them,
+ * and the way to create new instances. Schemas are derived once per class, on first use.
+ * <p/>
+ * All non-static, non-transient fields declared by the class and its superclasses are persistent. Fields are
+ * identified by name. If a superclass declares a field with the same name as a subclass, the superclass field is
+ * identified by its name prefixed with the simple name of the declaring class and a dot.
+ * <p/>
+ * Instances are created without invoking any of their constructors or field initializers, like XStream does. Fields
+ * that are absent in the serialized form therefore hold the default value of their type, which allows writers to leave
+ * out fields holding a default value.
+ *
+ * @since 2.0
+ */
+final class ClassSchema {
+
+    private static final ClassValue<ClassSchema> SCHEMAS = new ClassValue<ClassSchema>() {
+        @Override
+        protected ClassSchema computeValue(Class<?> type) {
+            return new ClassSchema(type);
+        }
+    };
+
+    private static final Comparator<FieldAccessor> BY_NAME = new Comparator<FieldAccessor>() {
+        @Override
+        public int compare(FieldAccessor o1, FieldAccessor o2) {
+            return o1.name.compareTo(o2.name);
+        }
+    };
+
+    private final Class<?> type;
+    private final List<FieldAccessor> fields;
+    private final Map<String, FieldAccessor> fieldsByName;
+    private final Constructor<?> constructor;
+
+    private ClassSchema(Class<?> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<FieldAccessor> accessors = new ArrayList<FieldAccessor>();
+        Map<String, FieldAccessor> byName = new HashMap<String, FieldAccessor>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                    continue;
+                }
+                String name = field.getName();
+                if (byName.containsKey(name)) {
+                    name = current.getSimpleName() + "." + name;
+                }
+                FieldAccessor accessor = new FieldAccessor(name, field, lookup);
+                accessors.add(accessor);
+                byName.put(name, accessor);
+            }
+        }
+        Collections.sort(accessors, BY_NAME);
+        this.fields = Collections.unmodifiableList(accessors);
+        this.fieldsByName = byName;
+        this.constructor = instantiatingConstructor(type);
+    }
+
+    /**
+     * Returns the schema of the given <code>type</code>.
+     */
+    static ClassSchema of(Class<?> type) {
+        return SCHEMAS.get(type);
+    }
+
+    private static Constructor<?> instantiatingConstructor(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        return Instantiators.constructorlessConstructor(type);
+    }
+
+    List<FieldAccessor> fields() {
+        return fields;
+    }
+
+    FieldAccessor field(String name) {
+        return fieldsByName.get(name);
+    }
+
+    Object newInstance() {
+        if (constructor == null) {
+            throw new SerializationException("Cannot instantiate abstract type " + type.getName());
+        }
+        try {
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw new SerializationException("Unable to instantiate " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Gives access to a single field. Fields of type <code>int</code>, <code>long</code>, <code>boolean</code> and
+     * <code>double</code> have method handles that read and write the primitive value without boxing it.
+     */
+    static final class FieldAccessor {
+
+        static final int INT_FIELD = 1;
+        static final int LONG_FIELD = 2;
+        static final int BOOLEAN_FIELD = 3;
+        static final int DOUBLE_FIELD = 4;
+        static final int OTHER_FIELD = 0;
+
+        final String name;
+        final Class<?> type;
+        final int kind;
+        final MethodHandle getter;
+        final MethodHandle setter;
+        final MethodHandle genericGetter;
+        final MethodHandle genericSetter;
+
+        private FieldAccessor(String name, Field field, MethodHandles.Lookup lookup) {
+            this.name = name;
+            this.type = field.getType();
+            this.kind = kindOf(type);
+            try {
+                field.setAccessible(true);
+                MethodHandle rawGetter = lookup.unreflectGetter(field);
+                MethodHandle rawSetter = lookup.unreflectSetter(field);
+                Class<?> accessType = kind == OTHER_FIELD ? Object.class : type;
+                this.getter = rawGetter.asType(MethodType.methodType(accessType, Object.class));
+                this.setter = rawSetter.asType(MethodType.methodType(void.class, Object.class, accessType));
+                this.genericGetter = rawGetter.asType(MethodType.methodType(Object.class, Object.class));
+                this.genericSetter = rawSetter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (RuntimeException e) {
+                throw new SerializationException("Unable to access field " + field, e);
+            } catch (IllegalAccessException e) {
+                throw new SerializationException("Unable to access field " + field, e);
+            }
+        }
+
+        private static int kindOf(Class<?> type) {
+            if (type == int.class) {
+                return INT_FIELD;
+            } else if (type == long.class) {
+                return LONG_FIELD;
+            } else if (type == boolean.class) {
+                return BOOLEAN_FIELD;
+            } else if (type == double.class) {
+                return DOUBLE_FIELD;
+            }
+            return OTHER_FIELD;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.es4j.serialization.binary.axon;
+
+import static org.es4j.serialization.binary.axon.BinaryFormat.*;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.es4j.serialization.api.axon.SerializationException;
+
+/**
+ * Determines the classes that collections and maps are read as. The format only contains the elements of a collection
+ * or map, so the class to create is derived from the type it is read into: that type itself if it is concrete and has
+ * a public no-arg constructor, and otherwise the first of a fixed list of implementations that is assignable to it.
+ * Values of which the type cannot be restored this way are rejected when they are written, rather than lost when they
+ * are read.
+ *
+ * @since 2.0
+ */
+final class CollectionTypes {
+
+    private static final Class<?>[] LIST_IMPLEMENTATIONS = {ArrayList.class, LinkedHashSet.class, TreeSet.class,
+            LinkedList.class};
+    private static final Class<?>[] SET_IMPLEMENTATIONS = {LinkedHashSet.class, ArrayList.class, TreeSet.class,
+            LinkedList.class};
+    private static final Class<?>[] MAP_IMPLEMENTATIONS = {LinkedHashMap.class, TreeMap.class,
+            ConcurrentHashMap.class, ConcurrentSkipListMap.class};
+
+    private CollectionTypes() {
+    }
+
+    /**
+     * Returns the class to create when reading a value of the given <code>kind</code> into the given
+     * <code>declaredType</code>, or <code>null</code> if no suitable class exists. If the declared type is not a
+     * collection or map type, the default class for the kind is returned.
+     *
+     * @param kind         The kind of value: {@link BinaryFormat#LIST}, {@link BinaryFormat#SET} or {@link
+     *                     BinaryFormat#MAP}
+     * @param declaredType The type the value is read into, may be <code>null</code>
+     * @return the class to create, or <code>null</code> if the declared type cannot be created
+     */
+    static Class<?> implementationFor(int kind, Class<?> declaredType) {
+        Class<?> baseType = kind == MAP ? Map.class : Collection.class;
+        Class<?>[] candidates = kind == MAP ? MAP_IMPLEMENTATIONS
+                : kind == SET ? SET_IMPLEMENTATIONS : LIST_IMPLEMENTATIONS;
+        if (declaredType == null || !baseType.isAssignableFrom(declaredType)) {
+            return candidates[0];
+        }
+        if (!declaredType.isInterface() && !Modifier.isAbstract(declaredType.getModifiers())
+                && hasPublicNoArgConstructor(declaredType)) {
+            return declaredType;
+        }
+        for (Class<?> candidate : candidates) {
+            if (declaredType.isAssignableFrom(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Verifies that the given collection or map <code>value</code>, written for the given <code>declaredType</code>,
+     * can be read back without losing information.
+     *
+     * @param value        The collection or map to write
+     * @param kind         The kind the value is written as
+     * @param declaredType The type the value is written for, may be <code>null</code>
+     * @throws SerializationException if the value cannot be read back
+     */
+    static void verifyWritable(Object value, int kind, Class<?> declaredType) {
+        if (implementationFor(kind, declaredType) == null) {
+            throw new SerializationException("Unsupported type: " + declaredType.getName()
+                                                     + ". Collections and maps can only be written for types that "
+                                                     + "can be created with a public no-arg constructor.");
+        }
+        if ((value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null)
+                || (value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null)
+                || (value instanceof PriorityQueue && ((PriorityQueue<?>) value).comparator() != null)) {
+            throw new SerializationException("Unsupported value: " + value.getClass().getName()
+                                                     + " ordered by a Comparator. Only the natural ordering of "
+                                                     + "elements can be restored.");
+        }
+    }
+
+    private static boolean hasPublicNoArgConstructor(Class<?> type) {
+        try {
+            type.getConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.es4j.serialization.binary.axon;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.es4j.messaging.api.axon.GenericEventMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.SerializedType;
+import org.es4j.serialization.api.axon.Serializer;
+import org.es4j.serialization.core.axon.Assert;
+import org.es4j.serialization.core.axon.ChainingConverterFactory;
+import org.es4j.serialization.core.axon.ConverterFactory;
+import org.es4j.serialization.core.axon.Revision;
+import org.es4j.serialization.core.axon.SimpleSerializedObject;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializer implementation that writes objects in a compact, self-describing binary format. Each value is written as
+ * a kind byte followed by its content, of which the length is either implied by the kind or written up front. Field
+ * names and type names are written once per serialized object and referred to by index afterwards. Fields holding the
+ * default value of their type are not written at all.
+ * <p/>
+ * The persistent fields of a class are determined once, on first use, and accessed through method handles rather than
+ * through reflection. Fields of type <code>int</code>, <code>long</code>, <code>boolean</code> and <code>double</code>
+ * are read and written without boxing. As with XStream, objects do not need a no-arg constructor to be deserialized.
+ * <p/>
+ * Fields are identified by name, so that fields may be added to or removed from a class without breaking the
+ * deserialization of earlier revisions: values of fields that no longer exist are skipped, and fields that were not
+ * written keep their default value. {@link MetaData}, {@link DateTime} and {@link GenericEventMessage} have a dedicated
+ * representation. Classes in the <code>java</code> packages are only supported if the format has a representation for
+ * them, such as Strings, boxed primitives, collections and maps. Collections and maps are read as the type of the
+ * field they are read into if that type has a public no-arg constructor, and otherwise as the first of ArrayList,
+ * LinkedHashSet, TreeSet and LinkedList, or of LinkedHashMap, TreeMap, ConcurrentHashMap and ConcurrentSkipListMap,
+ * that can be assigned to the field. Collections and maps that cannot be read back that way, such as an
+ * <code>EnumMap</code> or a <code>TreeSet</code> with a Comparator, are rejected when they are written.
+ * <p/>
+ * The serialized type of an object is its class name, with the revision given by its {@link Revision @Revision}
+ * annotation. Serialized data is written into a buffer that is reused by the current thread, and copied once into the
+ * resulting <code>byte[]</code>. Other representations are provided by the {@link ConverterFactory}.
+ *
+ * @since 2.0
+ */
+public class CompactBinarySerializer implements Serializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactBinarySerializer.class);
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+
+    static {
+        for (Class<?> type : new Class<?>[]{boolean.class, byte.class, char.class, short.class, int.class, long.class,
+                float.class, double.class}) {
+            PRIMITIVE_TYPES.put(type.getName(), type);
+        }
+    }
+
+    private final ConverterFactory converterFactory;
+    // classes resolved per class loader, held softly so that they do not keep their class loaders reachable
+    private final Map<ClassLoader, ConcurrentMap<String, SoftReference<Class<?>>>> resolvedClassesByLoader =
+            new WeakHashMap<ClassLoader, ConcurrentMap<String, SoftReference<Class<?>>>>();
+    private final ThreadLocal<BinaryWriter> writers = new ThreadLocal<BinaryWriter>() {
+        @Override
+        protected BinaryWriter initialValue() {
+            return new BinaryWriter(INITIAL_BUFFER_SIZE);
+        }
+    };
+    private final ThreadLocal<BinaryReader> readers = new ThreadLocal<BinaryReader>() {
+        @Override
+        protected BinaryReader initialValue() {
+            return new BinaryReader(CompactBinarySerializer.this);
+        }
+    };
+
+    /**
+     * Initialize a CompactBinarySerializer using the {@link ChainingConverterFactory#sharedInstance() shared converter
+     * factory}.
+     */
+    public CompactBinarySerializer() {
+        this(ChainingConverterFactory.sharedInstance());
+    }
+
+    /**
+     * Initialize a CompactBinarySerializer using the given <code>converterFactory</code>.
+     *
+     * @param converterFactory The ConverterFactory providing the necessary content converters
+     */
+    public CompactBinarySerializer(ConverterFactory converterFactory) {
+        Assert.notNull(converterFactory, "converterFactory may not be null");
+        this.converterFactory = converterFactory;
+    }
+
+    @Override
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedType) {
+        T result = converterFactory.getConverter(byte[].class, expectedType).convert(writeBytes(object));
+        return new SimpleSerializedObject<T>(result, expectedType, object.getClass().getName(),
+                                             revisionOf(object.getClass()));
+    }
+
+    private byte[] writeBytes(Object object) {
+        BinaryWriter writer = writers.get();
+        try {
+            writer.writeValue(object, object.getClass());
+            return writer.toByteArray();
+        } finally {
+            if (writer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                writers.remove();
+            } else {
+                writer.reset();
+            }
+        }
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return converterFactory.hasConverter(byte[].class, expectedRepresentation);
+    }
+
+    @Override
+    public <T> Object deserialize(SerializedObject<T> serializedObject) {
+        Class<?> type = classForType(serializedObject.getType());
+        if (type == null) {
+            throw new SerializationException("Unable to resolve the class of serialized type "
+                                                     + serializedObject.getType().getName());
+        }
+        byte[] bytes;
+        if (serializedObject.getData() instanceof byte[]) {
+            bytes = (byte[]) serializedObject.getData();
+        } else {
+            bytes = converterFactory.getConverter(serializedObject.getContentType(), byte[].class)
+                                    .convert(serializedObject.getData());
+        }
+        BinaryReader reader = readers.get();
+        try {
+            reader.reset(bytes);
+            return reader.readValue(type);
+        } catch (IndexOutOfBoundsException e) {
+            throw new SerializationException("Serialized data of type " + serializedObject.getType().getName()
+                                                     + " is truncated or corrupt", e);
+        } finally {
+            reader.release();
+        }
+    }
+
+    @Override
+    public Class classForType(SerializedType type) {
+        try {
+            return resolveClass(type.getName());
+        } catch (SerializationException e) {
+            logger.warn("Could not load class for serialized type [{}] revision {}",
+                        type.getName(), type.getRevision());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the class with the given <code>name</code>, which may also be the name of a primitive type. Classes are
+     * resolved using the context class loader of the current thread, or the class loader of this serializer if the
+     * thread has none. Resolved classes are cached per class loader.
+     *
+     * @param name The name of the class to resolve
+     * @return the class with the given name
+     *
+     * @throws SerializationException if no class with the given name could be found
+     */
+    Class<?> resolveClass(String name) {
+        Class<?> type = PRIMITIVE_TYPES.get(name);
+        if (type != null) {
+            return type;
+        }
+        ClassLoader classLoader = classLoader();
+        ConcurrentMap<String, SoftReference<Class<?>>> resolvedClasses = resolvedClassesFor(classLoader);
+        SoftReference<Class<?>> reference = resolvedClasses.get(name);
+        type = reference == null ? null : reference.get();
+        if (type == null) {
+            try {
+                type = Class.forName(name, false, classLoader);
+            } catch (ClassNotFoundException e) {
+                throw new SerializationException("Unable to resolve class " + name, e);
+            }
+            resolvedClasses.put(name, new SoftReference<Class<?>>(type));
+        }
+        return type;
+    }
+
+    private ConcurrentMap<String, SoftReference<Class<?>>> resolvedClassesFor(ClassLoader classLoader) {
+        synchronized (resolvedClassesByLoader) {
+            ConcurrentMap<String, SoftReference<Class<?>>> resolvedClasses = resolvedClassesByLoader.get(classLoader);
+            if (resolvedClasses == null) {
+                resolvedClasses = new ConcurrentHashMap<String, SoftReference<Class<?>>>();
+                resolvedClassesByLoader.put(classLoader, resolvedClasses);
+            }
+            return resolvedClasses;
+        }
+    }
+
+    private ClassLoader classLoader() {
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        return contextClassLoader != null ? contextClassLoader : getClass().getClassLoader();
+    }
+
+    /**
+     * Returns the revision number for the given <code>type</code>. The default implementation checks for an {@link
+     * Revision @Revision} annotation, and returns <code>null</code> if none was found. This method can be safely
+     * overridden by subclasses.
+     *
+     * @param type The type for which to return the revision number
+     * @return the revision number for the given <code>type</code>
+     */
+    protected String revisionOf(Class<?> type) {
+        Revision revision = type.getAnnotation(Revision.class);
+        return revision == null ? null : revision.value();
+    }
+}
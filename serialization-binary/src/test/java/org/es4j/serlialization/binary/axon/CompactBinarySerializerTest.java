@@ -0,0 +1,257 @@
+package org.es4j.serlialization.binary.axon;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.es4j.messaging.api.axon.GenericEventMessage;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.binary.axon.CompactBinarySerializer;
+import org.es4j.serialization.core.axon.SimpleSerializedObject;
+import org.es4j.serialization.core.axon.SimpleSerializedType;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactBinarySerializerTest {
+
+    private CompactBinarySerializer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new CompactBinarySerializer();
+    }
+
+    @Test
+    public void testEachKindOfValueIsRestored() {
+        ValuesEvent event = new ValuesEvent("order-1", 3);
+        event.amount = new BigDecimal("12.50");
+        event.unit = TimeUnit.SECONDS;
+        event.ratio = 0.5;
+        event.nested = new Nested("nested", 'x');
+        event.numbers = new int[]{1, -2, 3};
+        Map<String, Object> metaData = new HashMap<String, Object>();
+        metaData.put("correlation", UUID.randomUUID());
+        metaData.put("attempt", 1L);
+        metaData.put("nothing", null);
+        DateTime timestamp = new DateTime(2012, 3, 4, 5, 6, 7, 8, DateTimeZone.forID("Europe/Amsterdam"));
+        event.message = new GenericEventMessage<Nested>("id", timestamp, new Nested(2, 'y'), metaData);
+
+        ValuesEvent actual = (ValuesEvent) testSubject.deserialize(testSubject.serialize(event, byte[].class));
+        assertEquals("order-1", actual.name);
+        assertEquals(3, actual.count);
+        assertEquals(event.tags, actual.tags);
+        assertEquals(event.labels, actual.labels);
+        assertEquals(event.amount, actual.amount);
+        assertEquals(TimeUnit.SECONDS, actual.unit);
+        assertEquals(0.5, actual.ratio, 0);
+        assertEquals("nested", actual.nested.value);
+        assertEquals('x', actual.nested.symbol);
+        assertArrayEquals(new int[]{1, -2, 3}, actual.numbers);
+        GenericEventMessage message = (GenericEventMessage) actual.message;
+        assertEquals(timestamp, message.getTimestamp());
+        assertEquals(timestamp.getZone(), message.getTimestamp().getZone());
+        assertEquals(event.message.getMetaData(), message.getMetaData());
+        assertEquals(2, ((Nested) message.getPayload()).value);
+    }
+
+    @Test
+    public void testSerializedFormIsCompact() {
+        ValuesEvent event = new ValuesEvent("order-1", 3);
+        byte[] serialized = testSubject.serialize(event, byte[].class).getData();
+        // the field names and tag values take most of the space, the class name is not written at all
+        assertTrue("Serialized form is " + serialized.length + " bytes", serialized.length < 80);
+    }
+
+    @Test
+    public void testAddedAndRemovedFieldsAreTolerated() {
+        OldEvent oldEvent = new OldEvent();
+        oldEvent.name = "hello";
+        oldEvent.count = 3;
+        oldEvent.removed = new Nested("removed", 'r');
+        oldEvent.removedList = new ArrayList<Object>();
+        oldEvent.removedList.add(new Nested("also removed", 'a'));
+        oldEvent.trailing = "trailing";
+        byte[] data = testSubject.serialize(oldEvent, byte[].class).getData();
+
+        NewEvent actual = (NewEvent) testSubject.deserialize(new SimpleSerializedObject<byte[]>(
+                data, byte[].class, NewEvent.class.getName(), "1"));
+        assertEquals("hello", actual.name);
+        assertEquals(3L, actual.count);
+        assertEquals("trailing", actual.trailing);
+        assertNull(actual.added);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testUnsupportedJavaTypeIsRejected() {
+        ValuesEvent event = new ValuesEvent("order-1", 3);
+        event.nested = new Nested(new Object(), 'x');
+        testSubject.serialize(event, byte[].class);
+    }
+
+    @Test
+    public void testCollectionFieldsTypedAsInterfacesAreRestored() {
+        CollectionHolder holder = new CollectionHolder();
+        holder.sortedSet = new TreeSet<String>(Arrays.asList("b", "a"));
+        holder.navigableMap = new TreeMap<String, Integer>();
+        holder.navigableMap.put("key", 1);
+        holder.concurrentMap = new ConcurrentHashMap<String, String>();
+        holder.concurrentMap.put("a", "b");
+        holder.deque = new ArrayDeque<String>(Arrays.asList("first", "second"));
+        holder.collection = new HashSet<Object>(Arrays.asList("element"));
+
+        CollectionHolder actual = (CollectionHolder) testSubject.deserialize(
+                testSubject.serialize(holder, byte[].class));
+        assertEquals(holder.sortedSet, actual.sortedSet);
+        assertTrue(actual.sortedSet instanceof SortedSet);
+        assertEquals(holder.navigableMap, actual.navigableMap);
+        assertEquals(holder.concurrentMap, actual.concurrentMap);
+        assertEquals(Arrays.asList("first", "second"), new ArrayList<String>(actual.deque));
+        assertEquals(holder.collection, new HashSet<Object>(actual.collection));
+    }
+
+    @Test
+    public void testCollectionsThatCannotBeRestoredAreRejected() {
+        CollectionHolder holder = new CollectionHolder();
+        holder.enumMap = new EnumMap<TimeUnit, String>(TimeUnit.class);
+        assertSerializationFails(holder);
+
+        holder = new CollectionHolder();
+        holder.sortedSet = new TreeSet<String>(Collections.reverseOrder());
+        assertSerializationFails(holder);
+
+        holder = new CollectionHolder();
+        holder.blockingQueue = new LinkedBlockingQueue<String>();
+        assertSerializationFails(holder);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testValueThatCannotBeAssignedToFieldIsRejected() {
+        OldEvent oldEvent = new OldEvent();
+        oldEvent.name = "hello";
+        oldEvent.removedList = new ArrayList<Object>();
+        byte[] data = testSubject.serialize(oldEvent, byte[].class).getData();
+
+        testSubject.deserialize(new SimpleSerializedObject<byte[]>(data, byte[].class,
+                                                                   ChangedEvent.class.getName(), "1"));
+    }
+
+    private void assertSerializationFails(Object object) {
+        try {
+            testSubject.serialize(object, byte[].class);
+            fail("Expected a SerializationException");
+        } catch (SerializationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testClassesAreResolvedPerContextClassLoader() throws Exception {
+        SimpleSerializedType type = new SimpleSerializedType(Nested.class.getName(), null);
+        URL testClasses = getClass().getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader isolatingLoader = new URLClassLoader(new URL[]{testClasses}, null);
+        Thread thread = Thread.currentThread();
+        ClassLoader originalLoader = thread.getContextClassLoader();
+        try {
+            assertSame(Nested.class, testSubject.classForType(type));
+            thread.setContextClassLoader(isolatingLoader);
+            Class<?> isolatedClass = testSubject.classForType(type);
+            assertSame(isolatingLoader, isolatedClass.getClassLoader());
+            thread.setContextClassLoader(originalLoader);
+            assertSame(Nested.class, testSubject.classForType(type));
+        } finally {
+            thread.setContextClassLoader(originalLoader);
+        }
+    }
+
+    public static class ValuesEvent {
+
+        private final String name;
+        private final int count;
+        private final List<String> tags = new ArrayList<String>();
+        private final Set<String> labels = new TreeSet<String>();
+        private BigDecimal amount;
+        private TimeUnit unit;
+        private double ratio;
+        private Nested nested;
+        private int[] numbers;
+        private GenericEventMessage<?> message;
+
+        public ValuesEvent(String name, int count) {
+            this.name = name;
+            this.count = count;
+            tags.add("first");
+            tags.add("second");
+            labels.add("b");
+            labels.add("a");
+        }
+    }
+
+    public static class Nested {
+
+        private final Object value;
+        private final char symbol;
+
+        public Nested(Object value, char symbol) {
+            this.value = value;
+            this.symbol = symbol;
+        }
+    }
+
+    public static class OldEvent {
+
+        private String name;
+        private int count;
+        private Nested removed;
+        private List<Object> removedList;
+        private String trailing;
+    }
+
+    public static class ChangedEvent {
+
+        private String name;
+        private Map<String, Object> removedList;
+    }
+
+    public static class CollectionHolder {
+
+        private SortedSet<String> sortedSet;
+        private NavigableMap<String, Integer> navigableMap;
+        private ConcurrentMap<String, String> concurrentMap;
+        private Deque<String> deque;
+        private Collection<Object> collection;
+        private EnumMap<TimeUnit, String> enumMap;
+        private BlockingQueue<String> blockingQueue;
+    }
+
+    public static class NewEvent {
+
+        private String added;
+        private String name;
+        private long count;
+        private String trailing;
+    }
+}
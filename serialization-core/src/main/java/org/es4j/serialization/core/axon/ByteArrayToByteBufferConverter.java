@@ -0,0 +1,35 @@
+package org.es4j.serialization.core.axon;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ContentTypeConverter that converts byte arrays into a ByteBuffer. The returned buffer wraps the given array; no data
+ * is copied.
+ *
+ * @since 2.0
+ */
+public class ByteArrayToByteBufferConverter extends AbstractContentTypeConverter<byte[], ByteBuffer>
+        implements WeightedContentTypeConverter<byte[], ByteBuffer> {
+
+    private static final int CONVERSION_COST = 1;
+
+    @Override
+    public Class<byte[]> expectedSourceType() {
+        return byte[].class;
+    }
+
+    @Override
+    public Class<ByteBuffer> targetType() {
+        return ByteBuffer.class;
+    }
+
+    @Override
+    public int conversionCost() {
+        return CONVERSION_COST;
+    }
+
+    @Override
+    public ByteBuffer convert(byte[] original) {
+        return ByteBuffer.wrap(original);
+    }
+}
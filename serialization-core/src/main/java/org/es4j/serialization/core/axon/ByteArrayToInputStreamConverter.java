@@ -0,0 +1,42 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * ContentTypeConverter that converts byte arrays into InputStream. The returned stream reads directly from the given
+ * array; no data is copied. More specifically, it returns a ByteArrayInputStream with the underlying byte[] as
+ * backing data.
+ *
+ * @since 2.0
+ */
+public class ByteArrayToInputStreamConverter extends AbstractContentTypeConverter<byte[], InputStream>
+        implements WeightedContentTypeConverter<byte[], InputStream>, ByteStreamReader<InputStream> {
+
+    private static final int CONVERSION_COST = 1;
+
+    @Override
+    public Class<byte[]> expectedSourceType() {
+        return byte[].class;
+    }
+
+    @Override
+    public Class<InputStream> targetType() {
+        return InputStream.class;
+    }
+
+    @Override
+    public int conversionCost() {
+        return CONVERSION_COST;
+    }
+
+    @Override
+    public InputStream convert(byte[] original) {
+        return new ByteArrayInputStream(original);
+    }
+
+    @Override
+    public InputStream readFrom(InputStream inputStream) {
+        return inputStream;
+    }
+}
@@ -0,0 +1,24 @@
+package org.es4j.serialization.core.axon;
+
+/**
+ * ContentTypeConverter that converts byte[] into String. Conversion is done using the UTF-8 character set.
+ *
+ * @since 2.0
+ */
+public class ByteArrayToStringConverter extends AbstractContentTypeConverter<byte[], String> {
+
+    @Override
+    public Class<byte[]> expectedSourceType() {
+        return byte[].class;
+    }
+
+    @Override
+    public Class<String> targetType() {
+        return String.class;
+    }
+
+    @Override
+    public String convert(byte[] original) {
+        return new String(original, IOUtils.UTF8);
+    }
+}
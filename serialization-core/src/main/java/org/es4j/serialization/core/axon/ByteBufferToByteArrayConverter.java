@@ -0,0 +1,60 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * ContentTypeConverter that converts a ByteBuffer into a byte[] containing the buffer's remaining bytes. When the
+ * buffer wraps an entire array, that array is returned as is. In all other cases (including direct buffers), the
+ * remaining bytes are copied. The position of the given buffer is never modified.
+ *
+ * @since 2.0
+ */
+public class ByteBufferToByteArrayConverter extends AbstractContentTypeConverter<ByteBuffer, byte[]>
+        implements WeightedContentTypeConverter<ByteBuffer, byte[]>, ByteStreamWriter<ByteBuffer> {
+
+    private static final int CONVERSION_COST = 5;
+    private static final int CHUNK_SIZE = 8192;
+
+    @Override
+    public Class<ByteBuffer> expectedSourceType() {
+        return ByteBuffer.class;
+    }
+
+    @Override
+    public Class<byte[]> targetType() {
+        return byte[].class;
+    }
+
+    @Override
+    public int conversionCost() {
+        return CONVERSION_COST;
+    }
+
+    @Override
+    public byte[] convert(ByteBuffer original) {
+        if (original.hasArray() && original.arrayOffset() == 0 && original.position() == 0
+                && original.remaining() == original.array().length) {
+            return original.array();
+        }
+        byte[] bytes = new byte[original.remaining()];
+        original.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public void writeTo(ByteBuffer source, OutputStream outputStream) throws IOException {
+        if (source.hasArray()) {
+            outputStream.write(source.array(), source.arrayOffset() + source.position(), source.remaining());
+            return;
+        }
+        ByteBuffer data = source.duplicate();
+        byte[] chunk = new byte[Math.min(CHUNK_SIZE, data.remaining())];
+        while (data.hasRemaining()) {
+            int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            outputStream.write(chunk, 0, length);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * ContentTypeConverter that converts a ByteBuffer into an InputStream reading the buffer's remaining bytes. The stream
+ * reads directly from the buffer (heap or direct); no data is copied and the position of the given buffer is not
+ * modified.
+ *
+ * @since 2.0
+ */
+public class ByteBufferToInputStreamConverter extends AbstractContentTypeConverter<ByteBuffer, InputStream>
+        implements WeightedContentTypeConverter<ByteBuffer, InputStream> {
+
+    private static final int CONVERSION_COST = 1;
+
+    @Override
+    public Class<ByteBuffer> expectedSourceType() {
+        return ByteBuffer.class;
+    }
+
+    @Override
+    public Class<InputStream> targetType() {
+        return InputStream.class;
+    }
+
+    @Override
+    public int conversionCost() {
+        return CONVERSION_COST;
+    }
+
+    @Override
+    public InputStream convert(ByteBuffer original) {
+        if (original.hasArray()) {
+            return new ByteArrayInputStream(original.array(), original.arrayOffset() + original.position(),
+                                            original.remaining());
+        }
+        return new ByteBufferInputStream(original.duplicate());
+    }
+
+    /**
+     * InputStream that reads the remaining bytes of a ByteBuffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
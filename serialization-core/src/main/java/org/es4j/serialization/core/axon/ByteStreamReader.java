@@ -0,0 +1,30 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interface for ContentTypeConverters that consume a <code>byte[]</code> and are able to read that data from an
+ * InputStream instead. When such a converter is preceded by a {@link ByteStreamWriter} in a {@link ChainedConverter},
+ * the data is written into a buffer that is read directly, without copying it into an exactly sized
+ * <code>byte[]</code>.
+ *
+ * @param <T> The target type of the converter
+ * @since 2.0
+ */
+public interface ByteStreamReader<T> {
+
+    /**
+     * Reads the data available in the given <code>inputStream</code> and converts it to the target type. The result
+     * must be identical to the result this converter would return for a <code>byte[]</code> with the same contents.
+     * <p/>
+     * The returned object may hold on to the given <code>inputStream</code>, in which case it should not be closed by
+     * the caller.
+     *
+     * @param inputStream The stream providing the data to convert
+     * @return the converted object
+     *
+     * @throws IOException when an error occurs reading from the stream
+     */
+    T readFrom(InputStream inputStream) throws IOException;
+}
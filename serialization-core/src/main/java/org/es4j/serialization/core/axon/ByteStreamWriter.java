@@ -0,0 +1,26 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Interface for ContentTypeConverters that produce a <code>byte[]</code> and are able to write that data to an
+ * OutputStream instead. When such a converter is followed by a {@link ByteStreamReader} in a {@link ChainedConverter},
+ * the data is written into a buffer that is read directly, without copying it into an exactly sized
+ * <code>byte[]</code>.
+ *
+ * @param <S> The source type of the converter
+ * @since 2.0
+ */
+public interface ByteStreamWriter<S> {
+
+    /**
+     * Writes the binary representation of the given <code>source</code> to the given <code>outputStream</code>. The
+     * data written must be identical to the <code>byte[]</code> this converter would return for the same source.
+     *
+     * @param source       The object to convert
+     * @param outputStream The stream to write the converted data to
+     * @throws IOException when an error occurs writing to the stream
+     */
+    void writeTo(S source, OutputStream outputStream) throws IOException;
+}
@@ -17,23 +17,36 @@
 package org.es4j.serialization.core.axon;
 
 import static java.lang.String.format;
+import java.io.IOException;
 import java.util.*;
 import org.es4j.serialization.api.axon.SerializedObject;
 
 /**
  * A converter that delegates to a chain of other ContentTypeConverters to convert from a source to a target for which
  * there is not necessarily a single converter available.
+ * <p/>
+ * When calculating a chain, the route with the lowest total cost is selected. See {@link WeightedContentTypeConverter}
+ * for how converters can declare their cost.
+ * <p/>
+ * When all delegates only convert the data of a SerializedObject (such as subclasses of {@link
+ * AbstractContentTypeConverter}), the chain is executed on the raw data, and the result is wrapped in a
+ * SerializedObject only once. A {@link ByteStreamWriter} directly followed by a {@link ByteStreamReader} writes into a
+ * buffer that the reader reads directly, without copying it into an exactly sized intermediate <code>byte[]</code>.
+ * The intermediate data is still held in memory as a whole.
  *
  * @param <S> The source type of the converter
  * @param <T> The target type of the converter
  * @author Allard Buijze
  * @since 2.0
  */
-public class ChainedConverter<S, T> implements ContentTypeConverter<S, T> {
+public class ChainedConverter<S, T> implements WeightedContentTypeConverter<S, T> {
 
     private final List<ContentTypeConverter> delegates;
     private final Class<T> target;
     private final Class<S> source;
+    private final int cost;
+    private final List<Step> steps;
+    private final boolean fused;
 
     /**
      * Returns a converter that can convert an IntermediateRepresentation from the given <code>sourceType</code> to the
@@ -100,6 +113,54 @@ public class ChainedConverter<S, T> implements ContentTypeConverter<S, T> {
         this.delegates = new ArrayList<ContentTypeConverter>(delegates);
         target = this.delegates.get(this.delegates.size() - 1).targetType();
         source = delegates.get(0).expectedSourceType();
+        int totalCost = 0;
+        for (ContentTypeConverter delegate : this.delegates) {
+            totalCost += costOf(delegate);
+        }
+        cost = totalCost;
+        steps = compileSteps(this.delegates);
+        fused = isDataOnly(this.delegates);
+    }
+
+    private static List<Step> compileSteps(List<ContentTypeConverter> delegates) {
+        List<Step> compiled = new ArrayList<Step>(delegates.size());
+        for (int i = 0; i < delegates.size(); i++) {
+            ContentTypeConverter current = delegates.get(i);
+            ContentTypeConverter next = i + 1 < delegates.size() ? delegates.get(i + 1) : null;
+            if (next != null && current instanceof ByteStreamWriter && byte[].class.equals(current.targetType())
+                    && next instanceof ByteStreamReader && byte[].class.equals(next.expectedSourceType())) {
+                compiled.add(new BufferedStreamStep((ByteStreamWriter) current, (ByteStreamReader) next));
+                i++;
+            } else {
+                compiled.add(new ConverterStep(current));
+            }
+        }
+        return compiled;
+    }
+
+    private static boolean isDataOnly(List<ContentTypeConverter> delegates) {
+        for (ContentTypeConverter delegate : delegates) {
+            boolean dataOnly = delegate instanceof AbstractContentTypeConverter
+                    || (delegate instanceof ChainedConverter && ((ChainedConverter) delegate).fused);
+            if (!dataOnly) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the cost of a conversion by the given <code>converter</code>. Converters that do not implement {@link
+     * WeightedContentTypeConverter} are assigned the {@link WeightedContentTypeConverter#DEFAULT_COST default cost}.
+     *
+     * @param converter The converter to return the cost for
+     * @return the cost of a conversion by the given <code>converter</code>
+     */
+    public static int costOf(ContentTypeConverter<?, ?> converter) {
+        if (converter instanceof WeightedContentTypeConverter) {
+            return Math.max(0, ((WeightedContentTypeConverter) converter).conversionCost());
+        }
+        return WeightedContentTypeConverter.DEFAULT_COST;
     }
 
     private boolean isContinuous(List<ContentTypeConverter> candidates) {
@@ -117,6 +178,9 @@ public class ChainedConverter<S, T> implements ContentTypeConverter<S, T> {
     @SuppressWarnings({"unchecked"})
     @Override
     public SerializedObject<T> convert(SerializedObject<S> original) {
+        if (fused) {
+            return new SimpleSerializedObject<T>(convert(original.getData()), target, original.getType());
+        }
         SerializedObject intermediate = original;
         for (ContentTypeConverter step : delegates) {
             intermediate = step.convert(intermediate);
@@ -128,7 +192,7 @@ public class ChainedConverter<S, T> implements ContentTypeConverter<S, T> {
     @Override
     public T convert(S original) {
         Object intermediate = original;
-        for (ContentTypeConverter step : delegates) {
+        for (Step step : steps) {
             intermediate = step.convert(intermediate);
         }
         return (T) intermediate;
@@ -144,81 +208,141 @@ public class ChainedConverter<S, T> implements ContentTypeConverter<S, T> {
         return target;
     }
 
+    @Override
+    public int conversionCost() {
+        return cost;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(source.getName());
+        for (ContentTypeConverter delegate : delegates) {
+            sb.append(" -> ").append(delegate.targetType().getName());
+        }
+        return format("ChainedConverter [%s] (cost %s)", sb, cost);
+    }
+
+    /**
+     * A single step in the execution of a chain, which may cover more than one converter.
+     */
+    private interface Step {
+
+        Object convert(Object original);
+    }
+
+    private static final class ConverterStep implements Step {
+
+        private final ContentTypeConverter converter;
+
+        private ConverterStep(ContentTypeConverter converter) {
+            this.converter = converter;
+        }
+
+        @SuppressWarnings({"unchecked"})
+        @Override
+        public Object convert(Object original) {
+            return converter.convert(original);
+        }
+    }
+
+    /**
+     * Step that lets a ByteStreamWriter write into a buffer, which is read by a ByteStreamReader without copying it
+     * into a <code>byte[]</code> first. The writer completes before the reader starts, so the buffer holds all data
+     * written. A new buffer is used for each conversion, as the reader may hold on to the stream reading it.
+     */
+    private static final class BufferedStreamStep implements Step {
+
+        private final ByteStreamWriter writer;
+        private final ByteStreamReader reader;
+
+        private BufferedStreamStep(ByteStreamWriter writer, ByteStreamReader reader) {
+            this.writer = writer;
+            this.reader = reader;
+        }
+
+        @SuppressWarnings({"unchecked"})
+        @Override
+        public Object convert(Object original) {
+            ReusableByteArrayOutputStream buffer = new ReusableByteArrayOutputStream();
+            try {
+                writer.writeTo(original, buffer);
+                return reader.readFrom(buffer.toInputStream());
+            } catch (IOException e) {
+                throw new CannotConvertBetweenTypesException(format(
+                        "An error occurred while passing data from %s to %s", writer, reader), e);
+            }
+        }
+    }
+
     /**
-     * Instance that calculates a "route" through a number of converters using Dijkstra's algorithm.
+     * Instance that calculates a "route" through a number of converters using Dijkstra's algorithm. The distance of
+     * each step is the cost of the converter. Of routes with equal cost, the one with the least number of steps is
+     * preferred.
      */
     private static final class RouteCalculator {
 
         private final Set<ContentTypeConverter<?, ?>> candidates;
-        private final List<Route> routes = new LinkedList<Route>();
+        private final Queue<Route> routes = new PriorityQueue<Route>();
+        private final Set<Class<?>> visited = new HashSet<Class<?>>();
 
         private RouteCalculator(Collection<ContentTypeConverter<?, ?>> candidates) {
-            this.candidates = new HashSet<ContentTypeConverter<?, ?>>(candidates);
+            this.candidates = new LinkedHashSet<ContentTypeConverter<?, ?>>(candidates);
         }
 
         private Route calculateRoute(Class<?> sourceType, Class<?> targetType) {
-            Route match = buildInitialRoutes(sourceType, targetType);
-            if (match != null) {
-                return match;
-            }
-            while (!candidates.isEmpty() && !routes.isEmpty()) {
-                Route route = getShortestRoute();
-                for (ContentTypeConverter candidate : candidates) {
-                    if (route.endPoint().equals(candidate.expectedSourceType())) {
-                        Route newRoute = route.joinedWith(candidate);
-                        if (targetType.equals(newRoute.endPoint())) {
-                            return newRoute;
-                        }
-                        routes.add(newRoute);
-                    }
+            int sequence = 0;
+            for (ContentTypeConverter candidate : candidates) {
+                if (sourceType.equals(candidate.expectedSourceType())) {
+                    routes.add(new Route(candidate, sequence++));
                 }
-                routes.remove(route);
             }
-            return null;
-        }
-
-        private Route buildInitialRoutes(Class<?> sourceType, Class<?> targetType) {
-            List<ContentTypeConverter> candidatesToRemove = new ArrayList<ContentTypeConverter>();
-            for (ContentTypeConverter converter : candidates) {
-                if (sourceType.equals(converter.expectedSourceType())) {
-                    Route route = new Route(converter);
-                    if (route.endPoint().equals(targetType)) {
-                        return route;
+            visited.add(sourceType);
+            while (!routes.isEmpty()) {
+                Route route = routes.poll();
+                if (targetType.equals(route.endPoint())) {
+                    return route;
+                }
+                if (!visited.add(route.endPoint())) {
+                    // a cheaper route to this end point has been expanded already
+                    continue;
+                }
+                for (ContentTypeConverter candidate : candidates) {
+                    if (route.endPoint().equals(candidate.expectedSourceType())
+                            && !visited.contains(candidate.targetType())) {
+                        routes.add(route.joinedWith(candidate, sequence++));
                     }
-                    routes.add(route);
-                    candidatesToRemove.add(converter);
                 }
             }
-            candidates.removeAll(candidatesToRemove);
             return null;
         }
-
-        private Route getShortestRoute() {
-            // since all nodes have equal distance, the first (i.e. oldest) node is the shortest
-            return routes.get(0);
-        }
     }
 
-    private static final class Route {
+    private static final class Route implements Comparable<Route> {
 
         private final ContentTypeConverter[] nodes;
-        private Class endPoint;
+        private final Class endPoint;
+        private final int cost;
+        private final int sequence;
 
-        private Route(ContentTypeConverter initialVertex) {
+        private Route(ContentTypeConverter initialVertex, int sequence) {
             this.nodes = new ContentTypeConverter[]{initialVertex};
-            endPoint = initialVertex.targetType();
+            this.endPoint = initialVertex.targetType();
+            this.cost = costOf(initialVertex);
+            this.sequence = sequence;
         }
 
-        private Route(ContentTypeConverter[] baseNodes, ContentTypeConverter newDestination) {
-            nodes = Arrays.copyOf(baseNodes, baseNodes.length + 1);
-            nodes[baseNodes.length] = newDestination;
-            endPoint = newDestination.targetType();
+        private Route(Route base, ContentTypeConverter newDestination, int sequence) {
+            this.nodes = Arrays.copyOf(base.nodes, base.nodes.length + 1);
+            this.nodes[base.nodes.length] = newDestination;
+            this.endPoint = newDestination.targetType();
+            this.cost = base.cost + costOf(newDestination);
+            this.sequence = sequence;
         }
 
-        private Route joinedWith(ContentTypeConverter newVertex) {
+        private Route joinedWith(ContentTypeConverter newVertex, int sequence) {
             Assert.isTrue(endPoint.equals(newVertex.expectedSourceType()),
                           "Cannot append a vertex if it does not start where the current Route ends");
-            return new Route(nodes, newVertex);
+            return new Route(this, newVertex, sequence);
         }
 
         private Class<?> endPoint() {
@@ -228,5 +352,16 @@ public class ChainedConverter<S, T> implements ContentTypeConverter<S, T> {
         private List<ContentTypeConverter> asList() {
             return Arrays.asList(nodes);
         }
+
+        @Override
+        public int compareTo(Route other) {
+            if (cost != other.cost) {
+                return cost < other.cost ? -1 : 1;
+            }
+            if (nodes.length != other.nodes.length) {
+                return nodes.length < other.nodes.length ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
     }
 }
@@ -1,8 +1,17 @@
 package org.es4j.serialization.core.axon;
 
+import static java.lang.String.format;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.es4j.serialization.api.axon.SerializedObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,8 +21,23 @@ import org.slf4j.LoggerFactory;
  * from one type to another, for which there is no suitable single converter.
  * <p/>
  * This implementation will also autodetect ContentTypeConverter implementations by scanning
- * <code>/META-INF/services/org.axonframework.serializer.ContentTypeConverter</code> files on the classpath. These
- * files must contain the fully qualified class names of the implementations to use.
+ * <code>/META-INF/services/org.es4j.serialization.core.axon.ContentTypeConverter</code> files on the classpath. These
+ * files must contain the fully qualified class names of the implementations to use. This module registers converters
+ * between <code>byte[]</code>, <code>InputStream</code>, <code>ByteBuffer</code> and <code>String</code> this way.
+ * <p/>
+ * The available converters are published as an immutable snapshot, which is replaced as a whole each time a converter
+ * is registered. Resolved converters are cached per combination of source and target type, including the fact that no
+ * converter is available for a combination. Once a combination has been resolved, looking up its converter does not
+ * require scanning the registered converters or calculating a route again. When {@link
+ * #setPrecompiledRoutes(boolean) precompiled routes} are enabled, the routes between all types known to the
+ * registered converters are calculated up front, each time the snapshot is built.
+ * <p/>
+ * When {@link #setConverterMetrics(ConverterMetrics) converter metrics} are set, each resolved converter is wrapped
+ * once, when it is cached, so that its conversions are recorded per converter and per route.
+ * <p/>
+ * Discovering converters is done once per class loader when using the {@link #sharedInstance() shared instance}.
+ * Components that need converters of their own should register them with an overlay, created using {@link
+ * #ChainingConverterFactory(ChainingConverterFactory)}, rather than with the shared instance itself.
  *
  * @author Allard Buijze
  * @since 2.0
@@ -21,67 +45,116 @@ import org.slf4j.LoggerFactory;
 public class ChainingConverterFactory implements ConverterFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(ChainingConverterFactory.class);
-    private final List<ContentTypeConverter<?, ?>> converters = new CopyOnWriteArrayList<ContentTypeConverter<?, ?>>();
+    private static final Map<ClassLoader, SoftReference<ChainingConverterFactory>> sharedInstances =
+            new WeakHashMap<ClassLoader, SoftReference<ChainingConverterFactory>>();
+    private final List<ContentTypeConverter<?, ?>> converters = new ArrayList<ContentTypeConverter<?, ?>>();
+    private boolean precompiledRoutes;
+    private ConverterMetrics converterMetrics;
+    private final ChainingConverterFactory parent;
+    private volatile ConverterSnapshot parentSnapshot;
+    private volatile ConverterSnapshot snapshot;
 
     /**
      * Initialize a new ChainingConverterFactory. Will autodetect all converters mentioned in
-     * <code>/META-INF/services/org.axonframework.serializer.ContentTypeConverter</code> files on the class path.
+     * <code>/META-INF/services/org.es4j.serialization.core.axon.ContentTypeConverter</code> files on the class path.
      * <p/>
-     * Instances of ChainingConverterFactory are safe for use in a multi-threaded environment, with exception of the
-     * {@link #registerConverter(ContentTypeConverter)} method.
+     * Instances of ChainingConverterFactory are safe for use in a multi-threaded environment. Registering a converter
+     * discards all previously resolved converters, so registration should preferably be done before the factory is
+     * used.
      */
     public ChainingConverterFactory() {
-        ServiceLoader<ContentTypeConverter> converterLoader = ServiceLoader.load(ContentTypeConverter.class);
+        this(ServiceLoader.load(ContentTypeConverter.class));
+    }
+
+    /**
+     * Initialize a new ChainingConverterFactory that detects the converters mentioned in
+     * <code>/META-INF/services/org.es4j.serialization.core.axon.ContentTypeConverter</code> files using the given
+     * <code>classLoader</code>.
+     *
+     * @param classLoader The class loader to detect converters with
+     */
+    public ChainingConverterFactory(ClassLoader classLoader) {
+        this(ServiceLoader.load(ContentTypeConverter.class, classLoader));
+    }
+
+    /**
+     * Initialize a new ChainingConverterFactory that overlays the given <code>parent</code>. No converters are
+     * detected on the class path. Instead, the converters registered with this instance are inspected first, followed
+     * by those of the <code>parent</code>. Converters registered with the <code>parent</code> later on are picked up by
+     * this instance as well.
+     * <p/>
+     * As long as no converters are registered with this instance and no metrics or precompiled routes are configured,
+     * lookups are served by the parent, including its cache of resolved converters.
+     *
+     * @param parent The factory providing the converters not registered with this instance
+     */
+    public ChainingConverterFactory(ChainingConverterFactory parent) {
+        this.parent = parent;
+        this.parentSnapshot = parent.currentSnapshot();
+        this.snapshot = parentSnapshot;
+    }
+
+    private ChainingConverterFactory(ServiceLoader<ContentTypeConverter> converterLoader) {
+        this.parent = null;
         for (ContentTypeConverter converter : converterLoader) {
             converters.add(converter);
         }
+        snapshot = new ConverterSnapshot(converters, false, null);
     }
 
-    @Override
-    public <S, T> boolean hasConverter(Class<S> sourceContentType, Class<T> targetContentType) {
-        if (sourceContentType.equals(targetContentType)) {
-            return true;
+    /**
+     * Returns the ChainingConverterFactory shared by all components using the context class loader of the current
+     * thread, or the class loader of this class if no context class loader is set. Converters are detected only once
+     * per class loader. The shared instance is held softly, so that it does not prevent its class loader from being
+     * garbage collected. It may be detected again when memory runs low and no component refers to it.
+     * <p/>
+     * Converters registered with the shared instance are visible to every component using it. Prefer registering
+     * converters with an {@link #ChainingConverterFactory(ChainingConverterFactory) overlay}.
+     *
+     * @return the ChainingConverterFactory shared by all components using the same class loader
+     */
+    public static ChainingConverterFactory sharedInstance() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = ChainingConverterFactory.class.getClassLoader();
         }
-        for (ContentTypeConverter converter : converters) {
-            if (canConvert(converter, sourceContentType, targetContentType)) {
-                return true;
+        return sharedInstance(classLoader);
+    }
+
+    /**
+     * Returns the ChainingConverterFactory shared by all components using the given <code>classLoader</code>.
+     *
+     * @param classLoader The class loader to detect converters with
+     * @return the ChainingConverterFactory shared by all components using the given class loader
+     * @see #sharedInstance()
+     */
+    public static ChainingConverterFactory sharedInstance(ClassLoader classLoader) {
+        synchronized (sharedInstances) {
+            SoftReference<ChainingConverterFactory> reference = sharedInstances.get(classLoader);
+            ChainingConverterFactory instance = reference == null ? null : reference.get();
+            if (instance == null) {
+                instance = new ChainingConverterFactory(classLoader);
+                sharedInstances.put(classLoader, new SoftReference<ChainingConverterFactory>(instance));
             }
+            return instance;
         }
-        return ChainedConverter.canConvert(sourceContentType, targetContentType, converters);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public <S, T> ContentTypeConverter<S, T> getConverter(Class<S> sourceContentType, Class<T> targetContentType) {
-        if (sourceContentType.equals(targetContentType)) {
-            return new NoConversion(sourceContentType);
-        }
-        for (ContentTypeConverter converter : converters) {
-            if (canConvert(converter, sourceContentType, targetContentType)) {
-                return converter;
-            }
-        }
-        ChainedConverter<S, T> converter = ChainedConverter.calculateChain(sourceContentType, targetContentType,
-                                                                           converters);
-        converters.add(0, converter);
-        return converter;
+    public <S, T> boolean hasConverter(Class<S> sourceContentType, Class<T> targetContentType) {
+        return currentSnapshot().lookup(sourceContentType, targetContentType).converter() != null;
     }
 
-    private <S, T> boolean canConvert(ContentTypeConverter converter, Class<S> sourceContentType,
-                                      Class<T> targetContentType) {
-        try {
-            if (converter.expectedSourceType().isAssignableFrom(sourceContentType)
-                    && targetContentType.isAssignableFrom(converter.targetType())) {
-                return true;
-            }
-            // we do this call to make sure target Type is on the classpath
-            converter.targetType();
-        } catch (NoClassDefFoundError e) {
-            logger.info("ContentTypeConverter [{}] is ignored. It seems to rely on a class that is "
-                                + "not available in the class loader: {}", converter, e.getMessage());
-            converters.remove(converter);
+    @Override
+    public <S, T> ContentTypeConverter<S, T> getConverter(Class<S> sourceContentType, Class<T> targetContentType) {
+        ContentTypeConverter<S, T> converter = currentSnapshot().lookup(sourceContentType, targetContentType)
+                                                                .converter();
+        if (converter == null) {
+            throw new CannotConvertBetweenTypesException(format("Cannot build a converter to convert from %s to %s",
+                                                                sourceContentType.getName(),
+                                                                targetContentType.getName()));
         }
-        return false;
+        return converter;
     }
 
     /**
@@ -89,14 +162,17 @@ public class ChainingConverterFactory implements ConverterFactory {
      * will be inspected <em>first</em> when finding a suitable converter for a given input and output type.
      * <p/>
      * An alternative to explicit converter registration (but without the ordering guarantees) is to creaate a file
-     * called <code>org.axonframework.serializer.ContentTypeConverter</code> in <code>/META-INF/services/</code> on the
-     * class path which contains the fully qualified class names of the converters, separated by newlines. These
+     * called <code>org.es4j.serialization.core.axon.ContentTypeConverter</code> in <code>/META-INF/services/</code> on
+     * the class path which contains the fully qualified class names of the converters, separated by newlines. These
      * implementations must have a public no-arg constructor.
      *
      * @param converter the converter to register.
      */
     public void registerConverter(ContentTypeConverter converter) {
-        converters.add(0, converter);
+        synchronized (converters) {
+            converters.add(0, converter);
+            rebuildSnapshot();
+        }
     }
 
     /**
@@ -109,8 +185,8 @@ public class ChainingConverterFactory implements ConverterFactory {
      * converter for a given input and output type.
      * <p/>
      * An alternative to explicit converter registration (but without the ordering guarantees) is to creaate a file
-     * called <code>org.axonframework.serializer.ContentTypeConverter</code> in <code>/META-INF/services/</code> on the
-     * class path which contains the fully qualified class names of the converters, separated by newlines. These
+     * called <code>org.es4j.serialization.core.axon.ContentTypeConverter</code> in <code>/META-INF/services/</code> on
+     * the class path which contains the fully qualified class names of the converters, separated by newlines. These
      * implementations must have a public no-arg constructor.
      *
      * @param converterType the type of converter to register.
@@ -137,8 +213,240 @@ public class ChainingConverterFactory implements ConverterFactory {
      * @param additionalConverters The converters to register with this factory
      */
     public void setAdditionalConverters(List<ContentTypeConverter> additionalConverters) {
-        for (ContentTypeConverter converter : additionalConverters) {
-            registerConverter(converter);
+        synchronized (converters) {
+            for (ContentTypeConverter converter : additionalConverters) {
+                converters.add(0, converter);
+            }
+            rebuildSnapshot();
+        }
+    }
+
+    /**
+     * Indicates whether the routes between all types known to the registered converters should be calculated each
+     * time the set of converters changes, instead of on first use. With precompiled routes, lookups for known types
+     * never calculate a route, at the expense of calculating routes that may never be used. Lookups for types that are
+     * not known to any converter (such as subclasses of a converter's source type) are still resolved on first use.
+     * <p/>
+     * Defaults to <code>false</code>.
+     *
+     * @param precompiledRoutes whether to calculate all routes up front
+     */
+    public void setPrecompiledRoutes(boolean precompiledRoutes) {
+        synchronized (converters) {
+            this.precompiledRoutes = precompiledRoutes;
+            rebuildSnapshot();
+        }
+    }
+
+    /**
+     * Sets the metrics to record the conversions of the converters returned by this factory with. Converters that were
+     * returned before are not instrumented. Use <code>null</code> to disable recording, which is the default.
+     *
+     * @param converterMetrics the metrics to record conversions with, or <code>null</code>
+     */
+    public void setConverterMetrics(ConverterMetrics converterMetrics) {
+        synchronized (converters) {
+            this.converterMetrics = converterMetrics;
+            rebuildSnapshot();
+        }
+    }
+
+    /**
+     * Returns the metrics this factory records conversions with, or <code>null</code> if recording is disabled.
+     *
+     * @return the metrics this factory records conversions with
+     */
+    public ConverterMetrics getConverterMetrics() {
+        return converterMetrics;
+    }
+
+    /**
+     * Returns the snapshot to serve lookups from. For overlays, the snapshot is rebuilt first if the parent's
+     * converters have changed since it was built.
+     */
+    private ConverterSnapshot currentSnapshot() {
+        if (parent != null && parentSnapshot != parent.currentSnapshot()) {
+            synchronized (converters) {
+                rebuildSnapshot();
+            }
+        }
+        return snapshot;
+    }
+
+    private void rebuildSnapshot() {
+        if (parent == null) {
+            snapshot = new ConverterSnapshot(converters, precompiledRoutes, converterMetrics);
+            return;
+        }
+        ConverterSnapshot currentParentSnapshot = parent.currentSnapshot();
+        if (converters.isEmpty() && converterMetrics == null && !precompiledRoutes) {
+            snapshot = currentParentSnapshot;
+        } else {
+            List<ContentTypeConverter<?, ?>> candidates = new ArrayList<ContentTypeConverter<?, ?>>(converters);
+            candidates.addAll(currentParentSnapshot.converters);
+            snapshot = new ConverterSnapshot(candidates, precompiledRoutes, converterMetrics);
+        }
+        parentSnapshot = currentParentSnapshot;
+    }
+
+    private static <S, T> boolean canConvert(ContentTypeConverter converter, Class<S> sourceContentType,
+                                             Class<T> targetContentType) {
+        return converter.expectedSourceType().isAssignableFrom(sourceContentType)
+                && targetContentType.isAssignableFrom(converter.targetType());
+    }
+
+    /**
+     * Immutable view on the converters registered at a certain moment, including the converters resolved for them.
+     * Converters relying on classes that are not available in the class loader are left out when the snapshot is
+     * created.
+     */
+    private static final class ConverterSnapshot {
+
+        private final List<ContentTypeConverter<?, ?>> converters;
+        private final ConverterMetrics metrics;
+        private final ConverterCache cache = new ConverterCache(this);
+
+        private ConverterSnapshot(List<ContentTypeConverter<?, ?>> candidates, boolean precompileRoutes,
+                                  ConverterMetrics metrics) {
+            this.metrics = metrics;
+            List<ContentTypeConverter<?, ?>> available = new ArrayList<ContentTypeConverter<?, ?>>(candidates.size());
+            for (ContentTypeConverter<?, ?> candidate : candidates) {
+                if (isAvailable(candidate)) {
+                    available.add(candidate);
+                }
+            }
+            this.converters = Collections.unmodifiableList(available);
+            if (precompileRoutes) {
+                precompileRoutes();
+            }
+        }
+
+        private static boolean isAvailable(ContentTypeConverter<?, ?> converter) {
+            try {
+                converter.expectedSourceType();
+                converter.targetType();
+                return true;
+            } catch (NoClassDefFoundError e) {
+                logger.info("ContentTypeConverter [{}] is ignored. It seems to rely on a class that is "
+                                    + "not available in the class loader: {}", converter, e.getMessage());
+                return false;
+            }
+        }
+
+        private void precompileRoutes() {
+            Set<Class<?>> knownTypes = new LinkedHashSet<Class<?>>();
+            for (ContentTypeConverter<?, ?> converter : converters) {
+                knownTypes.add(converter.expectedSourceType());
+                knownTypes.add(converter.targetType());
+            }
+            for (Class<?> sourceType : knownTypes) {
+                for (Class<?> targetType : knownTypes) {
+                    lookup(sourceType, targetType).converter();
+                }
+            }
+        }
+
+        private CacheEntry lookup(Class<?> sourceType, Class<?> targetType) {
+            return cache.lookup(sourceType, targetType);
+        }
+
+        /**
+         * Finds a converter for the given types, without consulting the cache, and instruments it if metrics are
+         * enabled. Returns <code>null</code> if no converter (or chain of converters) is available.
+         */
+        private ContentTypeConverter<?, ?> createConverter(Class<?> sourceContentType, Class<?> targetContentType) {
+            ContentTypeConverter<?, ?> converter = resolveConverter(sourceContentType, targetContentType);
+            if (metrics == null || converter == null || converter instanceof NoConversion) {
+                return converter;
+            }
+            return metrics.instrument(converter, sourceContentType, targetContentType);
+        }
+
+        @SuppressWarnings("unchecked")
+        private ContentTypeConverter<?, ?> resolveConverter(Class<?> sourceContentType, Class<?> targetContentType) {
+            if (sourceContentType.equals(targetContentType)) {
+                return new NoConversion(sourceContentType);
+            }
+            for (ContentTypeConverter converter : converters) {
+                if (canConvert(converter, sourceContentType, targetContentType)) {
+                    return converter;
+                }
+            }
+            try {
+                return ChainedConverter.calculateChain(sourceContentType, targetContentType, converters);
+            } catch (CannotConvertBetweenTypesException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Cache of resolved converters. The first level is keyed on the source type, the second on the target type. Each
+     * snapshot has its own instance, which is discarded together with the snapshot. Unlike a ClassValue, which stores
+     * its values in the source classes themselves, this keeps the snapshot and its converters collectable once the
+     * snapshot has been replaced.
+     */
+    private static final class ConverterCache {
+
+        private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, CacheEntry>> entriesBySource =
+                new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, CacheEntry>>();
+        private final ConverterSnapshot snapshot;
+
+        private ConverterCache(ConverterSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        private CacheEntry lookup(Class<?> sourceType, Class<?> targetType) {
+            ConcurrentMap<Class<?>, CacheEntry> entries = entriesBySource.get(sourceType);
+            if (entries == null) {
+                ConcurrentMap<Class<?>, CacheEntry> newEntries = new ConcurrentHashMap<Class<?>, CacheEntry>();
+                entries = entriesBySource.putIfAbsent(sourceType, newEntries);
+                if (entries == null) {
+                    entries = newEntries;
+                }
+            }
+            CacheEntry entry = entries.get(targetType);
+            if (entry == null) {
+                CacheEntry newEntry = new CacheEntry(snapshot, sourceType, targetType);
+                entry = entries.putIfAbsent(targetType, newEntry);
+                if (entry == null) {
+                    entry = newEntry;
+                }
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Holds the resolution result for a single combination of source and target type. Threads that look up an
+     * unresolved entry at the same time will wait for a single resolution to complete. A <code>null</code> converter
+     * indicates that no conversion is possible.
+     */
+    private static final class CacheEntry {
+
+        private final ConverterSnapshot snapshot;
+        private final Class<?> sourceType;
+        private final Class<?> targetType;
+        private volatile boolean resolved;
+        private ContentTypeConverter converter;
+
+        private CacheEntry(ConverterSnapshot snapshot, Class<?> sourceType, Class<?> targetType) {
+            this.snapshot = snapshot;
+            this.sourceType = sourceType;
+            this.targetType = targetType;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <S, T> ContentTypeConverter<S, T> converter() {
+            if (!resolved) {
+                synchronized (this) {
+                    if (!resolved) {
+                        converter = snapshot.createConverter(sourceType, targetType);
+                        resolved = true;
+                    }
+                }
+            }
+            return converter;
         }
     }
 
@@ -0,0 +1,90 @@
+package org.es4j.serialization.core.axon;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the statistics of a single converter or route. Counters are striped, so that recording from many
+ * threads at once does not cause contention.
+ *
+ * @since 2.0
+ */
+class ConversionRecorder {
+
+    static final long[] LATENCY_BUCKET_BOUNDS_MICROS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 50000, 100000
+    };
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder totalTimeNanos = new LongAdder();
+    private final AtomicLong maxTimeNanos = new AtomicLong();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder outputBytes = new LongAdder();
+    private final LongAdder[] latencyHistogram = new LongAdder[LATENCY_BUCKET_BOUNDS_MICROS.length + 1];
+
+    ConversionRecorder(String name) {
+        this.name = name;
+        for (int i = 0; i < latencyHistogram.length; i++) {
+            latencyHistogram[i] = new LongAdder();
+        }
+    }
+
+    void record(long durationNanos, long inputSize, long outputSize, boolean failed) {
+        count.increment();
+        if (failed) {
+            failureCount.increment();
+        }
+        totalTimeNanos.add(durationNanos);
+        long currentMax = maxTimeNanos.get();
+        while (durationNanos > currentMax && !maxTimeNanos.compareAndSet(currentMax, durationNanos)) {
+            currentMax = maxTimeNanos.get();
+        }
+        if (inputSize > 0) {
+            inputBytes.add(inputSize);
+        }
+        if (outputSize > 0) {
+            outputBytes.add(outputSize);
+        }
+        latencyHistogram[bucketOf(durationNanos / 1000)].increment();
+    }
+
+    private static int bucketOf(long durationMicros) {
+        for (int i = 0; i < LATENCY_BUCKET_BOUNDS_MICROS.length; i++) {
+            if (durationMicros <= LATENCY_BUCKET_BOUNDS_MICROS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BUCKET_BOUNDS_MICROS.length;
+    }
+
+    /**
+     * Discards the statistics recorded so far. Conversions recorded while resetting may be partially discarded.
+     */
+    void reset() {
+        count.reset();
+        failureCount.reset();
+        totalTimeNanos.reset();
+        maxTimeNanos.set(0);
+        inputBytes.reset();
+        outputBytes.reset();
+        for (LongAdder bucket : latencyHistogram) {
+            bucket.reset();
+        }
+    }
+
+    boolean isEmpty() {
+        return count.sum() == 0;
+    }
+
+    ConversionStatistics snapshot() {
+        long[] histogram = new long[latencyHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencyHistogram[i].sum();
+        }
+        return new ConversionStatistics(name, count.sum(), failureCount.sum(), totalTimeNanos.sum(),
+                                        maxTimeNanos.get(), inputBytes.sum(), outputBytes.sum(),
+                                        LATENCY_BUCKET_BOUNDS_MICROS, histogram);
+    }
+}
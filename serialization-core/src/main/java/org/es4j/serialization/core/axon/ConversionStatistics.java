@@ -0,0 +1,151 @@
+package org.es4j.serialization.core.axon;
+
+import static java.lang.String.format;
+import java.util.Arrays;
+
+/**
+ * Snapshot of the statistics gathered for a single converter or route by {@link ConverterMetrics}. Latencies are kept
+ * in a histogram with fixed bucket bounds, expressed in microseconds by {@link #getLatencyBucketBounds()}. The last
+ * bucket counts all conversions that took longer than the last bound.
+ * <p/>
+ * Byte counts only include data of which the size is known without reading it, such as <code>byte[]</code>,
+ * <code>ByteBuffer</code> and <code>String</code> (counted by the size of its UTF-8 encoding).
+ *
+ * @since 2.0
+ */
+public class ConversionStatistics {
+
+    private final String name;
+    private final long count;
+    private final long failureCount;
+    private final long totalTimeNanos;
+    private final long maxTimeNanos;
+    private final long inputBytes;
+    private final long outputBytes;
+    private final long[] latencyBucketBounds;
+    private final long[] latencyHistogram;
+
+    /**
+     * Initializes a snapshot with the given values.
+     *
+     * @param name                The name of the converter or route
+     * @param count               The number of conversions
+     * @param failureCount        The number of conversions that threw an exception
+     * @param totalTimeNanos      The total time spent converting, in nanoseconds
+     * @param maxTimeNanos        The longest time spent on a single conversion, in nanoseconds
+     * @param inputBytes          The number of bytes offered for conversion
+     * @param outputBytes         The number of bytes produced by conversion
+     * @param latencyBucketBounds The upper bounds of the latency buckets, in microseconds
+     * @param latencyHistogram    The number of conversions per latency bucket
+     */
+    public ConversionStatistics(String name, long count, long failureCount, long totalTimeNanos, long maxTimeNanos,
+                                long inputBytes, long outputBytes, long[] latencyBucketBounds,
+                                long[] latencyHistogram) {
+        this.name = name;
+        this.count = count;
+        this.failureCount = failureCount;
+        this.totalTimeNanos = totalTimeNanos;
+        this.maxTimeNanos = maxTimeNanos;
+        this.inputBytes = inputBytes;
+        this.outputBytes = outputBytes;
+        this.latencyBucketBounds = latencyBucketBounds.clone();
+        this.latencyHistogram = latencyHistogram.clone();
+    }
+
+    /**
+     * Returns the name of the converter or route these statistics apply to.
+     *
+     * @return the name of the converter or route
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of conversions, including failed ones.
+     *
+     * @return the number of conversions
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of conversions that threw an exception.
+     *
+     * @return the number of failed conversions
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Returns the total time spent converting, in nanoseconds.
+     *
+     * @return the total time spent converting
+     */
+    public long getTotalTimeNanos() {
+        return totalTimeNanos;
+    }
+
+    /**
+     * Returns the average time spent on a conversion, in nanoseconds, or <code>0</code> if no conversions took place.
+     *
+     * @return the average time spent on a conversion
+     */
+    public long getAverageTimeNanos() {
+        return count == 0 ? 0 : totalTimeNanos / count;
+    }
+
+    /**
+     * Returns the longest time spent on a single conversion, in nanoseconds.
+     *
+     * @return the longest time spent on a single conversion
+     */
+    public long getMaxTimeNanos() {
+        return maxTimeNanos;
+    }
+
+    /**
+     * Returns the number of bytes offered for conversion.
+     *
+     * @return the number of bytes offered for conversion
+     */
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    /**
+     * Returns the number of bytes produced by conversion.
+     *
+     * @return the number of bytes produced by conversion
+     */
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    /**
+     * Returns the upper bounds of the latency buckets, in microseconds.
+     *
+     * @return the upper bounds of the latency buckets
+     */
+    public long[] getLatencyBucketBounds() {
+        return latencyBucketBounds.clone();
+    }
+
+    /**
+     * Returns the number of conversions per latency bucket. This array contains one element more than {@link
+     * #getLatencyBucketBounds()}, for conversions exceeding the last bound.
+     *
+     * @return the number of conversions per latency bucket
+     */
+    public long[] getLatencyHistogram() {
+        return latencyHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return format("ConversionStatistics [%s] count=%s, failures=%s, avg=%sns, max=%sns, histogram=%s", name, count,
+                      failureCount, getAverageTimeNanos(), maxTimeNanos, Arrays.toString(latencyHistogram));
+    }
+}
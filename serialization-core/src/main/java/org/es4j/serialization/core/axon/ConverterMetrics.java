@@ -0,0 +1,130 @@
+package org.es4j.serialization.core.axon;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.es4j.serialization.api.axon.SerializationException;
+
+/**
+ * Collects statistics about the conversions done by the converters of a {@link ChainingConverterFactory}. Statistics
+ * are kept per converter (a chain of converters counts as one) and per route, being the combination of source and
+ * target type a converter was requested for.
+ * <p/>
+ * Recording a conversion only updates striped counters and a histogram with fixed bucket bounds, so that metrics can
+ * be left enabled in production. Statistics can be obtained programmatically through {@link #getConverterStatistics()}
+ * and {@link #getRouteStatistics()}, or over JMX after {@link #registerMBean(String) registering} this instance.
+ * Only converters and routes that have been used since the last {@link #reset()} are reported.
+ *
+ * @since 2.0
+ */
+public class ConverterMetrics implements ConverterMetricsMXBean {
+
+    private static final Comparator<ConversionStatistics> BY_NAME = new Comparator<ConversionStatistics>() {
+        @Override
+        public int compare(ConversionStatistics o1, ConversionStatistics o2) {
+            return o1.getName().compareTo(o2.getName());
+        }
+    };
+
+    private final ConcurrentMap<String, ConversionRecorder> converterRecorders =
+            new ConcurrentHashMap<String, ConversionRecorder>();
+    private final ConcurrentMap<String, ConversionRecorder> routeRecorders =
+            new ConcurrentHashMap<String, ConversionRecorder>();
+
+    @Override
+    public List<ConversionStatistics> getConverterStatistics() {
+        return snapshot(converterRecorders);
+    }
+
+    @Override
+    public List<ConversionStatistics> getRouteStatistics() {
+        return snapshot(routeRecorders);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The recorders of converters and routes are reset rather than discarded, as the converters instrumented by a
+     * factory keep recording with them. Converters and routes are reported again as soon as they are used.
+     */
+    @Override
+    public void reset() {
+        reset(converterRecorders);
+        reset(routeRecorders);
+    }
+
+    private static void reset(ConcurrentMap<String, ConversionRecorder> recorders) {
+        for (ConversionRecorder recorder : recorders.values()) {
+            recorder.reset();
+        }
+    }
+
+    /**
+     * Registers this instance with the platform MBean server under the given <code>objectName</code>, such as
+     * <code>org.es4j.serialization:type=ConverterMetrics</code>.
+     *
+     * @param objectName The name to register this instance under
+     * @throws SerializationException when the name is invalid or registration fails
+     */
+    public void registerMBean(String objectName) {
+        registerMBean(ManagementFactory.getPlatformMBeanServer(), objectName);
+    }
+
+    /**
+     * Registers this instance with the given <code>mBeanServer</code> under the given <code>objectName</code>.
+     *
+     * @param mBeanServer The server to register this instance with
+     * @param objectName  The name to register this instance under
+     * @throws SerializationException when the name is invalid or registration fails
+     */
+    public void registerMBean(MBeanServer mBeanServer, String objectName) {
+        try {
+            mBeanServer.registerMBean(this, new ObjectName(objectName));
+        } catch (JMException e) {
+            throw new SerializationException("Unable to register converter metrics as " + objectName, e);
+        }
+    }
+
+    /**
+     * Wraps the given <code>converter</code> so that its conversions are recorded, both for the converter and for the
+     * route from <code>sourceType</code> to <code>targetType</code>.
+     */
+    <S, T> ContentTypeConverter<S, T> instrument(ContentTypeConverter<S, T> converter, Class<?> sourceType,
+                                                 Class<?> targetType) {
+        String converterName = converter instanceof ChainedConverter
+                ? converter.toString() : converter.getClass().getName();
+        String routeName = sourceType.getName() + " -> " + targetType.getName();
+        return new InstrumentedConverter<S, T>(converter, recorder(converterRecorders, converterName),
+                                               recorder(routeRecorders, routeName));
+    }
+
+    private static ConversionRecorder recorder(ConcurrentMap<String, ConversionRecorder> recorders, String name) {
+        ConversionRecorder recorder = recorders.get(name);
+        if (recorder == null) {
+            ConversionRecorder newRecorder = new ConversionRecorder(name);
+            recorder = recorders.putIfAbsent(name, newRecorder);
+            if (recorder == null) {
+                recorder = newRecorder;
+            }
+        }
+        return recorder;
+    }
+
+    private static List<ConversionStatistics> snapshot(ConcurrentMap<String, ConversionRecorder> recorders) {
+        List<ConversionStatistics> statistics = new ArrayList<ConversionStatistics>(recorders.size());
+        for (ConversionRecorder recorder : recorders.values()) {
+            if (!recorder.isEmpty()) {
+                statistics.add(recorder.snapshot());
+            }
+        }
+        Collections.sort(statistics, BY_NAME);
+        return statistics;
+    }
+}
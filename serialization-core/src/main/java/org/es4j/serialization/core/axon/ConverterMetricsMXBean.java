@@ -0,0 +1,31 @@
+package org.es4j.serialization.core.axon;
+
+import java.util.List;
+
+/**
+ * Management interface exposing the statistics gathered by {@link ConverterMetrics}.
+ *
+ * @since 2.0
+ */
+public interface ConverterMetricsMXBean {
+
+    /**
+     * Returns the statistics per converter. Chains of converters are reported as a single converter, named after the
+     * route they take.
+     *
+     * @return the statistics per converter
+     */
+    List<ConversionStatistics> getConverterStatistics();
+
+    /**
+     * Returns the statistics per requested combination of source and target type.
+     *
+     * @return the statistics per route
+     */
+    List<ConversionStatistics> getRouteStatistics();
+
+    /**
+     * Discards all statistics gathered so far.
+     */
+    void reset();
+}
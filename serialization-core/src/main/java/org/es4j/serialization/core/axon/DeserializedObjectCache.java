@@ -0,0 +1,277 @@
+package org.es4j.serialization.core.axon;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.es4j.serialization.api.axon.SerializedObject;
+
+/**
+ * Cache of deserialized objects, shared by {@link LazyDeserializingObject} instances to limit the amount of memory
+ * held by deserialized objects. The serialized object remains the source of truth: an object that has been evicted
+ * from the cache is deserialized again when it is requested the next time.
+ * <p/>
+ * The cache is bounded by the total weight of its entries, where the weight of an entry is the size of its serialized
+ * form in bytes. This makes the limit roughly proportional to the memory used by the deserialized objects, whatever
+ * their size. The cache is divided in segments, each with its own lock, so that threads using different objects rarely
+ * contend. The maximum weight applies to the cache as a whole: when it is exceeded, the least recently used entries of
+ * all segments are evicted until the cache fits again. Any object that weighs no more than the maximum weight is
+ * cached, if need be by evicting all others.
+ * <p/>
+ * This class is thread safe.
+ *
+ * @see LazyDeserializingObject#LazyDeserializingObject(SerializedObject, org.es4j.serialization.api.axon.Serializer,
+ *      DeserializedObjectCache)
+ * @since 2.0
+ */
+public class DeserializedObjectCache {
+
+    private static final int DEFAULT_SEGMENT_COUNT = 16;
+    private static final int DEFAULT_WEIGHT = 1024;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final long maximumWeight;
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong accessClock = new AtomicLong();
+
+    /**
+     * Initializes a cache with the given <code>maximumWeight</code>, divided in 16 segments.
+     *
+     * @param maximumWeight The maximum total size, in bytes, of the serialized form of the cached objects
+     */
+    public DeserializedObjectCache(long maximumWeight) {
+        this(maximumWeight, DEFAULT_SEGMENT_COUNT);
+    }
+
+    /**
+     * Initializes a cache with the given <code>maximumWeight</code>, divided in the given number of
+     * <code>segments</code>. The number of segments is rounded up to a power of two.
+     *
+     * @param maximumWeight The maximum total size, in bytes, of the serialized form of the cached objects
+     * @param segments      The number of segments to divide the cache in
+     */
+    public DeserializedObjectCache(long maximumWeight, int segments) {
+        Assert.isTrue(maximumWeight > 0, "The maximum weight must be positive");
+        Assert.isTrue(segments > 0, "The number of segments must be positive");
+        int segmentCount = Integer.highestOneBit(segments);
+        if (segmentCount < segments) {
+            segmentCount <<= 1;
+        }
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        this.maximumWeight = maximumWeight;
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment(accessClock);
+        }
+    }
+
+    /**
+     * Returns the cached value for the given <code>key</code>, or <code>null</code> if it is not cached. Callers
+     * needing to cache <code>null</code> must use a placeholder value instead.
+     */
+    Object get(Object key) {
+        return segmentFor(key).get(key);
+    }
+
+    /**
+     * Indicates whether a value is cached for the given <code>key</code>, without marking it as recently used.
+     */
+    boolean containsKey(Object key) {
+        return segmentFor(key).containsKey(key);
+    }
+
+    /**
+     * Caches the given <code>value</code> under the given <code>key</code>, with the given <code>weight</code>, and
+     * evicts the least recently used entries if the maximum weight is exceeded as a result. Values heavier than the
+     * maximum weight are not cached.
+     */
+    void put(Object key, Object value, long entryWeight) {
+        long addedWeight = segmentFor(key).put(key, value, entryWeight <= maximumWeight ? entryWeight : -1);
+        if (weight.addAndGet(addedWeight) > maximumWeight) {
+            evictWhileOverweight();
+        }
+    }
+
+    /**
+     * Evicts the entry that was used least recently of all segments, until the cache fits its maximum weight. Only one
+     * segment is locked at a time.
+     */
+    private void evictWhileOverweight() {
+        while (weight.get() > maximumWeight) {
+            Segment oldest = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Segment segment : segments) {
+                Long lastAccess = segment.oldestAccess();
+                if (lastAccess != null && lastAccess < oldestAccess) {
+                    oldest = segment;
+                    oldestAccess = lastAccess;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            long evictedWeight = oldest.evictOldest();
+            if (evictedWeight >= 0) {
+                weight.addAndGet(-evictedWeight);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from this cache.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            weight.addAndGet(-segment.clear());
+        }
+    }
+
+    /**
+     * Returns the number of objects currently in this cache.
+     *
+     * @return the number of objects currently in this cache
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the total weight of the objects currently in this cache.
+     *
+     * @return the total weight of the objects currently in this cache
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    /**
+     * Returns the number of objects that have been evicted from this cache to stay within its maximum weight.
+     *
+     * @return the number of objects evicted from this cache
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the weight of an object with the given serialized form: the size of the data in bytes. For data of a
+     * type of which the size is unknown, a default weight of 1024 is used.
+     */
+    static long weightOf(SerializedObject<?> serializedObject) {
+        Object data = serializedObject.getData();
+        if (data instanceof byte[]) {
+            return ((byte[]) data).length;
+        } else if (data instanceof String) {
+            return ((String) data).length() * 2L;
+        } else if (data instanceof ByteBuffer) {
+            return ((ByteBuffer) data).remaining();
+        }
+        return DEFAULT_WEIGHT;
+    }
+
+    private Segment segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & segmentMask];
+    }
+
+    /**
+     * Part of the cache, containing its entries in order of access. The weight of the entries is accounted for by the
+     * cache.
+     */
+    private static final class Segment {
+
+        private final Map<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+        private final AtomicLong accessClock;
+
+        private Segment(AtomicLong accessClock) {
+            this.accessClock = accessClock;
+        }
+
+        private synchronized Object get(Object key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            entry.lastAccess = accessClock.incrementAndGet();
+            return entry.value;
+        }
+
+        private synchronized boolean containsKey(Object key) {
+            return entries.containsKey(key);
+        }
+
+        /**
+         * Replaces the entry for the given key, and returns the change in weight. A negative <code>entryWeight</code>
+         * only removes the current entry.
+         */
+        private synchronized long put(Object key, Object value, long entryWeight) {
+            Entry previous = entries.remove(key);
+            long addedWeight = previous == null ? 0 : -previous.weight;
+            if (entryWeight >= 0) {
+                entries.put(key, new Entry(value, entryWeight, accessClock.incrementAndGet()));
+                addedWeight += entryWeight;
+            }
+            return addedWeight;
+        }
+
+        /**
+         * Returns the access clock value of the least recently used entry, or <code>null</code> if this segment is
+         * empty.
+         */
+        private synchronized Long oldestAccess() {
+            Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+            return leastRecentlyUsed.hasNext() ? leastRecentlyUsed.next().lastAccess : null;
+        }
+
+        /**
+         * Removes the least recently used entry, and returns its weight, or <code>-1</code> if this segment is empty.
+         */
+        private synchronized long evictOldest() {
+            Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+            if (!leastRecentlyUsed.hasNext()) {
+                return -1;
+            }
+            long evictedWeight = leastRecentlyUsed.next().weight;
+            leastRecentlyUsed.remove();
+            return evictedWeight;
+        }
+
+        /**
+         * Removes all entries, and returns their total weight.
+         */
+        private synchronized long clear() {
+            long clearedWeight = 0;
+            for (Entry entry : entries.values()) {
+                clearedWeight += entry.weight;
+            }
+            entries.clear();
+            return clearedWeight;
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long weight;
+        private long lastAccess;
+
+        private Entry(Object value, long weight, long lastAccess) {
+            this.value = value;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
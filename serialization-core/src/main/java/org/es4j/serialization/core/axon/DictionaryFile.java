@@ -0,0 +1,162 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File containing the entries of a dictionary used by a serializer, such as the class descriptors of the
+ * <code>JavaSerializer</code> or the package aliases of the XStream serializers. Entries are only ever appended, and
+ * are identified by their position in the file.
+ * <p/>
+ * The file starts with a header of a magic number identifying the kind of dictionary, followed by the version of the
+ * file format. The entries follow, each prefixed with its length. An incomplete entry at the end of the file, left by
+ * a process that stopped while writing it, is removed when the file is read.
+ * <p/>
+ * The file must not be written to by other instances, in this or any other process, while this instance is in use.
+ * This class is meant for the dictionaries of serializer modules, and is not part of the serialization API.
+ *
+ * @since 2.0
+ */
+public final class DictionaryFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryFile.class);
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private final File file;
+    private final int magic;
+    private final String description;
+
+    /**
+     * Initializes an instance for the given <code>file</code>, which is identified by the given <code>magic</code>
+     * number.
+     *
+     * @param file        The file containing the dictionary
+     * @param magic       The number identifying the kind of dictionary
+     * @param description The description of the kind of dictionary, used in messages, such as "alias dictionary"
+     */
+    public DictionaryFile(File file, int magic, String description) {
+        Assert.notNull(file, "The given file may not be null");
+        this.file = file;
+        this.magic = magic;
+        this.description = description;
+    }
+
+    /**
+     * Reads the entries in the file, ordered by their position. If the file does not exist or is empty, it is
+     * initialized with a header. An incomplete entry at the end of the file is removed.
+     *
+     * @return the entries in the file
+     *
+     * @throws SerializationException if the file cannot be read or created, does not contain a dictionary of the
+     *                                expected kind and version, or contains an entry with an invalid length
+     */
+    public List<byte[]> readEntries() {
+        List<byte[]> entries = new ArrayList<byte[]>();
+        try {
+            if (!file.exists() || file.length() == 0) {
+                writeHeader();
+                return entries;
+            }
+            if (file.length() < HEADER_SIZE) {
+                throw new SerializationException("File " + file + " is not a valid " + description);
+            }
+            long validLength = HEADER_SIZE;
+            boolean incomplete = false;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != magic) {
+                    throw new SerializationException("File " + file + " is not a valid " + description);
+                }
+                int version = in.readInt();
+                if (version != FORMAT_VERSION) {
+                    throw new SerializationException("The " + description + " in " + file
+                                                             + " has unsupported format version " + version);
+                }
+                long fileLength = file.length();
+                while (validLength < fileLength) {
+                    int entryLength = in.readInt();
+                    if (entryLength < 0) {
+                        throw new SerializationException("The " + description + " in " + file
+                                                                 + " contains an entry of invalid length "
+                                                                 + entryLength + " at offset " + validLength);
+                    }
+                    if (entryLength > fileLength - validLength - 4) {
+                        // the rest of the entry was never written
+                        throw new EOFException();
+                    }
+                    byte[] entry = new byte[entryLength];
+                    in.readFully(entry);
+                    entries.add(entry);
+                    validLength += 4 + entry.length;
+                }
+            } catch (EOFException e) {
+                incomplete = true;
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+            if (incomplete) {
+                logger.warn("Removing incomplete entry at the end of {} {}", description, file);
+                truncate(validLength);
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Unable to read " + description + " " + file, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Appends the given <code>entry</code> to the file. The entry is forced to the storage device before this method
+     * returns, so that it survives a crash of the operating system. Serialized data may refer to the entry as soon as
+     * it has been added, and would be unreadable if the entry were lost.
+     *
+     * @param entry The entry to append
+     * @throws IOException if the entry could not be written
+     */
+    public void append(byte[] entry) throws IOException {
+        FileOutputStream fileOutputStream = new FileOutputStream(file, true);
+        try {
+            DataOutputStream out = new DataOutputStream(fileOutputStream);
+            out.writeInt(entry.length);
+            out.write(entry);
+            out.flush();
+            fileOutputStream.getFD().sync();
+        } finally {
+            fileOutputStream.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        FileOutputStream fileOutputStream = new FileOutputStream(file);
+        try {
+            DataOutputStream out = new DataOutputStream(fileOutputStream);
+            out.writeInt(magic);
+            out.writeInt(FORMAT_VERSION);
+            out.flush();
+            fileOutputStream.getFD().sync();
+        } finally {
+            fileOutputStream.close();
+        }
+    }
+
+    private void truncate(long length) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * ContentTypeConverter that converts an InputStream to a byte[]. The stream is read until its end, but it is not
+ * closed.
+ *
+ * @since 2.0
+ */
+public class InputStreamToByteArrayConverter extends AbstractContentTypeConverter<InputStream, byte[]>
+        implements WeightedContentTypeConverter<InputStream, byte[]> {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    @Override
+    public Class<InputStream> expectedSourceType() {
+        return InputStream.class;
+    }
+
+    @Override
+    public Class<byte[]> targetType() {
+        return byte[].class;
+    }
+
+    @Override
+    public int conversionCost() {
+        return DEFAULT_COST;
+    }
+
+    @Override
+    public byte[] convert(InputStream original) {
+        try {
+            ReusableByteArrayOutputStream buffer = new ReusableByteArrayOutputStream(
+                    Math.max(original.available(), BUFFER_SIZE));
+            byte[] chunk = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = original.read(chunk)) != -1) {
+                buffer.write(chunk, 0, read);
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new CannotConvertBetweenTypesException("Unable to convert InputStream to byte[]. "
+                                                                 + "Error while reading from Stream.", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.es4j.serialization.core.axon;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import org.es4j.serialization.api.axon.SerializationException;
+
+/**
+ * Utility methods to create instances of a class without invoking any of its constructors or field initializers, the
+ * way Java serialization does. This relies on <code>sun.reflect.ReflectionFactory</code>, which is provided by the
+ * <code>jdk.unsupported</code> module of most Java runtimes, but is not part of the Java platform. It is looked up
+ * reflectively, so that runtimes without it fail with a clear message when instantiation is attempted, rather than
+ * when a class refers to it.
+ *
+ * @since 2.0
+ */
+public final class Instantiators {
+
+    private static final String REFLECTION_FACTORY = "sun.reflect.ReflectionFactory";
+
+    private static final Object reflectionFactory;
+    private static final Method newConstructorForSerialization;
+    private static final Throwable unavailabilityCause;
+
+    static {
+        Object factory = null;
+        Method method = null;
+        Throwable cause = null;
+        try {
+            Class<?> factoryClass = Class.forName(REFLECTION_FACTORY);
+            factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+            method = factoryClass.getMethod("newConstructorForSerialization", Class.class, Constructor.class);
+        } catch (Exception e) {
+            cause = e;
+        } catch (LinkageError e) {
+            cause = e;
+        }
+        reflectionFactory = factory;
+        newConstructorForSerialization = method;
+        unavailabilityCause = cause;
+    }
+
+    private Instantiators() {
+    }
+
+    /**
+     * Indicates whether this Java runtime is able to create instances without invoking their constructors.
+     *
+     * @return <code>true</code> if {@link #constructorlessConstructor(Class)} is supported, otherwise
+     *         <code>false</code>
+     */
+    public static boolean isConstructorlessInstantiationSupported() {
+        return newConstructorForSerialization != null;
+    }
+
+    /**
+     * Returns a constructor that creates instances of the given <code>type</code> without invoking any of the
+     * constructors declared by the type or its superclasses, other than that of <code>Object</code>.
+     *
+     * @param type The concrete type to create instances of
+     * @param <T>  The type to create instances of
+     * @return a constructor creating instances of the given <code>type</code>
+     *
+     * @throws IllegalArgumentException if the given type is an interface or abstract class
+     * @throws SerializationException   if this Java runtime does not support creating instances without invoking
+     *                                  their constructors
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Constructor<T> constructorlessConstructor(Class<T> type) {
+        Assert.isFalse(type.isInterface() || Modifier.isAbstract(type.getModifiers()),
+                       "Cannot instantiate abstract type " + type.getName());
+        if (newConstructorForSerialization == null) {
+            throw new SerializationException("Unable to create instances of " + type.getName()
+                                                     + " without invoking their constructors: " + REFLECTION_FACTORY
+                                                     + " is not available on this Java runtime",
+                                             unavailabilityCause);
+        }
+        try {
+            return (Constructor<T>) newConstructorForSerialization.invoke(reflectionFactory, type,
+                                                                          Object.class.getDeclaredConstructor());
+        } catch (Exception e) {
+            throw new SerializationException("Unable to create a constructor for instances of " + type.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.es4j.serialization.core.axon;
+
+import java.nio.ByteBuffer;
+import org.es4j.serialization.api.axon.SerializedObject;
+
+/**
+ * ContentTypeConverter that delegates to another converter, recording the duration and data sizes of each conversion
+ * with a converter recorder and a route recorder.
+ *
+ * @param <S> The expected source type
+ * @param <T> The output type
+ * @since 2.0
+ */
+class InstrumentedConverter<S, T> implements WeightedContentTypeConverter<S, T> {
+
+    private final ContentTypeConverter<S, T> delegate;
+    private final ConversionRecorder converterRecorder;
+    private final ConversionRecorder routeRecorder;
+
+    InstrumentedConverter(ContentTypeConverter<S, T> delegate, ConversionRecorder converterRecorder,
+                          ConversionRecorder routeRecorder) {
+        this.delegate = delegate;
+        this.converterRecorder = converterRecorder;
+        this.routeRecorder = routeRecorder;
+    }
+
+    @Override
+    public Class<S> expectedSourceType() {
+        return delegate.expectedSourceType();
+    }
+
+    @Override
+    public Class<T> targetType() {
+        return delegate.targetType();
+    }
+
+    @Override
+    public int conversionCost() {
+        return ChainedConverter.costOf(delegate);
+    }
+
+    @Override
+    public SerializedObject<T> convert(SerializedObject<S> original) {
+        long inputSize = sizeOf(original.getData());
+        long start = System.nanoTime();
+        boolean failed = true;
+        SerializedObject<T> result = null;
+        try {
+            result = delegate.convert(original);
+            failed = false;
+            return result;
+        } finally {
+            record(System.nanoTime() - start, inputSize, result == null ? -1 : sizeOf(result.getData()), failed);
+        }
+    }
+
+    @Override
+    public T convert(S original) {
+        long inputSize = sizeOf(original);
+        long start = System.nanoTime();
+        boolean failed = true;
+        T result = null;
+        try {
+            result = delegate.convert(original);
+            failed = false;
+            return result;
+        } finally {
+            record(System.nanoTime() - start, inputSize, sizeOf(result), failed);
+        }
+    }
+
+    private void record(long duration, long inputSize, long outputSize, boolean failed) {
+        converterRecorder.record(duration, inputSize, outputSize, failed);
+        routeRecorder.record(duration, inputSize, outputSize, failed);
+    }
+
+    /**
+     * Returns the size of the given data in bytes if it is known without reading it, or <code>-1</code> otherwise.
+     * Strings are measured by the size of their UTF-8 encoding, as used by the converters of this module.
+     */
+    private static long sizeOf(Object data) {
+        if (data instanceof byte[]) {
+            return ((byte[]) data).length;
+        } else if (data instanceof ByteBuffer) {
+            return ((ByteBuffer) data).remaining();
+        } else if (data instanceof String) {
+            return utf8Length((String) data);
+        }
+        return -1;
+    }
+
+    private static long utf8Length(String data) {
+        long length = 0;
+        for (int i = 0; i < data.length(); i++) {
+            char c = data.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < data.length()
+                    && Character.isLowSurrogate(data.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
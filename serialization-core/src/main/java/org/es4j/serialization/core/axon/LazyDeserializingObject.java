@@ -18,13 +18,25 @@ package org.es4j.serialization.core.axon;
 
 //import org.axonframework.common.Assert;
 
+import java.io.InputStream;
 import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.SerializedType;
 import org.es4j.serialization.api.axon.Serializer;
 
 
 /**
  * Represents a serialized object that can be deserializedObjects upon request. Typically used as a wrapper class for
  * keeping a SerializedObject and its Serializer together.
+ * <p/>
+ * The object is deserialized at most once, even when {@link #getObject()} is invoked by several threads at the same
+ * time. Its type is only resolved when {@link #getType()} is first invoked. Optionally, the serialized object is
+ * released once it has been deserialized, so that it can be garbage collected while the deserialized object is still
+ * in use.
+ * <p/>
+ * Alternatively, the deserialized object can be kept in a {@link DeserializedObjectCache} shared with other instances,
+ * instead of in this instance. The serialized object is then kept, and the object is deserialized again when it has
+ * been evicted from the cache. This limits the memory used by deserialized objects when many instances are reachable,
+ * for example while replaying a large number of events.
  *
  * @param <T> The type of object contained in the serialized object
  * @author Allard Buijze
@@ -33,10 +45,17 @@ import org.es4j.serialization.api.axon.Serializer;
  */
 public class LazyDeserializingObject<T> {
 
+    private static final Object NULL_PLACEHOLDER = new Object();
+
     private final Serializer serializer;
-    private final SerializedObject<?> serializedObject;
-    private final Class<?> deserializedObjectType;
-    private volatile T deserializedObject;
+    private final SerializedType serializedType;
+    private final boolean releaseSerializedObject;
+    private final DeserializedObjectCache cache;
+    private final Object cacheKey;
+    private SerializedObject<?> serializedObject;
+    private volatile Class<?> deserializedObjectType;
+    private T deserializedObject;
+    private volatile boolean deserialized;
 
     /**
      * Creates an instance with the given <code>deserializedObject</code> object instance. Using this constructor will
@@ -47,53 +66,153 @@ public class LazyDeserializingObject<T> {
     public LazyDeserializingObject(T deserializedObject) {
         Assert.notNull(deserializedObject, "The given deserialized instance may not be null");
         this.serializedObject = null;
+        this.serializedType = null;
         this.serializer = null;
+        this.releaseSerializedObject = false;
+        this.cache = null;
+        this.cacheKey = null;
         this.deserializedObject = deserializedObject;
         this.deserializedObjectType = deserializedObject.getClass();
+        this.deserialized = true;
     }
 
     /**
+     * Creates an instance that deserializes the given <code>serializedObject</code> using the given
+     * <code>serializer</code> when the object is first requested. The serialized object is kept after it has been
+     * deserialized.
+     *
      * @param serializedObject The serialized payload of the message
      * @param serializer       The serializer to deserialize the payload data with
      */
     public LazyDeserializingObject(SerializedObject<?> serializedObject, Serializer serializer) {
+        this(serializedObject, serializer, false);
+    }
+
+    /**
+     * Creates an instance that deserializes the given <code>serializedObject</code> using the given
+     * <code>serializer</code> when the object is first requested. If <code>releaseSerializedObject</code> is
+     * <code>true</code>, this instance no longer refers to the serialized object once it has been deserialized
+     * successfully.
+     *
+     * @param serializedObject        The serialized payload of the message
+     * @param serializer              The serializer to deserialize the payload data with
+     * @param releaseSerializedObject Whether to release the serialized object after deserializing it
+     */
+    public LazyDeserializingObject(SerializedObject<?> serializedObject, Serializer serializer,
+                                   boolean releaseSerializedObject) {
+        this(serializedObject, serializer, releaseSerializedObject, null);
+    }
+
+    /**
+     * Creates an instance that deserializes the given <code>serializedObject</code> using the given
+     * <code>serializer</code> when the object is requested, and keeps the deserialized object in the given
+     * <code>cache</code>. The object is deserialized again when it is requested after it has been evicted from the
+     * cache. As an InputStream can only be read once, serialized objects with InputStream content are read into a
+     * byte array by this constructor, and the stream is closed.
+     *
+     * @param serializedObject The serialized payload of the message
+     * @param serializer       The serializer to deserialize the payload data with
+     * @param cache            The cache to keep the deserialized object in
+     */
+    public LazyDeserializingObject(SerializedObject<?> serializedObject, Serializer serializer,
+                                   DeserializedObjectCache cache) {
+        this(repeatable(serializedObject), serializer, false, cache);
+        Assert.notNull(cache, "The given cache may not be null");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SerializedObject<?> repeatable(SerializedObject<?> serializedObject) {
+        if (serializedObject == null || !InputStream.class.isAssignableFrom(serializedObject.getContentType())) {
+            return serializedObject;
+        }
+        try {
+            return new InputStreamToByteArrayConverter().convert((SerializedObject<InputStream>) serializedObject);
+        } finally {
+            IOUtils.closeQuietly((InputStream) serializedObject.getData());
+        }
+    }
+
+    private LazyDeserializingObject(SerializedObject<?> serializedObject, Serializer serializer,
+                                    boolean releaseSerializedObject, DeserializedObjectCache cache) {
         Assert.notNull(serializedObject, "The given serializedObject may not be null");
         Assert.notNull(serializer, "The given serializer may not be null");
         this.serializedObject = serializedObject;
+        this.serializedType = serializedObject.getType();
         this.serializer = serializer;
-        this.deserializedObjectType = serializer.classForType(serializedObject.getType());
+        this.releaseSerializedObject = releaseSerializedObject;
+        this.cache = cache;
+        // a separate key, so that the cache does not keep this instance and its serialized object reachable
+        this.cacheKey = cache == null ? null : new Object();
     }
 
     /**
-     * Returns the class of the serialized object, or <code>null</code> if no serialized object or serializer was
-     * provided.
+     * Returns the class of the serialized object. The class is resolved by the serializer when this method is first
+     * invoked.
      *
      * @return the class of the serialized object
      */
     public Class<?> getType() {
-        return deserializedObjectType;
+        Class<?> type = deserializedObjectType;
+        if (type == null) {
+            // resolving the type more than once is harmless, so no locking is needed
+            type = serializer.classForType(serializedType);
+            deserializedObjectType = type;
+        }
+        return type;
     }
 
     /**
-     * De-serializes the object and returns the result.
+     * De-serializes the object and returns the result. The object is deserialized only once, also when this method is
+     * invoked concurrently. If deserialization fails, it is attempted again on the next invocation.
      *
      * @return the deserialized objects
      */
     @SuppressWarnings("unchecked")
     public T getObject() {
-        if (!isDeserialized()) {
-            deserializedObject = (T) serializer.deserialize(serializedObject);
+        if (cache != null) {
+            return getCachedObject();
+        }
+        if (!deserialized) {
+            synchronized (this) {
+                if (!deserialized) {
+                    deserializedObject = (T) serializer.deserialize(serializedObject);
+                    deserialized = true;
+                    if (releaseSerializedObject) {
+                        serializedObject = null;
+                    }
+                }
+            }
         }
         return deserializedObject;
     }
 
+    @SuppressWarnings("unchecked")
+    private T getCachedObject() {
+        Object cached = cache.get(cacheKey);
+        if (cached == null) {
+            synchronized (this) {
+                cached = cache.get(cacheKey);
+                if (cached == null) {
+                    Object object = serializer.deserialize(serializedObject);
+                    cached = object == null ? NULL_PLACEHOLDER : object;
+                    cache.put(cacheKey, cached, DeserializedObjectCache.weightOf(serializedObject));
+                }
+            }
+        }
+        return cached == NULL_PLACEHOLDER ? null : (T) cached;
+    }
+
     /**
      * Indicates whether this object has already been deserialized. When this method returns <code>true</code>, the
-     * {@link #getObject()} method is able to return a value without invoking the serializer.
+     * {@link #getObject()} method is able to return a value without invoking the serializer. When the deserialized
+     * object is kept in a cache, this method indicates whether it is currently cached.
      *
      * @return whether the contained object has been deserialized already.
      */
     public boolean isDeserialized() {
-        return deserializedObject != null;
+        if (cache != null) {
+            return cache.containsKey(cacheKey);
+        }
+        return deserialized;
     }
 }
@@ -0,0 +1,173 @@
+package org.es4j.serialization.core.axon;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.es4j.messaging.api.axon.Message;
+
+/**
+ * Iterator that deserializes the payload of the messages following the current one in the background, while the
+ * current message is being handled. Messages are returned in the order of the wrapped iterator. At most
+ * <code>lookAhead</code> messages are read ahead of the message last returned.
+ * <p/>
+ * Only messages of which the payload is deserialized lazily, such as {@link SerializedEventMessage} and {@link
+ * SerializedMessage}, are deserialized in the background. Optionally, their meta data is deserialized as well. The
+ * message returned by {@link #next()} is never waited for: if its deserialization has not started yet, it is
+ * cancelled, and the payload is deserialized by the thread calling {@link Message#getPayload()} instead. If its
+ * deserialization is in progress, <code>getPayload()</code> waits for it to complete rather than deserializing the
+ * payload again. Failures in the background are ignored, so that they are reported to the thread that requests the
+ * payload, when deserializing it again.
+ * <p/>
+ * The wrapped iterator is only accessed by the thread using this iterator. This iterator is not thread safe.
+ *
+ * @param <M> The type of message returned by this iterator
+ * @since 2.0
+ */
+public class PrefetchingMessageIterator<M extends Message<?>> implements Iterator<M> {
+
+    private final Iterator<? extends M> delegate;
+    private final Executor executor;
+    private final int lookAhead;
+    private final boolean prefetchMetaData;
+    private final Queue<Prefetch<M>> prefetched;
+    private boolean cancelled;
+
+    /**
+     * Initializes an iterator that deserializes the payload of up to <code>lookAhead</code> messages of the given
+     * <code>delegate</code> in advance, using the given <code>executor</code>.
+     *
+     * @param delegate  The iterator providing the messages
+     * @param executor  The executor to deserialize messages with
+     * @param lookAhead The maximum number of messages to deserialize in advance
+     */
+    public PrefetchingMessageIterator(Iterator<? extends M> delegate, Executor executor, int lookAhead) {
+        this(delegate, executor, lookAhead, false);
+    }
+
+    /**
+     * Initializes an iterator that deserializes the payload, and if <code>prefetchMetaData</code> is
+     * <code>true</code> also the meta data, of up to <code>lookAhead</code> messages of the given
+     * <code>delegate</code> in advance, using the given <code>executor</code>.
+     *
+     * @param delegate         The iterator providing the messages
+     * @param executor         The executor to deserialize messages with
+     * @param lookAhead        The maximum number of messages to deserialize in advance
+     * @param prefetchMetaData Whether to deserialize the meta data of messages in advance
+     */
+    public PrefetchingMessageIterator(Iterator<? extends M> delegate, Executor executor, int lookAhead,
+                                      boolean prefetchMetaData) {
+        Assert.notNull(delegate, "The given delegate may not be null");
+        Assert.notNull(executor, "The given executor may not be null");
+        Assert.isTrue(lookAhead > 0, "The look-ahead must be positive");
+        this.delegate = delegate;
+        this.executor = executor;
+        this.lookAhead = lookAhead;
+        this.prefetchMetaData = prefetchMetaData;
+        this.prefetched = new ArrayDeque<Prefetch<M>>(lookAhead);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !prefetched.isEmpty() || delegate.hasNext();
+    }
+
+    @Override
+    public M next() {
+        fill(1);
+        Prefetch<M> next = prefetched.poll();
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        next.cancel();
+        fill(lookAhead);
+        return next.message;
+    }
+
+    /**
+     * Cancels the deserialization of all messages that have been read ahead, but of which deserialization has not
+     * started yet. After cancellation, this iterator no longer deserializes messages in advance, but still returns
+     * the remaining messages. Use this method when iteration is stopped before all messages have been returned.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Prefetch<M> prefetch : prefetched) {
+            prefetch.cancel();
+        }
+    }
+
+    private void fill(int size) {
+        while (prefetched.size() < size && delegate.hasNext()) {
+            Prefetch<M> prefetch = new Prefetch<M>(delegate.next(), prefetchMetaData);
+            prefetched.add(prefetch);
+            if (!cancelled && prefetch.isNeeded()) {
+                try {
+                    executor.execute(prefetch);
+                } catch (RejectedExecutionException e) {
+                    // the message is deserialized when its payload is requested
+                    prefetch.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * This iterator does not support removal of messages.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Messages cannot be removed");
+    }
+
+    /**
+     * Task deserializing a single message, unless it is cancelled before it starts.
+     */
+    private static final class Prefetch<M extends Message<?>> implements Runnable {
+
+        private final M message;
+        private final boolean prefetchMetaData;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Prefetch(M message, boolean prefetchMetaData) {
+            this.message = message;
+            this.prefetchMetaData = prefetchMetaData;
+        }
+
+        private boolean isNeeded() {
+            if (message instanceof SerializedEventMessage) {
+                SerializedEventMessage eventMessage = (SerializedEventMessage) message;
+                return !eventMessage.isPayloadDeserialized()
+                        || (prefetchMetaData && !eventMessage.isMetaDataDeserialized());
+            } else if (message instanceof SerializedMessage) {
+                SerializedMessage serializedMessage = (SerializedMessage) message;
+                return !serializedMessage.isPayloadDeserialized()
+                        || (prefetchMetaData && !serializedMessage.isMetaDataDeserialized());
+            }
+            return false;
+        }
+
+        private void cancel() {
+            claimed.set(true);
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                message.getPayload();
+                if (prefetchMetaData) {
+                    message.getMetaData();
+                }
+            } catch (RuntimeException e) {
+                // reported to the thread requesting the payload, which will deserialize it again
+            }
+        }
+    }
+}
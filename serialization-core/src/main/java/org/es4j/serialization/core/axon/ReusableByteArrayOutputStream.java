@@ -0,0 +1,49 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * ByteArrayOutputStream that gives access to the data written without copying it. The views returned by {@link
+ * #toInputStream()} share the internal buffer, which means that the stream should not be written to or reset while a
+ * view is in use.
+ *
+ * @since 2.0
+ */
+public class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+
+    /**
+     * Initializes a stream with a default initial capacity.
+     */
+    public ReusableByteArrayOutputStream() {
+        super(1024);
+    }
+
+    /**
+     * Initializes a stream with the given <code>initialCapacity</code>.
+     *
+     * @param initialCapacity the initial capacity of the buffer
+     */
+    public ReusableByteArrayOutputStream(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    /**
+     * Returns an InputStream that reads the data written to this stream so far. The data is not copied.
+     *
+     * @return an InputStream that reads the data written to this stream
+     */
+    public synchronized InputStream toInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+
+    /**
+     * Returns the current capacity of the internal buffer, which may be larger than the amount of data written.
+     *
+     * @return the current capacity of the internal buffer
+     */
+    public synchronized int capacity() {
+        return buf.length;
+    }
+}
@@ -37,13 +37,52 @@ public class SerializedEventMessage<T> implements EventMessage<T> {
      */
     public SerializedEventMessage(String eventIdentifier, DateTime timestamp, SerializedObject<?> serializedPayload,
                                   SerializedObject<?> serializedMetaData, Serializer serializer) {
-        message = new SerializedMessage<T>(eventIdentifier, serializedPayload, serializedMetaData, serializer);
+        this(eventIdentifier, timestamp, serializedPayload, serializedMetaData, serializer, false);
+    }
+
+    /**
+     * Constructor to reconstruct an EventMessage using serialized data. If <code>releaseSerializedObjects</code> is
+     * <code>true</code>, the message no longer refers to the serialized payload or meta data once it has been
+     * deserialized, so that replayed events do not keep both the serialized and the deserialized form in memory.
+     *
+     * @param eventIdentifier          The identifier of the message
+     * @param timestamp                The timestamp of the event message
+     * @param serializedPayload        The serialized payload of the message
+     * @param serializedMetaData       The serialized meta data of the message
+     * @param serializer               The serializer to deserialize the payload and meta data with
+     * @param releaseSerializedObjects Whether to release the serialized payload and meta data after deserializing them
+     */
+    public SerializedEventMessage(String eventIdentifier, DateTime timestamp, SerializedObject<?> serializedPayload,
+                                  SerializedObject<?> serializedMetaData, Serializer serializer,
+                                  boolean releaseSerializedObjects) {
+        message = new SerializedMessage<T>(eventIdentifier, serializedPayload, serializedMetaData, serializer,
+                                           releaseSerializedObjects);
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Constructor to reconstruct an EventMessage using serialized data. The deserialized payload is kept in the given
+     * <code>payloadCache</code> instead of in this message, and deserialized again if it has been evicted from the
+     * cache when it is requested.
+     *
+     * @param eventIdentifier    The identifier of the message
+     * @param timestamp          The timestamp of the event message
+     * @param serializedPayload  The serialized payload of the message
+     * @param serializedMetaData The serialized meta data of the message
+     * @param serializer         The serializer to deserialize the payload and meta data with
+     * @param payloadCache       The cache to keep the deserialized payload in
+     */
+    public SerializedEventMessage(String eventIdentifier, DateTime timestamp, SerializedObject<?> serializedPayload,
+                                  SerializedObject<?> serializedMetaData, Serializer serializer,
+                                  DeserializedObjectCache payloadCache) {
+        message = new SerializedMessage<T>(eventIdentifier, serializedPayload, serializedMetaData, serializer,
+                                           payloadCache);
         this.timestamp = timestamp;
     }
 
-    private SerializedEventMessage(SerializedEventMessage<T> original, Map<String, Object> metaData) {
-        message = original.message.withMetaData(metaData);
-        this.timestamp = original.getTimestamp();
+    private SerializedEventMessage(SerializedMessage<T> message, DateTime timestamp) {
+        this.message = message;
+        this.timestamp = timestamp;
     }
 
     @Override
@@ -72,19 +111,36 @@ public class SerializedEventMessage<T> implements EventMessage<T> {
         return message.getPayloadType();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The meta data of this message is only compared with the given <code>newMetaData</code> if it has already been
+     * deserialized.
+     *
+     * @see SerializedMessage#withMetaData(java.util.Map)
+     */
     @Override
     public SerializedEventMessage<T> withMetaData(Map<String, Object> newMetaData) {
-        if (getMetaData().equals(newMetaData)) {
-            return this;
-        } else {
-            return new SerializedEventMessage<T>(this, newMetaData);
-        }
+        return withMessage(message.withMetaData(newMetaData));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The serialized meta data of this message is not deserialized by this method.
+     *
+     * @see SerializedMessage#andMetaData(java.util.Map)
+     */
     @Override
-    public EventMessage<T> andMetaData(Map<String, Object> additionalMetaData) {
-        MetaData newMetaData = getMetaData().mergedWith(additionalMetaData);
-        return withMetaData(newMetaData);
+    public SerializedEventMessage<T> andMetaData(Map<String, Object> additionalMetaData) {
+        return withMessage(message.andMetaData(additionalMetaData));
+    }
+
+    private SerializedEventMessage<T> withMessage(SerializedMessage<T> newMessage) {
+        if (newMessage == message) {
+            return this;
+        }
+        return new SerializedEventMessage<T>(newMessage, timestamp);
     }
 
     /**
@@ -96,6 +152,15 @@ public class SerializedEventMessage<T> implements EventMessage<T> {
         return message.isPayloadDeserialized();
     }
 
+    /**
+     * Indicates whether the serialized meta data of this message has already been deserialized.
+     *
+     * @return <code>true</code> if the meta data is deserialized, otherwise <code>false</code>
+     */
+    public boolean isMetaDataDeserialized() {
+        return message.isMetaDataDeserialized();
+    }
+
     /**
      * Java Serialization API Method that provides a replacement to serialize, as the fields contained in this instance
      * are not serializable themselves.
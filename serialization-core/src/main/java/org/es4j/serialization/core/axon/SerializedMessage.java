@@ -25,6 +25,8 @@ public class SerializedMessage<T> implements Message<T> {
     private final String identifier;
     private final transient LazyDeserializingObject<MetaData> serializedMetaData; // NOSONAR
     private final transient LazyDeserializingObject<T> serializedPayload; // NOSONAR
+    private final transient MetaData additionalMetaData; // NOSONAR
+    private transient volatile MetaData mergedMetaData; // NOSONAR
 
     /**
      * Reconstructs a Message using the given <code>identifier</code>, <code>serializedPayload</code>,
@@ -37,15 +39,59 @@ public class SerializedMessage<T> implements Message<T> {
      */
     public SerializedMessage(String identifier, SerializedObject<?> serializedPayload,
                              SerializedObject<?> serializedMetaData, Serializer serializer) {
+        this(identifier, serializedPayload, serializedMetaData, serializer, false);
+    }
+
+    /**
+     * Reconstructs a Message using the given <code>identifier</code>, <code>serializedPayload</code>,
+     * <code>serializedMetaData</code> and <code>serializer</code>. If <code>releaseSerializedObjects</code> is
+     * <code>true</code>, the message no longer refers to the serialized payload or meta data once it has been
+     * deserialized, so that the serialized form can be garbage collected while the message is still in use.
+     *
+     * @param identifier               The identifier of the message
+     * @param serializedPayload        The serialized payload of the message
+     * @param serializedMetaData       The serialized meta data of the message
+     * @param serializer               The serializer to deserialize the payload and meta data with
+     * @param releaseSerializedObjects Whether to release the serialized payload and meta data after deserializing them
+     */
+    public SerializedMessage(String identifier, SerializedObject<?> serializedPayload,
+                             SerializedObject<?> serializedMetaData, Serializer serializer,
+                             boolean releaseSerializedObjects) {
+        this.identifier = identifier;
+        this.serializedMetaData = new LazyDeserializingObject<MetaData>(serializedMetaData, serializer,
+                                                                        releaseSerializedObjects);
+        this.serializedPayload = new LazyDeserializingObject<T>(serializedPayload, serializer,
+                                                                releaseSerializedObjects);
+        this.additionalMetaData = null;
+    }
+
+    /**
+     * Reconstructs a Message using the given <code>identifier</code>, <code>serializedPayload</code>,
+     * <code>serializedMetaData</code> and <code>serializer</code>. The deserialized payload is kept in the given
+     * <code>payloadCache</code> instead of in this message, and deserialized again if it has been evicted from the
+     * cache when it is requested.
+     *
+     * @param identifier         The identifier of the message
+     * @param serializedPayload  The serialized payload of the message
+     * @param serializedMetaData The serialized meta data of the message
+     * @param serializer         The serializer to deserialize the payload and meta data with
+     * @param payloadCache       The cache to keep the deserialized payload in
+     */
+    public SerializedMessage(String identifier, SerializedObject<?> serializedPayload,
+                             SerializedObject<?> serializedMetaData, Serializer serializer,
+                             DeserializedObjectCache payloadCache) {
         this.identifier = identifier;
         this.serializedMetaData = new LazyDeserializingObject<MetaData>(serializedMetaData, serializer);
-        this.serializedPayload = new LazyDeserializingObject<T>(serializedPayload, serializer);
+        this.serializedPayload = new LazyDeserializingObject<T>(serializedPayload, serializer, payloadCache);
+        this.additionalMetaData = null;
     }
 
-    private SerializedMessage(SerializedMessage<T> message, Map<String, Object> metaData) {
+    private SerializedMessage(SerializedMessage<T> message, LazyDeserializingObject<MetaData> serializedMetaData,
+                              MetaData additionalMetaData) {
         this.identifier = message.getIdentifier();
-        this.serializedMetaData = new LazyDeserializingObject<MetaData>(MetaData.from(metaData));
+        this.serializedMetaData = serializedMetaData;
         this.serializedPayload = message.serializedPayload;
+        this.additionalMetaData = additionalMetaData;
     }
 
     @Override
@@ -53,8 +99,26 @@ public class SerializedMessage<T> implements Message<T> {
         return identifier;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * If meta data has been added to this message using {@link #andMetaData(java.util.Map)}, it is merged with the
+     * original meta data when it is first requested.
+     */
     @Override
     public MetaData getMetaData() {
+        if (additionalMetaData == null) {
+            return originalMetaData();
+        }
+        MetaData metaData = mergedMetaData;
+        if (metaData == null) {
+            metaData = originalMetaData().mergedWith(additionalMetaData);
+            mergedMetaData = metaData;
+        }
+        return metaData;
+    }
+
+    private MetaData originalMetaData() {
         MetaData metaData = serializedMetaData.getObject();
         return metaData == null ? MetaData.emptyInstance() : metaData;
     }
@@ -69,20 +133,37 @@ public class SerializedMessage<T> implements Message<T> {
         return serializedPayload.getType();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The meta data of this message is only compared with the given <code>metaData</code> if it has already been
+     * deserialized. Otherwise, a new message is returned, even if its meta data turns out to be equal to that of this
+     * message.
+     */
     @Override
     public SerializedMessage<T> withMetaData(Map<String, Object> metaData) {
-        if (this.serializedMetaData.getObject().equals(metaData)) {
+        if (serializedMetaData.isDeserialized() && getMetaData().equals(metaData)) {
             return this;
         }
-        return new SerializedMessage<T>(this, metaData);
+        return new SerializedMessage<T>(this, new LazyDeserializingObject<MetaData>(MetaData.from(metaData)), null);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The serialized meta data of this message is not deserialized by this method. Instead, the returned message
+     * keeps the given <code>metaData</code> apart, and merges it with the original meta data when its meta data is
+     * requested. Messages of which the meta data is never requested never deserialize it.
+     */
     @Override
     public SerializedMessage<T> andMetaData(Map<String, Object> metaData) {
         if (metaData.isEmpty()) {
             return this;
         }
-        return new SerializedMessage<T>(this, getMetaData().mergedWith(metaData));
+        MetaData additional = additionalMetaData == null
+                ? MetaData.from(metaData)
+                : additionalMetaData.mergedWith(metaData);
+        return new SerializedMessage<T>(this, serializedMetaData, additional);
     }
 
     /**
@@ -94,6 +175,15 @@ public class SerializedMessage<T> implements Message<T> {
         return serializedPayload.isDeserialized();
     }
 
+    /**
+     * Indicates whether the serialized meta data of this message has already been deserialized.
+     *
+     * @return <code>true</code> if the meta data is deserialized, otherwise <code>false</code>
+     */
+    public boolean isMetaDataDeserialized() {
+        return serializedMetaData.isDeserialized();
+    }
+
     /**
      * Java Serialization API Method that provides a replacement to serialize, as the fields contained in this instance
      * are not serializable themselves.
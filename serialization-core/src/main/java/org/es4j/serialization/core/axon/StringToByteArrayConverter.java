@@ -0,0 +1,24 @@
+package org.es4j.serialization.core.axon;
+
+/**
+ * ContentTypeConverter that converts String into byte[]. Conversion is done using the UTF-8 character set.
+ *
+ * @since 2.0
+ */
+public class StringToByteArrayConverter extends AbstractContentTypeConverter<String, byte[]> {
+
+    @Override
+    public Class<String> expectedSourceType() {
+        return String.class;
+    }
+
+    @Override
+    public Class<byte[]> targetType() {
+        return byte[].class;
+    }
+
+    @Override
+    public byte[] convert(String original) {
+        return original.getBytes(IOUtils.UTF8);
+    }
+}
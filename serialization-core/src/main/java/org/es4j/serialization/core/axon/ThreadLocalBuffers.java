@@ -0,0 +1,77 @@
+package org.es4j.serialization.core.axon;
+
+/**
+ * Buffers for serializers to write into, each reused by the thread it belongs to. A thread's buffer is only handed
+ * out again once it has been released. When an object is serialized while the buffer is still in use, for instance
+ * from the <code>writeObject</code> method of the object being serialized, a separate buffer is handed out, so that
+ * the nested serialization does not overwrite or reset the data written so far.
+ * <p/>
+ * Buffers that have grown beyond the maximum retained capacity are not kept after they are released, so that a single
+ * large object does not hold on to a large buffer for the lifetime of the thread.
+ *
+ * @since 2.0
+ */
+public final class ThreadLocalBuffers {
+
+    private final int maxRetainedCapacity;
+    private final ThreadLocal<Slot> slots = new ThreadLocal<Slot>() {
+        @Override
+        protected Slot initialValue() {
+            return new Slot();
+        }
+    };
+
+    /**
+     * Initializes an instance that keeps buffers up to the given <code>maxRetainedCapacity</code> for reuse.
+     *
+     * @param maxRetainedCapacity The maximum capacity, in bytes, of buffers kept for reuse
+     */
+    public ThreadLocalBuffers(int maxRetainedCapacity) {
+        this.maxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    /**
+     * Returns an empty buffer to write into. This is the buffer of the current thread, unless that buffer is already
+     * in use, in which case a new buffer is returned. The buffer must be passed to {@link
+     * #release(ReusableByteArrayOutputStream)} when it is no longer used.
+     *
+     * @return an empty buffer
+     */
+    public ReusableByteArrayOutputStream acquire() {
+        Slot slot = slots.get();
+        if (slot.inUse) {
+            return new ReusableByteArrayOutputStream();
+        }
+        if (slot.buffer == null) {
+            slot.buffer = new ReusableByteArrayOutputStream();
+        }
+        slot.inUse = true;
+        return slot.buffer;
+    }
+
+    /**
+     * Releases the given <code>buffer</code>, obtained from {@link #acquire()} by the current thread. The data written
+     * to it is discarded.
+     *
+     * @param buffer The buffer to release
+     */
+    public void release(ReusableByteArrayOutputStream buffer) {
+        Slot slot = slots.get();
+        if (slot.buffer != buffer) {
+            // a buffer handed out for nested use, which is not kept
+            return;
+        }
+        if (buffer.capacity() > maxRetainedCapacity) {
+            slot.buffer = null;
+        } else {
+            buffer.reset();
+        }
+        slot.inUse = false;
+    }
+
+    private static final class Slot {
+
+        private ReusableByteArrayOutputStream buffer;
+        private boolean inUse;
+    }
+}
@@ -0,0 +1,29 @@
+package org.es4j.serialization.core.axon;
+
+/**
+ * ContentTypeConverter that declares the relative cost of its conversion. The cost is used when calculating a route
+ * through a number of converters, to prefer the cheapest route over the one with the least number of steps.
+ * <p/>
+ * Costs are relative to the {@link #DEFAULT_COST}, which is assigned to converters that do not implement this
+ * interface and represents a conversion that copies the data once. A converter that merely wraps its input should
+ * declare a considerably lower cost, while a converter that builds or walks a document tree should declare a
+ * considerably higher one.
+ *
+ * @param <S> The expected source type
+ * @param <T> The output type
+ * @since 2.0
+ */
+public interface WeightedContentTypeConverter<S, T> extends ContentTypeConverter<S, T> {
+
+    /**
+     * The cost assigned to converters that do not declare a cost of their own.
+     */
+    int DEFAULT_COST = 10;
+
+    /**
+     * Returns the relative cost of a conversion done by this converter. The cost may not be negative.
+     *
+     * @return the relative cost of a conversion done by this converter
+     */
+    int conversionCost();
+}
@@ -0,0 +1,61 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.apache.commons.io.IOUtils;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ByteBufferConvertersTest {
+
+    private final byte[] data = "hello world".getBytes();
+
+    @Test
+    public void testWrappedArrayIsReturnedWithoutCopy() {
+        assertSame(data, new ByteBufferToByteArrayConverter().convert(ByteBuffer.wrap(data)));
+        assertSame(data, new ByteArrayToByteBufferConverter().convert(data).array());
+    }
+
+    @Test
+    public void testPartialBufferIsCopiedWithoutMovingPosition() {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 6, 5);
+        byte[] actual = new ByteBufferToByteArrayConverter().convert(buffer);
+        assertArrayEquals("world".getBytes(), actual);
+        assertEquals(6, buffer.position());
+    }
+
+    @Test
+    public void testDirectBufferIsConvertedToByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        assertArrayEquals(data, new ByteBufferToByteArrayConverter().convert(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testDirectBufferIsReadAsInputStream() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        InputStream actual = new ByteBufferToInputStreamConverter().convert(buffer);
+        assertEquals(data.length, actual.available());
+        assertArrayEquals(data, IOUtils.toByteArray(actual));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testHeapBufferIsReadAsInputStream() throws Exception {
+        InputStream actual = new ByteBufferToInputStreamConverter().convert(ByteBuffer.wrap(data, 6, 5));
+        assertArrayEquals("world".getBytes(), IOUtils.toByteArray(actual));
+    }
+
+    @Test
+    public void testChainFromByteBufferUsesBuiltInConverters() throws Exception {
+        ChainingConverterFactory factory = new ChainingConverterFactory();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        assertEquals("hello world", factory.getConverter(ByteBuffer.class, String.class).convert(buffer));
+        InputStream stream = factory.getConverter(byte[].class, InputStream.class).convert(data);
+        ByteBuffer actual = factory.getConverter(InputStream.class, ByteBuffer.class).convert(stream);
+        assertEquals(ByteBuffer.wrap(data), actual);
+    }
+}
@@ -6,7 +6,9 @@ import org.es4j.serialization.core.axon.SimpleSerializedObject;
 import org.es4j.serialization.core.axon.CannotConvertBetweenTypesException;
 import org.es4j.serialization.core.axon.ContentTypeConverter;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.Arrays;
@@ -113,6 +115,129 @@ public class ChainedConverterTest {
         testSubject = ChainedConverter.calculateChain(source.getContentType(), target, candidates);
     }
 
+    @Test
+    public void testCheapestRouteIsPreferredOverShortestRoute() {
+        ContentTypeConverter<?, ?> readerToInputStreamConverter =
+                weightedConverter(Reader.class, InputStream.class, 1);
+        ContentTypeConverter<?, ?> expensiveStringToByteConverter = weightedConverter(String.class, byte[].class, 100);
+        candidates.remove(stringToByteConverter);
+        candidates.add(expensiveStringToByteConverter);
+        candidates.add(readerToInputStreamConverter);
+
+        ChainedConverter<Number, InputStream> chain = ChainedConverter.calculateChain(Number.class,
+                                                                                      InputStream.class,
+                                                                                      candidates);
+        assertTrue("Wrong route: " + chain, chain.toString().contains(Reader.class.getName()));
+        assertEquals(2 * WeightedContentTypeConverter.DEFAULT_COST + 1, chain.conversionCost());
+    }
+
+    @Test
+    public void testShortestRouteIsPreferredWhenCostsAreEqual() {
+        ContentTypeConverter<?, ?> readerToByteConverter = mockConverter(Reader.class, byte[].class, new byte[0]);
+        candidates.add(readerToByteConverter);
+
+        ChainedConverter<Number, InputStream> chain = ChainedConverter.calculateChain(Number.class,
+                                                                                      InputStream.class,
+                                                                                      candidates);
+        assertEquals(3 * WeightedContentTypeConverter.DEFAULT_COST, chain.conversionCost());
+    }
+
+    private ContentTypeConverter<?, ?> weightedConverter(Class<?> expectedType, Class<?> targetType, int cost) {
+        WeightedContentTypeConverter mock = mock(WeightedContentTypeConverter.class);
+        when(mock.expectedSourceType()).thenReturn(expectedType);
+        when(mock.targetType()).thenReturn(targetType);
+        when(mock.conversionCost()).thenReturn(cost);
+        return mock;
+    }
+
+    @Test
+    public void testDataOnlyChainIsExecutedOnRawData() throws Exception {
+        StringToBytesConverter writer = new StringToBytesConverter();
+        BytesToInputStreamConverter reader = new BytesToInputStreamConverter();
+        testSubject = new ChainedConverter(Arrays.<ContentTypeConverter>asList(new NumberToStringConverter(),
+                                                                               writer, reader));
+        source = new SimpleSerializedObject<Number>(1L, Number.class, mockType);
+
+        SerializedObject<InputStream> actual = testSubject.convert(source);
+        assertEquals(InputStream.class, actual.getContentType());
+        assertSame(mockType, actual.getType());
+        assertArrayEquals("1".getBytes(), IOUtils.toByteArray(actual.getData()));
+        assertFalse("Intermediate byte[] should not have been created", writer.convertedToBytes);
+        assertFalse("Intermediate byte[] should not have been read", reader.convertedFromBytes);
+    }
+
+    private static class NumberToStringConverter extends AbstractContentTypeConverter<Number, String> {
+
+        @Override
+        public Class<Number> expectedSourceType() {
+            return Number.class;
+        }
+
+        @Override
+        public Class<String> targetType() {
+            return String.class;
+        }
+
+        @Override
+        public String convert(Number original) {
+            return original.toString();
+        }
+    }
+
+    private static class StringToBytesConverter extends AbstractContentTypeConverter<String, byte[]>
+            implements ByteStreamWriter<String> {
+
+        private boolean convertedToBytes;
+
+        @Override
+        public Class<String> expectedSourceType() {
+            return String.class;
+        }
+
+        @Override
+        public Class<byte[]> targetType() {
+            return byte[].class;
+        }
+
+        @Override
+        public byte[] convert(String original) {
+            convertedToBytes = true;
+            return original.getBytes();
+        }
+
+        @Override
+        public void writeTo(String source, OutputStream outputStream) throws IOException {
+            outputStream.write(source.getBytes());
+        }
+    }
+
+    private static class BytesToInputStreamConverter extends AbstractContentTypeConverter<byte[], InputStream>
+            implements ByteStreamReader<InputStream> {
+
+        private boolean convertedFromBytes;
+
+        @Override
+        public Class<byte[]> expectedSourceType() {
+            return byte[].class;
+        }
+
+        @Override
+        public Class<InputStream> targetType() {
+            return InputStream.class;
+        }
+
+        @Override
+        public InputStream convert(byte[] original) {
+            convertedFromBytes = true;
+            return new ByteArrayInputStream(original);
+        }
+
+        @Override
+        public InputStream readFrom(InputStream inputStream) {
+            return inputStream;
+        }
+    }
+
     @Test
     public void testDiscontinuousChainIsRejected() {
         try {
@@ -0,0 +1,196 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+public class ChainingConverterFactoryTest {
+
+    private ChainingConverterFactory testSubject;
+    private ContentTypeConverter<?, ?> numberToStringConverter;
+    private ContentTypeConverter<?, ?> stringToByteConverter;
+
+    @Before
+    public void setUp() {
+        testSubject = new ChainingConverterFactory();
+        numberToStringConverter = mockConverter(Number.class, String.class);
+        stringToByteConverter = mockConverter(String.class, byte[].class);
+        testSubject.registerConverter(numberToStringConverter);
+        testSubject.registerConverter(stringToByteConverter);
+    }
+
+    private ContentTypeConverter<?, ?> mockConverter(Class<?> expectedType, Class<?> targetType) {
+        ContentTypeConverter mock = mock(ContentTypeConverter.class);
+        when(mock.expectedSourceType()).thenReturn(expectedType);
+        when(mock.targetType()).thenReturn(targetType);
+        return mock;
+    }
+
+    @Test
+    public void testBuiltInConvertersAreDetected() {
+        ChainingConverterFactory factory = new ChainingConverterFactory();
+        assertTrue(factory.getConverter(byte[].class, InputStream.class) instanceof ByteArrayToInputStreamConverter);
+        assertTrue(factory.hasConverter(InputStream.class, byte[].class));
+        assertTrue(factory.hasConverter(ByteBuffer.class, InputStream.class));
+        assertTrue(factory.hasConverter(String.class, ByteBuffer.class));
+    }
+
+    @Test
+    public void testNoConversionIsCached() {
+        ContentTypeConverter<String, String> converter = testSubject.getConverter(String.class, String.class);
+        assertEquals(String.class, converter.targetType());
+        assertSame(converter, testSubject.getConverter(String.class, String.class));
+    }
+
+    @Test
+    public void testDirectConverterIsReturned() {
+        assertSame(numberToStringConverter, testSubject.getConverter(Long.class, String.class));
+        assertTrue(testSubject.hasConverter(Integer.class, String.class));
+    }
+
+    @Test
+    public void testChainedConverterIsCached() {
+        assertTrue(testSubject.hasConverter(Number.class, byte[].class));
+        ContentTypeConverter<Number, byte[]> converter = testSubject.getConverter(Number.class, byte[].class);
+        assertTrue(converter instanceof ChainedConverter);
+        assertSame(converter, testSubject.getConverter(Number.class, byte[].class));
+    }
+
+    @Test
+    public void testMissingConverterIsReportedRepeatedly() {
+        assertFalse(testSubject.hasConverter(Reader.class, InputStream.class));
+        assertFalse(testSubject.hasConverter(Reader.class, InputStream.class));
+        try {
+            testSubject.getConverter(Reader.class, InputStream.class);
+            fail("Expected CannotConvertBetweenTypesException");
+        } catch (CannotConvertBetweenTypesException e) {
+            assertTrue(e.getMessage().contains(Reader.class.getName()));
+        }
+    }
+
+    @Test
+    public void testRegisteringConverterDiscardsCachedResults() {
+        assertFalse(testSubject.hasConverter(Reader.class, InputStream.class));
+        ContentTypeConverter<?, ?> readerToStringConverter = mockConverter(Reader.class, String.class);
+        testSubject.registerConverter(readerToStringConverter);
+        assertTrue(testSubject.hasConverter(Reader.class, byte[].class));
+        assertSame(readerToStringConverter, testSubject.getConverter(Reader.class, String.class));
+    }
+
+    @Test
+    public void testPrecompiledRoutesAreAvailableForAllKnownTypes() {
+        testSubject.setPrecompiledRoutes(true);
+        assertTrue(testSubject.hasConverter(Number.class, byte[].class));
+        assertFalse(testSubject.hasConverter(byte[].class, Number.class));
+        assertSame(testSubject.getConverter(Number.class, byte[].class),
+                   testSubject.getConverter(Number.class, byte[].class));
+        assertSame(numberToStringConverter, testSubject.getConverter(Long.class, String.class));
+    }
+
+    @Test
+    public void testConverterWithUnavailableClassesIsIgnored() {
+        ContentTypeConverter brokenConverter = mock(ContentTypeConverter.class);
+        when(brokenConverter.expectedSourceType()).thenReturn(Reader.class);
+        when(brokenConverter.targetType()).thenThrow(new NoClassDefFoundError("some/missing/Type"));
+        testSubject.registerConverter(brokenConverter);
+        assertFalse(testSubject.hasConverter(Reader.class, String.class));
+        assertTrue(testSubject.hasConverter(Number.class, byte[].class));
+    }
+
+    @Test
+    public void testSharedInstanceIsReusedPerClassLoader() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        ChainingConverterFactory shared = ChainingConverterFactory.sharedInstance(classLoader);
+        assertSame(shared, ChainingConverterFactory.sharedInstance(classLoader));
+        assertTrue(shared.hasConverter(byte[].class, InputStream.class));
+    }
+
+    @Test
+    public void testOverlayWithoutConvertersSharesParentCache() {
+        ChainingConverterFactory overlay = new ChainingConverterFactory(testSubject);
+        assertSame(testSubject.getConverter(Number.class, byte[].class),
+                   overlay.getConverter(Number.class, byte[].class));
+    }
+
+    @Test
+    public void testOverlayConvertersAreNotVisibleInParent() {
+        ChainingConverterFactory overlay = new ChainingConverterFactory(testSubject);
+        ContentTypeConverter<?, ?> readerToStringConverter = mockConverter(Reader.class, String.class);
+        overlay.registerConverter(readerToStringConverter);
+        assertTrue(overlay.hasConverter(Reader.class, byte[].class));
+        assertFalse(testSubject.hasConverter(Reader.class, byte[].class));
+        assertSame(numberToStringConverter, overlay.getConverter(Long.class, String.class));
+    }
+
+    @Test
+    public void testOverlayPicksUpConvertersRegisteredWithParent() {
+        ChainingConverterFactory overlay = new ChainingConverterFactory(testSubject);
+        overlay.registerConverter(mockConverter(Reader.class, Number.class));
+        assertFalse(overlay.hasConverter(String.class, Reader.class));
+        ContentTypeConverter<?, ?> stringToReaderConverter = mockConverter(String.class, Reader.class);
+        testSubject.registerConverter(stringToReaderConverter);
+        assertSame(stringToReaderConverter, overlay.getConverter(String.class, Reader.class));
+    }
+
+    @Test
+    public void testConcurrentLookupsResolveSameConverter() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ContentTypeConverter<Number, byte[]>>> results =
+                    new ArrayList<Future<ContentTypeConverter<Number, byte[]>>>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(new Callable<ContentTypeConverter<Number, byte[]>>() {
+                    @Override
+                    public ContentTypeConverter<Number, byte[]> call() throws Exception {
+                        return testSubject.getConverter(Number.class, byte[].class);
+                    }
+                }));
+            }
+            ContentTypeConverter<Number, byte[]> expected = testSubject.getConverter(Number.class, byte[].class);
+            for (Future<ContentTypeConverter<Number, byte[]>> result : results) {
+                assertSame(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReplacedSnapshotsAreCollectable() throws Exception {
+        Field snapshotField = ChainingConverterFactory.class.getDeclaredField("snapshot");
+        snapshotField.setAccessible(true);
+        List<WeakReference<Object>> replacedSnapshots = new ArrayList<WeakReference<Object>>();
+        for (int i = 0; i < 50; i++) {
+            testSubject.getConverter(Number.class, byte[].class);
+            testSubject.getConverter(byte[].class, byte[].class);
+            replacedSnapshots.add(new WeakReference<Object>(snapshotField.get(testSubject)));
+            testSubject.setPrecompiledRoutes(i % 2 == 0);
+        }
+        for (int attempt = 0; attempt < 50 && !allCleared(replacedSnapshots); attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertTrue("Replaced snapshots are still reachable", allCleared(replacedSnapshots));
+    }
+
+    private static boolean allCleared(List<WeakReference<Object>> references) {
+        for (WeakReference<Object> reference : references) {
+            if (reference.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConverterMetricsTest {
+
+    private ChainingConverterFactory factory;
+    private ConverterMetrics testSubject;
+
+    @Before
+    public void setUp() {
+        factory = new ChainingConverterFactory();
+        testSubject = new ConverterMetrics();
+        factory.setConverterMetrics(testSubject);
+    }
+
+    @Test
+    public void testConversionsAreRecordedPerConverterAndRoute() {
+        ContentTypeConverter<String, byte[]> converter = factory.getConverter(String.class, byte[].class);
+        assertSame(converter, factory.getConverter(String.class, byte[].class));
+        converter.convert("hello");
+        converter.convert("world!");
+
+        List<ConversionStatistics> converters = testSubject.getConverterStatistics();
+        assertEquals(1, converters.size());
+        ConversionStatistics statistics = converters.get(0);
+        assertEquals(StringToByteArrayConverter.class.getName(), statistics.getName());
+        assertEquals(2, statistics.getCount());
+        assertEquals(0, statistics.getFailureCount());
+        assertEquals(11, statistics.getInputBytes());
+        assertEquals(11, statistics.getOutputBytes());
+        long histogramTotal = 0;
+        for (long bucket : statistics.getLatencyHistogram()) {
+            histogramTotal += bucket;
+        }
+        assertEquals(2, histogramTotal);
+
+        List<ConversionStatistics> routes = testSubject.getRouteStatistics();
+        assertEquals(1, routes.size());
+        assertEquals("java.lang.String -> [B", routes.get(0).getName());
+        assertEquals(2, routes.get(0).getCount());
+    }
+
+    @Test
+    public void testStringSizesAreRecordedInEncodedBytes() {
+        String text = "h\u00e9llo \u20ac \ud83d\ude00";
+        byte[] encoded = factory.getConverter(String.class, byte[].class).convert(text);
+        ConversionStatistics statistics = testSubject.getRouteStatistics().get(0);
+        assertEquals(encoded.length, statistics.getInputBytes());
+        assertEquals(encoded.length, statistics.getOutputBytes());
+    }
+
+    @Test
+    public void testChainIsRecordedAsSingleConverter() {
+        factory.getConverter(String.class, InputStream.class).convert("chained");
+        List<ConversionStatistics> converters = testSubject.getConverterStatistics();
+        assertEquals(1, converters.size());
+        assertTrue(converters.get(0).getName().startsWith("ChainedConverter"));
+        assertEquals(7, converters.get(0).getInputBytes());
+        assertEquals(0, converters.get(0).getOutputBytes());
+    }
+
+    @Test
+    public void testFailuresAreRecorded() {
+        ContentTypeConverter<ByteBuffer, byte[]> converter = factory.getConverter(ByteBuffer.class, byte[].class);
+        try {
+            converter.convert((ByteBuffer) null);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException e) {
+            // expected
+        }
+        ConversionStatistics statistics = testSubject.getRouteStatistics().get(0);
+        assertEquals(1, statistics.getCount());
+        assertEquals(1, statistics.getFailureCount());
+    }
+
+    @Test
+    public void testResetDiscardsStatistics() {
+        factory.getConverter(String.class, byte[].class).convert("hello");
+        testSubject.reset();
+        assertTrue(testSubject.getConverterStatistics().isEmpty());
+        assertTrue(testSubject.getRouteStatistics().isEmpty());
+    }
+
+    @Test
+    public void testRoutesAreReportedAgainAfterReset() {
+        ContentTypeConverter<String, byte[]> converter = factory.getConverter(String.class, byte[].class);
+        converter.convert("hello");
+        testSubject.reset();
+        factory.getConverter(String.class, byte[].class).convert("again");
+
+        List<ConversionStatistics> routes = testSubject.getRouteStatistics();
+        assertEquals(1, routes.size());
+        assertEquals("java.lang.String -> [B", routes.get(0).getName());
+        assertEquals(1, routes.get(0).getCount());
+        assertEquals(5, routes.get(0).getInputBytes());
+        assertEquals(1, testSubject.getConverterStatistics().get(0).getCount());
+    }
+
+    @Test
+    public void testIdentityConversionIsNotInstrumented() {
+        factory.getConverter(String.class, String.class).convert("same");
+        assertTrue(testSubject.getConverterStatistics().isEmpty());
+    }
+
+    @Test
+    public void testStatisticsAreExposedOverJmx() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.es4j.serialization:type=ConverterMetrics,name=test");
+        testSubject.registerMBean(name.toString());
+        try {
+            factory.getConverter(String.class, byte[].class).convert("hello");
+            CompositeData[] routes = (CompositeData[]) mBeanServer.getAttribute(name, "RouteStatistics");
+            assertEquals(1, routes.length);
+            assertEquals(1L, routes[0].get("count"));
+            assertEquals(5L, routes[0].get("inputBytes"));
+        } finally {
+            mBeanServer.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.Serializer;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class DeserializedObjectCacheTest {
+
+    private Serializer serializer;
+
+    @Before
+    public void setUp() {
+        serializer = mock(Serializer.class);
+        when(serializer.deserialize(any(SerializedObject.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Exception {
+                Object data = ((SerializedObject) invocation.getArguments()[0]).getData();
+                if (data instanceof InputStream) {
+                    InputStream inputStream = (InputStream) data;
+                    byte[] bytes = new byte[inputStream.available()];
+                    assertEquals(bytes.length, inputStream.read(bytes));
+                    return new String(bytes);
+                }
+                return new String((byte[]) data);
+            }
+        });
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedWhenWeightExceeded() {
+        DeserializedObjectCache cache = new DeserializedObjectCache(30, 1);
+        cache.put("a", "A", 10);
+        cache.put("b", "B", 10);
+        cache.put("c", "C", 10);
+        assertEquals("A", cache.get("a"));
+        cache.put("d", "D", 10);
+
+        assertEquals(3, cache.size());
+        assertEquals(30, cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("D", cache.get("d"));
+    }
+
+    @Test
+    public void testMaximumWeightAppliesToWholeCache() {
+        DeserializedObjectCache cache = new DeserializedObjectCache(100, 4);
+        cache.put("small", "S", 25);
+        cache.put("large", "L", 80);
+        assertNull(cache.get("small"));
+        assertEquals("L", cache.get("large"));
+        assertEquals(80, cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.put("tooLarge", "T", 101);
+        assertNull(cache.get("tooLarge"));
+        assertEquals(80, cache.getWeight());
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("entry" + i, "E" + i, 10);
+        }
+        assertEquals(100, cache.getWeight());
+        assertNull(cache.get("large"));
+        assertEquals("E0", cache.get("entry0"));
+        cache.put("entry10", "E10", 10);
+        assertNull(cache.get("entry1"));
+        assertEquals("E0", cache.get("entry0"));
+        assertEquals("E10", cache.get("entry10"));
+        assertEquals(100, cache.getWeight());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testContainsKeyDoesNotMarkEntryAsUsed() {
+        DeserializedObjectCache cache = new DeserializedObjectCache(20, 1);
+        cache.put("a", "A", 10);
+        cache.put("b", "B", 10);
+        assertTrue(cache.containsKey("a"));
+        cache.put("c", "C", 10);
+        assertFalse(cache.containsKey("a"));
+        assertTrue(cache.containsKey("b"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testLazyObjectDeserializedAgainAfterEviction() {
+        DeserializedObjectCache cache = new DeserializedObjectCache(10, 1);
+        SerializedObject<byte[]> first = new SimpleSerializedObject<byte[]>("first".getBytes(), byte[].class,
+                                                                             "java.lang.String", null);
+        SerializedObject<byte[]> second = new SimpleSerializedObject<byte[]>("second".getBytes(), byte[].class,
+                                                                              "java.lang.String", null);
+        LazyDeserializingObject<String> firstObject = new LazyDeserializingObject<String>(first, serializer, cache);
+        LazyDeserializingObject<String> secondObject = new LazyDeserializingObject<String>(second, serializer, cache);
+
+        assertFalse(firstObject.isDeserialized());
+        assertEquals("first", firstObject.getObject());
+        assertEquals("first", firstObject.getObject());
+        assertTrue(firstObject.isDeserialized());
+        verify(serializer, times(1)).deserialize(first);
+
+        assertEquals("second", secondObject.getObject());
+        assertFalse(firstObject.isDeserialized());
+        assertEquals("first", firstObject.getObject());
+        verify(serializer, times(2)).deserialize(first);
+        assertEquals(1, cache.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testInputStreamContentDeserializedAgainAfterEviction() {
+        DeserializedObjectCache cache = new DeserializedObjectCache(10, 1);
+        SerializedObject<InputStream> streamed = new SimpleSerializedObject<InputStream>(
+                new ByteArrayInputStream("streamed".getBytes()), InputStream.class, "java.lang.String", null);
+        SerializedObject<byte[]> other = new SimpleSerializedObject<byte[]>("other".getBytes(), byte[].class,
+                                                                             "java.lang.String", null);
+        LazyDeserializingObject<String> streamedObject = new LazyDeserializingObject<String>(streamed, serializer,
+                                                                                             cache);
+        LazyDeserializingObject<String> otherObject = new LazyDeserializingObject<String>(other, serializer, cache);
+
+        assertEquals("streamed", streamedObject.getObject());
+        assertEquals("other", otherObject.getObject());
+        assertFalse(streamedObject.isDeserialized());
+        assertEquals("streamed", streamedObject.getObject());
+    }
+}
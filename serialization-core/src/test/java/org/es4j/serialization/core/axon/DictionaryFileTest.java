@@ -0,0 +1,89 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import org.es4j.serialization.api.axon.SerializationException;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DictionaryFileTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.newFile("dictionary");
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testEntriesAreReadInOrder() throws Exception {
+        DictionaryFile testSubject = new DictionaryFile(file, 42, "test dictionary");
+        assertTrue(testSubject.readEntries().isEmpty());
+        testSubject.append("first".getBytes(IOUtils.UTF8));
+        testSubject.append(new byte[0]);
+        testSubject.append("third".getBytes(IOUtils.UTF8));
+
+        List<byte[]> entries = new DictionaryFile(file, 42, "test dictionary").readEntries();
+        assertEquals(3, entries.size());
+        assertEquals("first", new String(entries.get(0), IOUtils.UTF8));
+        assertEquals(0, entries.get(1).length);
+        assertEquals("third", new String(entries.get(2), IOUtils.UTF8));
+    }
+
+    @Test
+    public void testIncompleteEntryIsRemoved() throws Exception {
+        DictionaryFile testSubject = new DictionaryFile(file, 42, "test dictionary");
+        testSubject.readEntries();
+        testSubject.append("complete".getBytes(IOUtils.UTF8));
+        long length = file.length();
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[]{0, 0, 1, 0, 42});
+        out.close();
+
+        List<byte[]> entries = new DictionaryFile(file, 42, "test dictionary").readEntries();
+        assertEquals(1, entries.size());
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    public void testEntryLongerThanFileIsRemoved() throws Exception {
+        DictionaryFile testSubject = new DictionaryFile(file, 42, "test dictionary");
+        testSubject.readEntries();
+        testSubject.append("complete".getBytes(IOUtils.UTF8));
+        long length = file.length();
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[]{0x7F, -1, -1, -1, 42});
+        out.close();
+
+        assertEquals(1, new DictionaryFile(file, 42, "test dictionary").readEntries().size());
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    public void testNegativeEntryLengthIsRejected() throws Exception {
+        new DictionaryFile(file, 42, "test dictionary").readEntries();
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[]{-1, -1, -1, -2, 42});
+        out.close();
+        try {
+            new DictionaryFile(file, 42, "test dictionary").readEntries();
+            fail("Expected a SerializationException");
+        } catch (SerializationException e) {
+            assertTrue(e.getMessage().contains("invalid length"));
+        }
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testFileOfOtherDictionaryIsRejected() throws Exception {
+        new DictionaryFile(file, 42, "test dictionary").readEntries();
+        new DictionaryFile(file, 43, "other dictionary").readEntries();
+    }
+}
@@ -0,0 +1,32 @@
+package org.es4j.serialization.core.axon;
+
+import java.io.Serializable;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class InstantiatorsTest {
+
+    @Test
+    public void testInstanceIsCreatedWithoutInvokingConstructors() throws Exception {
+        assertTrue(Instantiators.isConstructorlessInstantiationSupported());
+        WithoutNoArgConstructor instance = Instantiators.constructorlessConstructor(WithoutNoArgConstructor.class)
+                                                        .newInstance();
+        assertNull(instance.value);
+        assertEquals(0, instance.initialized);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAbstractTypeIsRejected() {
+        Instantiators.constructorlessConstructor(Serializable.class);
+    }
+
+    private static class WithoutNoArgConstructor {
+
+        private final String value;
+        private int initialized = 1;
+
+        private WithoutNoArgConstructor(String value) {
+            this.value = value;
+        }
+    }
+}
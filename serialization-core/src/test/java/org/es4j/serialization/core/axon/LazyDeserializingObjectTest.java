@@ -16,6 +16,14 @@
 
 package org.es4j.serialization.core.axon;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.es4j.serialization.api.axon.SerializedObject;
 import org.es4j.serialization.api.axon.SerializedType;
 import org.es4j.serialization.api.axon.Serializer;
@@ -23,6 +31,8 @@ import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import static org.mockito.Mockito.*;
 
 /**
@@ -60,6 +70,71 @@ public class LazyDeserializingObjectTest {
         assertTrue(testSubject.isDeserialized());
     }
 
+    @Test
+    public void testTypeResolvedLazilyAndOnce() {
+        LazyDeserializingObject<Object> testSubject = new LazyDeserializingObject<Object>(mockObject, mockSerializer);
+        verify(mockSerializer, never()).classForType(Mockito.any(SerializedType.class));
+        assertEquals(String.class, testSubject.getType());
+        assertEquals(String.class, testSubject.getType());
+        verify(mockSerializer, times(1)).classForType(mockType);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDeserializedOnceWhenAccessedConcurrently() throws Exception {
+        final AtomicInteger deserializations = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        when(mockSerializer.deserialize(mockObject)).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                deserializations.incrementAndGet();
+                started.countDown();
+                Thread.sleep(50);
+                return mockDeserializedObject;
+            }
+        });
+        final LazyDeserializingObject<Object> testSubject =
+                new LazyDeserializingObject<Object>(mockObject, mockSerializer);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        return testSubject.getObject();
+                    }
+                }));
+            }
+            started.await();
+            for (Future<Object> result : results) {
+                assertSame(mockDeserializedObject, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, deserializations.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testReleaseSerializedObject() {
+        when(mockSerializer.deserialize(mockObject)).thenThrow(new IllegalStateException("failure"))
+                                                    .thenReturn(mockDeserializedObject);
+        LazyDeserializingObject<Object> testSubject =
+                new LazyDeserializingObject<Object>(mockObject, mockSerializer, true);
+        try {
+            testSubject.getObject();
+            fail("Expected deserialization to fail");
+        } catch (IllegalStateException e) {
+            assertFalse(testSubject.isDeserialized());
+        }
+        assertSame(mockDeserializedObject, testSubject.getObject());
+        assertSame(mockDeserializedObject, testSubject.getObject());
+        assertEquals(String.class, testSubject.getType());
+        verify(mockSerializer, times(2)).deserialize(mockObject);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testLazilyDeserialized_NullObject() {
         new LazyDeserializingObject<Object>(null, mockSerializer);
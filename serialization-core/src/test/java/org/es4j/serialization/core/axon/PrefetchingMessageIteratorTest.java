@@ -0,0 +1,163 @@
+package org.es4j.serialization.core.axon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.es4j.messaging.api.axon.EventMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.Serializer;
+import org.joda.time.DateTime;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class PrefetchingMessageIteratorTest {
+
+    private Serializer serializer;
+    private List<SerializedObject<byte[]>> payloads;
+    private List<EventMessage<String>> messages;
+
+    @Before
+    public void setUp() {
+        serializer = mock(Serializer.class);
+        when(serializer.deserialize(any(SerializedObject.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                SerializedObject serializedObject = (SerializedObject) invocation.getArguments()[0];
+                if (serializedObject instanceof SerializedMetaData) {
+                    return MetaData.emptyInstance();
+                }
+                return new String((byte[]) serializedObject.getData());
+            }
+        });
+        payloads = new ArrayList<SerializedObject<byte[]>>();
+        messages = new ArrayList<EventMessage<String>>();
+        for (int i = 0; i < 10; i++) {
+            SerializedObject<byte[]> payload = new SimpleSerializedObject<byte[]>(("payload" + i).getBytes(),
+                                                                                  byte[].class,
+                                                                                  "java.lang.String", null);
+            payloads.add(payload);
+            messages.add(new SerializedEventMessage<String>("event" + i, new DateTime(), payload,
+                                                            new SerializedMetaData<byte[]>(new byte[0],
+                                                                                           byte[].class),
+                                                            serializer));
+        }
+    }
+
+    @Test
+    public void testMessagesReturnedInOrderAndDeserializedOnce() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            PrefetchingMessageIterator<EventMessage<String>> iterator =
+                    new PrefetchingMessageIterator<EventMessage<String>>(messages.iterator(), executor, 3);
+            int i = 0;
+            while (iterator.hasNext()) {
+                EventMessage<String> message = iterator.next();
+                assertSame(messages.get(i), message);
+                assertEquals("payload" + i, message.getPayload());
+                i++;
+            }
+            assertEquals(messages.size(), i);
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        for (SerializedObject<byte[]> payload : payloads) {
+            verify(serializer, times(1)).deserialize(payload);
+        }
+    }
+
+    @Test
+    public void testLookAheadIsBounded() {
+        ManualExecutor executor = new ManualExecutor();
+        PrefetchingMessageIterator<EventMessage<String>> iterator =
+                new PrefetchingMessageIterator<EventMessage<String>>(messages.iterator(), executor, 3);
+
+        assertEquals(0, executor.tasks.size());
+        assertSame(messages.get(0), iterator.next());
+        assertEquals(4, executor.tasks.size());
+        executor.runAll();
+        assertFalse(((SerializedEventMessage) messages.get(0)).isPayloadDeserialized());
+        assertTrue(((SerializedEventMessage) messages.get(3)).isPayloadDeserialized());
+        assertFalse(((SerializedEventMessage) messages.get(4)).isPayloadDeserialized());
+
+        assertSame(messages.get(1), iterator.next());
+        assertEquals(1, executor.tasks.size());
+        iterator.cancel();
+        executor.runAll();
+        assertFalse(((SerializedEventMessage) messages.get(4)).isPayloadDeserialized());
+        assertSame(messages.get(2), iterator.next());
+        assertEquals(0, executor.tasks.size());
+        assertEquals("payload0", messages.get(0).getPayload());
+    }
+
+    @Test
+    public void testDeserializesInlineWhenExecutorRejectsTasks() {
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("busy");
+            }
+        };
+        Iterator<EventMessage<String>> iterator =
+                new PrefetchingMessageIterator<EventMessage<String>>(messages.iterator(), executor, 2, true);
+        List<String> actual = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            actual.add(iterator.next().getPayload());
+        }
+        assertEquals(10, actual.size());
+        assertEquals("payload9", actual.get(9));
+    }
+
+    @Test
+    public void testMetaDataIsPrefetchedWhenPayloadIsAlreadyDeserialized() {
+        SerializedEventMessage<String> first = (SerializedEventMessage<String>) messages.get(0);
+        SerializedEventMessage<String> second = (SerializedEventMessage<String>) messages.get(1);
+        second.getPayload();
+        ManualExecutor executor = new ManualExecutor();
+        PrefetchingMessageIterator<EventMessage<String>> iterator =
+                new PrefetchingMessageIterator<EventMessage<String>>(messages.iterator(), executor, 1, true);
+
+        assertSame(first, iterator.next());
+        assertEquals(2, executor.tasks.size());
+        executor.runAll();
+        assertTrue(second.isMetaDataDeserialized());
+        assertFalse(first.isMetaDataDeserialized());
+        assertSame(MetaData.emptyInstance(), second.getMetaData());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRemoveNotSupported() {
+        new PrefetchingMessageIterator<EventMessage<String>>(Arrays.asList(messages.get(0)).iterator(),
+                                                             new ManualExecutor(), 1).remove();
+    }
+
+    private static class ManualExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        private void runAll() {
+            List<Runnable> toRun = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+            for (Runnable task : toRun) {
+                task.run();
+            }
+        }
+    }
+}
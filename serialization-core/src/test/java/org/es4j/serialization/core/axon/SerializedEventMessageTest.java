@@ -1,5 +1,6 @@
 package org.es4j.serialization.core.axon;
 
+import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.Map;
 import org.es4j.messaging.api.axon.EventMessage;
@@ -13,6 +14,8 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -53,6 +56,69 @@ public class SerializedEventMessageTest {
         assertTrue(message1.isPayloadDeserialized());
     }
 
+    @Test
+    public void testConstructor_WithPayloadCache() {
+        DeserializedObjectCache cache = new DeserializedObjectCache(1024);
+        SerializedEventMessage<Object> message = new SerializedEventMessage<Object>(eventId, timestamp,
+                                                                                    serializedPayload,
+                                                                                    serializedMetaData, serializer,
+                                                                                    cache);
+
+        assertFalse(message.isPayloadDeserialized());
+        assertSame(deserializedPayload, message.getPayload());
+        assertTrue(message.isPayloadDeserialized());
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertFalse(message.isPayloadDeserialized());
+        assertSame(deserializedPayload, message.getPayload());
+    }
+
+    @Test
+    public void testConstructor_ReleasingSerializedObjects() throws InterruptedException {
+        // a stub rather than a mock, as a mock would keep references to the serialized objects passed to it
+        Serializer stubSerializer = new Serializer() {
+            @Override
+            public <T> SerializedObject<T> serialize(Object object, Class<T> expectedRepresentation) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+                return false;
+            }
+
+            @Override
+            public <T> Object deserialize(SerializedObject<T> serializedObject) {
+                return serializedObject instanceof SerializedMetaData ? deserializedMetaData : deserializedPayload;
+            }
+
+            @Override
+            public Class classForType(SerializedType type) {
+                return Object.class;
+            }
+        };
+        SerializedObject<byte[]> payload = new SimpleSerializedObject<byte[]>(new byte[16], byte[].class,
+                                                                              "java.lang.Object", "1");
+        SerializedObject<byte[]> metaData = new SerializedMetaData<byte[]>(new byte[16], byte[].class);
+        WeakReference<Object> payloadReference = new WeakReference<Object>(payload);
+        WeakReference<Object> metaDataReference = new WeakReference<Object>(metaData);
+        SerializedEventMessage<Object> message = new SerializedEventMessage<Object>(eventId, timestamp, payload,
+                                                                                    metaData, stubSerializer,
+                                                                                    true);
+        payload = null;
+        metaData = null;
+
+        assertSame(deserializedPayload, message.getPayload());
+        assertSame(deserializedMetaData, message.getMetaData());
+        for (int i = 0; i < 20 && (payloadReference.get() != null || metaDataReference.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("Serialized payload is still referenced", payloadReference.get());
+        assertNull("Serialized meta data is still referenced", metaDataReference.get());
+        assertSame(deserializedPayload, message.getPayload());
+    }
+
     @Test
     public void testWithMetaData() {
         Map<String, Object> metaDataMap = Collections.singletonMap("key", (Object) "value");
@@ -85,4 +151,19 @@ public class SerializedEventMessageTest {
         assertEquals(1, message2.getMetaData().size());
         assertEquals("otherValue", message2.getMetaData().get("key"));
     }
+
+    @Test
+    public void testAndMetaData_DefersDeserialization() {
+        SerializedEventMessage<Object> message = new SerializedEventMessage<Object>(eventId, timestamp,
+                                                                                    serializedPayload,
+                                                                                    serializedMetaData, serializer);
+        SerializedEventMessage<Object> message1 = message.andMetaData(Collections.singletonMap("key", (Object) 1));
+
+        assertEquals(eventId, message1.getIdentifier());
+        assertSame(timestamp, message1.getTimestamp());
+        assertFalse(message1.isMetaDataDeserialized());
+        verify(serializer, never()).deserialize(serializedMetaData);
+        assertEquals(1, message1.getMetaData().get("key"));
+        assertSame(message1, message1.andMetaData(MetaData.emptyInstance()));
+    }
 }
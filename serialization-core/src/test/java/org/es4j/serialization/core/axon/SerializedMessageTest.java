@@ -12,6 +12,9 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -82,4 +85,26 @@ public class SerializedMessageTest {
         assertEquals(1, message2.getMetaData().size());
         assertEquals("otherValue", message2.getMetaData().get("key"));
     }
+
+    @Test
+    public void testAndMetaData_DefersDeserialization() {
+        Map<String, Object> metaDataMap = Collections.singletonMap("key", (Object) "value");
+        when(serializer.deserialize(serializedMetaData)).thenReturn(MetaData.from(metaDataMap));
+        SerializedMessage<Object> message = new SerializedMessage<Object>(eventId, serializedPayload,
+                                                                          serializedMetaData, serializer);
+        SerializedMessage<Object> message1 = message.andMetaData(Collections.singletonMap("first", (Object) 1))
+                                                    .andMetaData(Collections.singletonMap("second", (Object) 2));
+        SerializedMessage<Object> message2 = message.withMetaData(Collections.singletonMap("key", (Object) "value"));
+
+        assertNotSame(message, message2);
+        assertFalse(message1.isMetaDataDeserialized());
+        verify(serializer, never()).deserialize(serializedMetaData);
+
+        assertEquals(3, message1.getMetaData().size());
+        assertEquals("value", message1.getMetaData().get("key"));
+        assertEquals(2, message1.getMetaData().get("second"));
+        assertTrue(message.isMetaDataDeserialized());
+        assertSame(message, message.withMetaData(Collections.singletonMap("key", (Object) "value")));
+        verify(serializer, times(1)).deserialize(serializedMetaData);
+    }
 }
@@ -0,0 +1,43 @@
+package org.es4j.serialization.core.axon;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ThreadLocalBuffersTest {
+
+    private ThreadLocalBuffers testSubject = new ThreadLocalBuffers(4096);
+
+    @Test
+    public void testBufferIsReusedAfterRelease() {
+        ReusableByteArrayOutputStream buffer = testSubject.acquire();
+        buffer.write(1);
+        testSubject.release(buffer);
+
+        ReusableByteArrayOutputStream reused = testSubject.acquire();
+        assertSame(buffer, reused);
+        assertEquals(0, reused.size());
+    }
+
+    @Test
+    public void testNestedAcquireGetsSeparateBuffer() {
+        ReusableByteArrayOutputStream outer = testSubject.acquire();
+        outer.write(1);
+        ReusableByteArrayOutputStream nested = testSubject.acquire();
+        assertNotSame(outer, nested);
+        nested.write(2);
+        testSubject.release(nested);
+
+        assertArrayEquals(new byte[]{1}, outer.toByteArray());
+        testSubject.release(outer);
+        assertSame(outer, testSubject.acquire());
+    }
+
+    @Test
+    public void testLargeBufferIsNotRetained() {
+        ReusableByteArrayOutputStream buffer = testSubject.acquire();
+        buffer.write(new byte[8192], 0, 8192);
+        testSubject.release(buffer);
+
+        assertNotSame(buffer, testSubject.acquire());
+    }
+}
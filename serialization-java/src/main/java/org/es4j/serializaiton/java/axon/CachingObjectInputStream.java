@@ -0,0 +1,31 @@
+package org.es4j.serializaiton.java.axon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * ObjectInputStream that resolves the classes of the objects it reads using a {@link ClassResolver}, so that classes
+ * are looked up in the class loader only once.
+ *
+ * @since 2.0
+ */
+class CachingObjectInputStream extends ObjectInputStream {
+
+    private final ClassResolver classResolver;
+
+    CachingObjectInputStream(InputStream in, ClassResolver classResolver) throws IOException {
+        super(in);
+        this.classResolver = classResolver;
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        return classResolver.resolve(desc.getName());
+    }
+
+    ClassResolver getClassResolver() {
+        return classResolver;
+    }
+}
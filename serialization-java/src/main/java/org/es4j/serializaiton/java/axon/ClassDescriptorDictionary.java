@@ -0,0 +1,45 @@
+package org.es4j.serializaiton.java.axon;
+
+import java.io.IOException;
+import java.io.ObjectStreamClass;
+
+/**
+ * Dictionary of class descriptors, allowing serialized objects to refer to the descriptors of their classes by a small
+ * number instead of containing the full descriptor. Dictionaries are append-only: once assigned, the identifier of a
+ * descriptor never changes, so that data written with an earlier version of the dictionary remains readable.
+ * <p/>
+ * A descriptor describes a specific version of a class, including its serialVersionUID and fields. When a class
+ * changes, its new descriptor is assigned a new identifier, while the old one remains available to read data written
+ * before the change.
+ * <p/>
+ * Implementations must be thread safe.
+ *
+ * @see JavaSerializer#setClassDescriptorDictionary(ClassDescriptorDictionary)
+ * @since 2.0
+ */
+public interface ClassDescriptorDictionary {
+
+    /**
+     * Returns the identifier of the given <code>descriptor</code>, adding the descriptor to this dictionary if it is
+     * not present yet.
+     *
+     * @param descriptor The descriptor of the class being serialized
+     * @return the identifier of the given descriptor
+     *
+     * @throws IOException if the descriptor could not be added to this dictionary
+     */
+    int identifierOf(ObjectStreamClass descriptor) throws IOException;
+
+    /**
+     * Returns the descriptor with the given <code>identifier</code>, as it was when it was added to this dictionary.
+     *
+     * @param identifier  The identifier of the descriptor
+     * @param classLoader The class loader to resolve the described class with
+     * @return the descriptor with the given identifier
+     *
+     * @throws IOException            if this dictionary does not contain the identifier or the descriptor is corrupt
+     * @throws ClassNotFoundException if the described class cannot be found
+     */
+    ObjectStreamClass descriptorFor(int identifier, ClassLoader classLoader) throws IOException,
+                                                                                    ClassNotFoundException;
+}
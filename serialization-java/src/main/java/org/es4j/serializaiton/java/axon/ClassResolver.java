@@ -0,0 +1,140 @@
+package org.es4j.serializaiton.java.axon;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves classes by name using a single class loader, caching the result. Names that cannot be resolved are cached
+ * as well, for {@link #MISS_RETRY_INTERVAL} milliseconds, after which resolving them is attempted again. This allows
+ * classes to become available later on, while limiting the number of class loader lookups and warnings for classes
+ * that are missing.
+ *
+ * @since 2.0
+ */
+final class ClassResolver {
+
+    /**
+     * The number of milliseconds a name that could not be resolved is remembered as such.
+     */
+    static final long MISS_RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Logger logger = LoggerFactory.getLogger(JavaSerializer.class);
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+
+    static {
+        for (Class<?> type : new Class<?>[]{boolean.class, byte.class, char.class, short.class, int.class, long.class,
+                float.class, double.class, void.class}) {
+            PRIMITIVE_TYPES.put(type.getName(), type);
+        }
+    }
+
+    private final ClassLoader classLoader;
+    private final ConcurrentMap<String, Object> cache = new ConcurrentHashMap<String, Object>();
+
+    ClassResolver(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    /**
+     * Returns the class with the given <code>name</code>, or <code>null</code> if it cannot be found. A warning
+     * mentioning the <code>revision</code> is logged the first time a name cannot be resolved, and at most once per
+     * retry interval after that.
+     */
+    Class<?> resolve(String name, String revision) {
+        Object cached = cache.get(name);
+        if (cached instanceof Class) {
+            return (Class<?>) cached;
+        }
+        Miss previousMiss = (Miss) cached;
+        if (previousMiss != null && !previousMiss.isExpired()) {
+            previousMiss.suppressedCount.incrementAndGet();
+            return null;
+        }
+        Object resolved = load(name, previousMiss);
+        if (resolved instanceof Class) {
+            return (Class<?>) resolved;
+        }
+        Miss miss = (Miss) resolved;
+        if (miss.logWarning()) {
+            int suppressed = previousMiss == null ? 0 : previousMiss.suppressedCount.get();
+            if (suppressed > 0) {
+                logger.warn("Could not load class for serialized type [{}] revision {} "
+                                    + "({} more lookups failed since the last warning)",
+                            new Object[]{name, revision, suppressed});
+            } else {
+                logger.warn("Could not load class for serialized type [{}] revision {}", name, revision);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the class with the given <code>name</code>, as needed to resolve classes while deserializing.
+     *
+     * @throws ClassNotFoundException if the class cannot be found
+     */
+    Class<?> resolve(String name) throws ClassNotFoundException {
+        Object cached = cache.get(name);
+        if (cached instanceof Class) {
+            return (Class<?>) cached;
+        }
+        Miss previousMiss = (Miss) cached;
+        if (previousMiss == null || previousMiss.isExpired()) {
+            cached = load(name, previousMiss);
+            if (cached instanceof Class) {
+                return (Class<?>) cached;
+            }
+        }
+        throw new ClassNotFoundException(name);
+    }
+
+    /**
+     * Loads the class with the given <code>name</code>, and caches the result. Returns the class, or the {@link Miss}
+     * cached if it could not be found.
+     */
+    private Object load(String name, Miss previousMiss) {
+        Object result = PRIMITIVE_TYPES.get(name);
+        if (result == null) {
+            try {
+                result = Class.forName(name, false, classLoader);
+            } catch (ClassNotFoundException e) {
+                result = new Miss();
+            } catch (LinkageError e) {
+                logger.debug("Class {} could not be linked", name, e);
+                result = new Miss();
+            }
+        }
+        boolean replaced = previousMiss == null
+                ? cache.putIfAbsent(name, result) == null
+                : cache.replace(name, previousMiss, result);
+        return replaced ? result : cache.get(name);
+    }
+
+    private static final class Miss {
+
+        private final long expiresAt = System.currentTimeMillis() + MISS_RETRY_INTERVAL;
+        private final AtomicInteger suppressedCount = new AtomicInteger();
+        private final AtomicInteger warnings = new AtomicInteger();
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+        /**
+         * Returns <code>true</code> only for the first caller, so that a single warning is logged per miss.
+         */
+        private boolean logWarning() {
+            return warnings.getAndIncrement() == 0;
+        }
+    }
+}
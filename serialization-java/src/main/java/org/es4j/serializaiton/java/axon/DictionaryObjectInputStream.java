@@ -0,0 +1,46 @@
+package org.es4j.serializaiton.java.axon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+
+/**
+ * ObjectInputStream that reads streams written by a {@link DictionaryObjectOutputStream}, looking up class descriptors
+ * in a {@link ClassDescriptorDictionary}.
+ *
+ * @since 2.0
+ */
+final class DictionaryObjectInputStream extends CachingObjectInputStream {
+
+    private final ClassDescriptorDictionary dictionary;
+
+    DictionaryObjectInputStream(InputStream in, ClassDescriptorDictionary dictionary, ClassResolver classResolver)
+            throws IOException {
+        super(in, classResolver);
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    protected void readStreamHeader() throws IOException {
+        short magic = readShort();
+        short version = readShort();
+        if (magic != DictionaryObjectOutputStream.STREAM_MAGIC
+                || version != DictionaryObjectOutputStream.STREAM_VERSION) {
+            throw new StreamCorruptedException(String.format("invalid stream header: %04X%04X", magic, version));
+        }
+    }
+
+    @Override
+    protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+        int identifier = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readUnsignedByte();
+            identifier |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return dictionary.descriptorFor(identifier, getClassResolver().getClassLoader());
+            }
+        }
+        throw new StreamCorruptedException("Malformed class descriptor identifier");
+    }
+}
@@ -0,0 +1,46 @@
+package org.es4j.serializaiton.java.axon;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+
+/**
+ * ObjectOutputStream that writes the identifier of each class descriptor in a {@link ClassDescriptorDictionary},
+ * instead of the descriptor itself. The stream starts with a header of its own, so that it can be told apart from a
+ * plain Java serialization stream.
+ *
+ * @since 2.0
+ */
+final class DictionaryObjectOutputStream extends ObjectOutputStream {
+
+    /**
+     * The first two bytes of a stream written with a dictionary. A plain Java serialization stream starts with
+     * <code>0xACED</code> instead.
+     */
+    static final short STREAM_MAGIC = (short) 0xE54A;
+    static final short STREAM_VERSION = 1;
+
+    private final ClassDescriptorDictionary dictionary;
+
+    DictionaryObjectOutputStream(OutputStream out, ClassDescriptorDictionary dictionary) throws IOException {
+        super(out);
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    protected void writeStreamHeader() throws IOException {
+        writeShort(STREAM_MAGIC);
+        writeShort(STREAM_VERSION);
+    }
+
+    @Override
+    protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+        int identifier = dictionary.identifierOf(desc);
+        while ((identifier & ~0x7F) != 0) {
+            write((identifier & 0x7F) | 0x80);
+            identifier >>>= 7;
+        }
+        write(identifier);
+    }
+}
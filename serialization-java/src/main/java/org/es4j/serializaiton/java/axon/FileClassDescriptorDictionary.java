@@ -0,0 +1,44 @@
+package org.es4j.serializaiton.java.axon;
+
+import java.io.File;
+import java.io.IOException;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.core.axon.DictionaryFile;
+
+/**
+ * ClassDescriptorDictionary that stores its descriptors in a file. Existing entries are read when the dictionary is
+ * created, and new entries are appended to the file before they are used. The file must not be written to by other
+ * dictionary instances, in this or any other process, while this dictionary is in use.
+ * <p/>
+ * The file is a {@link DictionaryFile} containing the serialized descriptors. An incomplete entry at the end of the
+ * file, left by a process that stopped while writing it, is removed when the file is read.
+ *
+ * @since 2.0
+ */
+public class FileClassDescriptorDictionary extends InMemoryClassDescriptorDictionary {
+
+    private static final int MAGIC = 0xE54AD1C7;
+
+    private final DictionaryFile dictionaryFile;
+
+    /**
+     * Initializes a dictionary that stores its descriptors in the given <code>file</code>. If the file exists, the
+     * descriptors it contains are loaded. Otherwise, it is created.
+     *
+     * @param file The file to store the descriptors in
+     * @throws SerializationException if the file cannot be read or created, or is not a dictionary file
+     */
+    public FileClassDescriptorDictionary(File file) {
+        this(new DictionaryFile(file, MAGIC, "class descriptor dictionary"));
+    }
+
+    private FileClassDescriptorDictionary(DictionaryFile dictionaryFile) {
+        super(dictionaryFile.readEntries());
+        this.dictionaryFile = dictionaryFile;
+    }
+
+    @Override
+    protected void entryAdded(int identifier, byte[] entry) throws IOException {
+        dictionaryFile.append(entry);
+    }
+}
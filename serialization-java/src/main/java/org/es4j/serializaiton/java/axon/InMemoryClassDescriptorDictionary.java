@@ -0,0 +1,178 @@
+package org.es4j.serializaiton.java.axon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ClassDescriptorDictionary that keeps its descriptors in memory. Each descriptor is kept in its Java serialized form,
+ * which is also what identifies it: descriptors of different versions of a class have a different serialized form.
+ * Entries are only turned into descriptors again when they are needed to read data. As a descriptor refers to the
+ * class it describes, descriptors are cached per class loader. They are held softly, so that the cache does not prevent
+ * class loaders from being garbage collected. Likewise, the identifiers of the descriptors written are cached per class
+ * without holding on to the classes.
+ * <p/>
+ * The entries of a dictionary can be obtained using {@link #getEntries()}, and passed to {@link
+ * #InMemoryClassDescriptorDictionary(java.util.List)} to restore the dictionary. Subclasses may store new entries
+ * elsewhere by overriding {@link #entryAdded(int, byte[])}.
+ *
+ * @since 2.0
+ */
+public class InMemoryClassDescriptorDictionary implements ClassDescriptorDictionary {
+
+    private final List<byte[]> entries = new ArrayList<byte[]>();
+    private final Map<ByteBuffer, Integer> identifiersByEntry = new HashMap<ByteBuffer, Integer>();
+    // holds no references to classes in its values, so that identifiers do not keep classes or their loaders reachable
+    private final ClassValue<AtomicInteger> identifiers = new ClassValue<AtomicInteger>() {
+        @Override
+        protected AtomicInteger computeValue(Class<?> type) {
+            return new AtomicInteger(-1);
+        }
+    };
+    private final Map<ClassLoader, ConcurrentMap<Integer, SoftReference<ObjectStreamClass>>> descriptorsByLoader =
+            new WeakHashMap<ClassLoader, ConcurrentMap<Integer, SoftReference<ObjectStreamClass>>>();
+
+    /**
+     * Initializes an empty dictionary.
+     */
+    public InMemoryClassDescriptorDictionary() {
+    }
+
+    /**
+     * Initializes a dictionary containing the given <code>entries</code>, as returned by {@link #getEntries()}. The
+     * identifier of each entry is its index in the list.
+     *
+     * @param entries The serialized descriptors to initialize the dictionary with
+     */
+    public InMemoryClassDescriptorDictionary(List<byte[]> entries) {
+        for (byte[] entry : entries) {
+            addEntry(entry);
+        }
+    }
+
+    @Override
+    public int identifierOf(ObjectStreamClass descriptor) throws IOException {
+        Class<?> describedClass = descriptor.forClass();
+        AtomicInteger cachedIdentifier = describedClass == null ? null : identifiers.get(describedClass);
+        if (cachedIdentifier != null && cachedIdentifier.get() >= 0) {
+            return cachedIdentifier.get();
+        }
+        byte[] entry = encode(descriptor);
+        Integer identifier;
+        synchronized (entries) {
+            identifier = identifiersByEntry.get(ByteBuffer.wrap(entry));
+            if (identifier == null) {
+                identifier = entries.size();
+                entryAdded(identifier, entry);
+                addEntry(entry);
+            }
+        }
+        if (cachedIdentifier != null) {
+            cachedIdentifier.set(identifier);
+        }
+        return identifier;
+    }
+
+    @Override
+    public ObjectStreamClass descriptorFor(int identifier, ClassLoader classLoader) throws IOException,
+                                                                                           ClassNotFoundException {
+        ConcurrentMap<Integer, SoftReference<ObjectStreamClass>> descriptors = descriptorsFor(classLoader);
+        SoftReference<ObjectStreamClass> reference = descriptors.get(identifier);
+        ObjectStreamClass descriptor = reference == null ? null : reference.get();
+        if (descriptor == null) {
+            byte[] entry;
+            synchronized (entries) {
+                if (identifier < 0 || identifier >= entries.size()) {
+                    throw new InvalidObjectException("Unknown class descriptor identifier: " + identifier);
+                }
+                entry = entries.get(identifier);
+            }
+            descriptor = decode(entry, classLoader);
+            descriptors.put(identifier, new SoftReference<ObjectStreamClass>(descriptor));
+        }
+        return descriptor;
+    }
+
+    private ConcurrentMap<Integer, SoftReference<ObjectStreamClass>> descriptorsFor(ClassLoader classLoader) {
+        synchronized (descriptorsByLoader) {
+            ConcurrentMap<Integer, SoftReference<ObjectStreamClass>> descriptors =
+                    descriptorsByLoader.get(classLoader);
+            if (descriptors == null) {
+                descriptors = new ConcurrentHashMap<Integer, SoftReference<ObjectStreamClass>>();
+                descriptorsByLoader.put(classLoader, descriptors);
+            }
+            return descriptors;
+        }
+    }
+
+    /**
+     * Returns the serialized form of the descriptors in this dictionary, ordered by their identifier.
+     *
+     * @return the serialized form of the descriptors in this dictionary
+     */
+    public List<byte[]> getEntries() {
+        synchronized (entries) {
+            return Collections.unmodifiableList(new ArrayList<byte[]>(entries));
+        }
+    }
+
+    /**
+     * Invoked when a new entry is about to be added to this dictionary. The entry is only added if this method returns
+     * normally. This implementation does nothing.
+     *
+     * @param identifier The identifier of the new entry
+     * @param entry      The serialized form of the descriptor
+     * @throws IOException if the entry could not be stored
+     */
+    protected void entryAdded(int identifier, byte[] entry) throws IOException {
+    }
+
+    private void addEntry(byte[] entry) {
+        synchronized (entries) {
+            identifiersByEntry.put(ByteBuffer.wrap(entry), entries.size());
+            entries.add(entry);
+        }
+    }
+
+    private static byte[] encode(ObjectStreamClass descriptor) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(descriptor);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static ObjectStreamClass decode(byte[] entry, final ClassLoader classLoader) throws IOException,
+                                                                                             ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(entry)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    return super.resolveClass(desc);
+                }
+            }
+        };
+        try {
+            return (ObjectStreamClass) in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -17,33 +17,115 @@
 package org.es4j.serializaiton.java.axon;
 
 import java.io.*;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 import org.es4j.serialization.api.axon.SerializationException;
 import org.es4j.serialization.api.axon.SerializedObject;
 import org.es4j.serialization.api.axon.SerializedType;
-import org.es4j.serialization.api.axon.Serializer;
+import org.es4j.serialization.api.axon.StreamingSerializer;
 import org.es4j.serialization.core.axon.*;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Serializer implementation that uses Java serialization to serialize and deserialize object instances. This
  * implementation is very suitable if the life span of the serialized objects allows classes to remain unchanged. If
  * Class definitions need to be changed during the object's life cycle, another implementation, like the
  * {@link org.axonframework.serializer.xml.XStreamSerializer} might be a more suitable alternative.
+ * <p/>
+ * Objects are serialized into a buffer that is reused by the current thread, and copied once into the requested
+ * <code>byte[]</code>, <code>ByteBuffer</code> or <code>InputStream</code>. Other representations are provided by the
+ * {@link ConverterFactory}. Use the {@link StreamingSerializer} methods to write the serialized form directly to a
+ * stream or channel instead.
+ * <p/>
+ * Optionally, class descriptors can be kept in a {@link #setClassDescriptorDictionary(ClassDescriptorDictionary)
+ * class descriptor dictionary}, rather than being repeated in each serialized object.
  *
  * @author Allard Buijze
  * @since 2.0
  */
-public class JavaSerializer implements Serializer {
+public class JavaSerializer implements StreamingSerializer {
 
-    private static final Logger logger = LoggerFactory.getLogger(JavaSerializer.class);
-    private final ConverterFactory converterFactory = new ChainingConverterFactory();
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+    private static final int CHANNEL_BUFFER_SIZE = 8192;
+
+    private final ConverterFactory converterFactory;
+    private volatile ClassDescriptorDictionary classDescriptorDictionary;
+    private volatile ClassResolver classResolver;
+    // resolvers for context class loaders, used when no class loader has been configured
+    private final Map<ClassLoader, SoftReference<ClassResolver>> contextClassResolvers =
+            Collections.synchronizedMap(new WeakHashMap<ClassLoader, SoftReference<ClassResolver>>());
+    private final ThreadLocalBuffers buffers = new ThreadLocalBuffers(MAX_RETAINED_BUFFER_SIZE);
+
+    /**
+     * Initialize a JavaSerializer that uses the {@link ChainingConverterFactory#sharedInstance() shared converter
+     * factory} to convert the serialized form to the requested representation.
+     */
+    public JavaSerializer() {
+        this(ChainingConverterFactory.sharedInstance());
+    }
+
+    /**
+     * Initialize a JavaSerializer that uses the given <code>converterFactory</code> to convert the serialized form to
+     * the requested representation.
+     *
+     * @param converterFactory The ConverterFactory providing the necessary content converters
+     */
+    public JavaSerializer(ConverterFactory converterFactory) {
+        this.converterFactory = converterFactory;
+    }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> SerializedObject<T> serialize(Object instance, Class<T> expectedType) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ReusableByteArrayOutputStream buffer = buffers.acquire();
+        try {
+            writeObject(instance, buffer);
+            T result;
+            if (byte[].class.equals(expectedType)) {
+                result = (T) buffer.toByteArray();
+            } else if (ByteBuffer.class.equals(expectedType)) {
+                result = (T) ByteBuffer.wrap(buffer.toByteArray());
+            } else if (InputStream.class.equals(expectedType)) {
+                result = (T) new ByteArrayInputStream(buffer.toByteArray());
+            } else {
+                result = converterFactory.getConverter(byte[].class, expectedType).convert(buffer.toByteArray());
+            }
+            return new SimpleSerializedObject<T>(result, expectedType, instance.getClass().getName(),
+                                                 revisionOf(instance.getClass()));
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    @Override
+    public SerializedType serialize(Object instance, OutputStream outputStream) {
+        writeObject(instance, outputStream);
+        return new SimpleSerializedType(instance.getClass().getName(), revisionOf(instance.getClass()));
+    }
+
+    @Override
+    public SerializedType serialize(Object instance, WritableByteChannel channel) {
+        OutputStream outputStream = new BufferedOutputStream(Channels.newOutputStream(channel), CHANNEL_BUFFER_SIZE);
+        SerializedType serializedType = serialize(instance, outputStream);
         try {
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new SerializationException("An exception occurred writing serialized data to the channel", e);
+        }
+        return serializedType;
+    }
+
+    private void writeObject(Object instance, OutputStream outputStream) {
+        try {
+            ClassDescriptorDictionary dictionary = classDescriptorDictionary;
+            ObjectOutputStream oos = dictionary == null
+                    ? new ObjectOutputStream(outputStream)
+                    : new DictionaryObjectOutputStream(outputStream, dictionary);
             try {
                 oos.writeObject(instance);
             } finally {
@@ -52,11 +134,6 @@ public class JavaSerializer implements Serializer {
         } catch (IOException e) {
             throw new SerializationException("An exception occurred writing serialized data to the output stream", e);
         }
-        new SimpleSerializedType(instance.getClass().getName(), revisionOf(instance.getClass()));
-        T converted = converterFactory.getConverter(byte[].class, expectedType)
-                                      .convert(baos.toByteArray());
-        return new SimpleSerializedObject<T>(converted, expectedType, instance.getClass().getName(),
-                                             revisionOf(instance.getClass()));
     }
 
     @Override
@@ -71,27 +148,120 @@ public class JavaSerializer implements Serializer {
                                                                   .convert(serializedObject);
         InputStream stream = converted.getData();
         try {
-            ObjectInputStream ois = new ObjectInputStream(stream);
-            return ois.readObject();
-        } catch (ClassNotFoundException e) {
-            throw new SerializationException("An error occurred while deserializing: " + e.getMessage(), e);
-        } catch (IOException e) {
-            throw new SerializationException("The theoretically impossible has just happened: "
-                                                     + "An IOException while reading to a ByteArrayInputStream.", e);
+            return readObject(stream);
         } finally {
             IOUtils.closeQuietly(stream);
         }
     }
 
     @Override
-    public Class classForType(SerializedType type) {
+    public Object deserialize(SerializedType type, InputStream inputStream) {
+        return readObject(inputStream);
+    }
+
+    @Override
+    public Object deserialize(SerializedType type, ReadableByteChannel channel) {
+        return readObject(new BufferedInputStream(Channels.newInputStream(channel), CHANNEL_BUFFER_SIZE));
+    }
+
+    private Object readObject(InputStream stream) {
         try {
-            return Class.forName(type.getName());
+            ObjectInputStream ois = openObjectInputStream(stream);
+            return ois.readObject();
         } catch (ClassNotFoundException e) {
-            logger.warn("Could not load class for serialized type [{}] revision {}",
-                        type.getName(), type.getRevision());
-            return null;
+            throw new SerializationException("An error occurred while deserializing: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new SerializationException("An error occurred while reading serialized data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens an ObjectInputStream for the given <code>stream</code>, which may have been written with or without a
+     * class descriptor dictionary.
+     */
+    private ObjectInputStream openObjectInputStream(InputStream stream) throws IOException {
+        PushbackInputStream pushbackStream = new PushbackInputStream(stream, 2);
+        int first = pushbackStream.read();
+        int second = pushbackStream.read();
+        if (second >= 0) {
+            pushbackStream.unread(second);
+        }
+        if (first >= 0) {
+            pushbackStream.unread(first);
+        }
+        ClassResolver resolver = classResolver();
+        if (((first << 8) | second) != (DictionaryObjectOutputStream.STREAM_MAGIC & 0xFFFF)) {
+            return new CachingObjectInputStream(pushbackStream, resolver);
         }
+        ClassDescriptorDictionary dictionary = classDescriptorDictionary;
+        if (dictionary == null) {
+            throw new SerializationException("The serialized data refers to a class descriptor dictionary, "
+                                                     + "but no dictionary has been configured");
+        }
+        return new DictionaryObjectInputStream(pushbackStream, dictionary, resolver);
+    }
+
+    /**
+     * Returns the resolver for the configured class loader or, if none has been configured, for the context class
+     * loader of the current thread. Without a context class loader, the class loader of this serializer is used.
+     */
+    private ClassResolver classResolver() {
+        ClassResolver configured = classResolver;
+        if (configured != null) {
+            return configured;
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = JavaSerializer.class.getClassLoader();
+        }
+        SoftReference<ClassResolver> reference = contextClassResolvers.get(classLoader);
+        ClassResolver resolver = reference == null ? null : reference.get();
+        if (resolver == null) {
+            resolver = new ClassResolver(classLoader);
+            contextClassResolvers.put(classLoader, new SoftReference<ClassResolver>(resolver));
+        }
+        return resolver;
+    }
+
+    /**
+     * Sets the class loader to resolve the classes of serialized objects with. Resolved classes are cached, as are
+     * the names of classes that could not be found, which are retried after a minute. Setting a class loader clears
+     * the cache.
+     * <p/>
+     * By default, classes are resolved using the context class loader of the current thread, or the class loader that
+     * loaded this serializer if the thread has none. Results are cached per class loader.
+     *
+     * @param classLoader The class loader to resolve classes with
+     */
+    public void setClassLoader(ClassLoader classLoader) {
+        Assert.notNull(classLoader, "classLoader may not be null");
+        this.classResolver = new ClassResolver(classLoader);
+    }
+
+    /**
+     * Sets the dictionary to store class descriptors in. When set, serialized objects refer to the descriptors of
+     * their classes by a number instead of containing the full descriptors, which considerably reduces the size of
+     * small objects. Data written with a dictionary can only be read using the same dictionary, or a copy of it. Data
+     * written without a dictionary can always be read.
+     * <p/>
+     * Defaults to <code>null</code>, which means plain Java serialization is used.
+     *
+     * @param classDescriptorDictionary The dictionary to store class descriptors in, or <code>null</code> to write
+     *                                  the full descriptors
+     */
+    public void setClassDescriptorDictionary(ClassDescriptorDictionary classDescriptorDictionary) {
+        this.classDescriptorDictionary = classDescriptorDictionary;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Classes are resolved as described for {@link #setClassLoader(ClassLoader)}, and cached. A warning is logged when
+     * a class cannot be found, but at most once a minute per class name.
+     */
+    @Override
+    public Class classForType(SerializedType type) {
+        return classResolver().resolve(type.getName(), type.getRevision());
     }
 
     /**
@@ -1,18 +1,43 @@
 package org.es4j.serlialization.java.axon;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
 import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.es4j.serializaiton.java.axon.FileClassDescriptorDictionary;
+import org.es4j.serializaiton.java.axon.InMemoryClassDescriptorDictionary;
 import org.es4j.serializaiton.java.axon.JavaSerializer;
+import org.es4j.serialization.api.axon.SerializationException;
 import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.SerializedType;
+import org.es4j.serialization.core.axon.SimpleSerializedObject;
 import org.es4j.serialization.core.axon.SimpleSerializedType;
 import static org.junit.Assert.*;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * @author Allard Buijze
  */
 public class JavaSerializerTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private JavaSerializer testSubject;
 
     @Before
@@ -32,6 +57,124 @@ public class JavaSerializerTest {
         assertEquals("hello", ((MySerializableObject) actualResult).getSomeProperty());
     }
 
+    @Test
+    public void testSerializeAndDeserialize_NestedSerialization() {
+        NestingObject.serializer = testSubject;
+        try {
+            SerializedObject<byte[]> serializedObject = testSubject.serialize(new NestingObject("outer"), byte[].class);
+            NestingObject actual = (NestingObject) testSubject.deserialize(serializedObject);
+            assertEquals("outer", actual.name);
+            MySerializableObject nested = (MySerializableObject) testSubject.deserialize(
+                    new SimpleSerializedObject<byte[]>(actual.nestedData, byte[].class,
+                                                       MySerializableObject.class.getName(), null));
+            assertEquals("outer-nested", nested.getSomeProperty());
+        } finally {
+            NestingObject.serializer = null;
+        }
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_DirectRepresentations() {
+        for (Class<?> representation : new Class<?>[]{ByteBuffer.class, InputStream.class, byte[].class}) {
+            SerializedObject<?> serializedObject = testSubject.serialize(new MySerializableObject("hello"),
+                                                                         representation);
+            assertTrue(representation.isInstance(serializedObject.getData()));
+            Object actualResult = testSubject.deserialize(serializedObject);
+            assertEquals("hello", ((MySerializableObject) actualResult).getSomeProperty());
+        }
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_LargeObjectsDoNotAffectNextSerialization() {
+        char[] largeValue = new char[512 * 1024];
+        Arrays.fill(largeValue, 'x');
+        SerializedObject<byte[]> large = testSubject.serialize(new MySerializableObject(new String(largeValue)),
+                                                               byte[].class);
+        SerializedObject<byte[]> small = testSubject.serialize(new MySerializableObject("hello"), byte[].class);
+
+        assertEquals(largeValue.length, ((MySerializableObject) testSubject.deserialize(large)).getSomeProperty()
+                                                                                               .length());
+        assertEquals("hello", ((MySerializableObject) testSubject.deserialize(small)).getSomeProperty());
+    }
+
+    @Test
+    public void testSerializeToOutputStream() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SerializedType type = testSubject.serialize(new MySerializableObject("hello"), outputStream);
+        assertEquals(MySerializableObject.class.getName(), type.getName());
+
+        Object actualResult = testSubject.deserialize(new SimpleSerializedObject<byte[]>(
+                outputStream.toByteArray(), byte[].class, type));
+        assertEquals("hello", ((MySerializableObject) actualResult).getSomeProperty());
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_ClassDescriptorDictionary() {
+        MySerializableObject object = new MySerializableObject("hello");
+        byte[] plain = testSubject.serialize(object, byte[].class).getData();
+        InMemoryClassDescriptorDictionary dictionary = new InMemoryClassDescriptorDictionary();
+        testSubject.setClassDescriptorDictionary(dictionary);
+
+        SerializedObject<byte[]> serializedObject = testSubject.serialize(object, byte[].class);
+        assertTrue(serializedObject.getData().length < plain.length / 2);
+        assertEquals(1, dictionary.getEntries().size());
+        assertEquals("hello", ((MySerializableObject) testSubject.deserialize(serializedObject)).getSomeProperty());
+        testSubject.serialize(new MySerializableObject("again"), byte[].class);
+        assertEquals(1, dictionary.getEntries().size());
+
+        JavaSerializer restored = new JavaSerializer();
+        restored.setClassDescriptorDictionary(new InMemoryClassDescriptorDictionary(dictionary.getEntries()));
+        assertEquals("hello", ((MySerializableObject) restored.deserialize(serializedObject)).getSomeProperty());
+    }
+
+    @Test
+    public void testDeserialize_PlainDataWithClassDescriptorDictionary() {
+        SerializedObject<byte[]> serializedObject = testSubject.serialize(new MySerializableObject("hello"),
+                                                                          byte[].class);
+        testSubject.setClassDescriptorDictionary(new InMemoryClassDescriptorDictionary());
+        assertEquals("hello", ((MySerializableObject) testSubject.deserialize(serializedObject)).getSomeProperty());
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testDeserialize_DictionaryDataWithoutClassDescriptorDictionary() {
+        testSubject.setClassDescriptorDictionary(new InMemoryClassDescriptorDictionary());
+        SerializedObject<byte[]> serializedObject = testSubject.serialize(new MySerializableObject("hello"),
+                                                                          byte[].class);
+        new JavaSerializer().deserialize(serializedObject);
+    }
+
+    @Test
+    public void testFileClassDescriptorDictionary() throws Exception {
+        File file = temporaryFolder.newFile("dictionary");
+        assertTrue(file.delete());
+        testSubject.setClassDescriptorDictionary(new FileClassDescriptorDictionary(file));
+        SerializedObject<byte[]> serializedObject = testSubject.serialize(new MySerializableObject("hello"),
+                                                                          byte[].class);
+        long length = file.length();
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[]{0, 0, 1, 0, 42});
+        out.close();
+
+        FileClassDescriptorDictionary reloaded = new FileClassDescriptorDictionary(file);
+        assertEquals(length, file.length());
+        assertEquals(1, reloaded.getEntries().size());
+        JavaSerializer restored = new JavaSerializer();
+        restored.setClassDescriptorDictionary(reloaded);
+        assertEquals("hello", ((MySerializableObject) restored.deserialize(serializedObject)).getSomeProperty());
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_Channel() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SerializedType type = testSubject.serialize(new MySerializableObject("hello"),
+                                                    Channels.newChannel(outputStream));
+        assertEquals(MySerializableObject.class.getName(), type.getName());
+
+        Object actualResult = testSubject.deserialize(type, Channels.newChannel(new ByteArrayInputStream(
+                outputStream.toByteArray())));
+        assertEquals("hello", ((MySerializableObject) actualResult).getSomeProperty());
+    }
+
     @Test
     public void testClassForType() {
         Class actual = testSubject.classForType(new SimpleSerializedType(MySerializableObject.class.getName(), "0"));
@@ -43,6 +186,140 @@ public class JavaSerializerTest {
         assertNull(testSubject.classForType(new SimpleSerializedType("unknown", "0")));
     }
 
+    @Test
+    public void testClassForType_MissesAreCached() {
+        final AtomicInteger lookups = new AtomicInteger();
+        testSubject.setClassLoader(new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            public Class<?> loadClass(String name) throws ClassNotFoundException {
+                lookups.incrementAndGet();
+                return super.loadClass(name);
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            assertNull(testSubject.classForType(new SimpleSerializedType("unknown", "0")));
+        }
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void testDeserialize_UsesConfiguredClassLoader() {
+        SerializedObject<byte[]> serializedObject = testSubject.serialize(new MySerializableObject("hello"),
+                                                                          byte[].class);
+        final List<String> lookups = new ArrayList<String>();
+        testSubject.setClassLoader(new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            public Class<?> loadClass(String name) throws ClassNotFoundException {
+                lookups.add(name);
+                return super.loadClass(name);
+            }
+        });
+        assertEquals("hello", ((MySerializableObject) testSubject.deserialize(serializedObject)).getSomeProperty());
+        assertEquals("hello", ((MySerializableObject) testSubject.deserialize(serializedObject)).getSomeProperty());
+        assertEquals(Arrays.asList(MySerializableObject.class.getName()), lookups);
+    }
+
+    @Test
+    public void testDeserialize_UsesContextClassLoaderByDefault() throws Exception {
+        ClassLoader isolatingLoader = new IsolatingClassLoader(MySerializableObject.class);
+        Class<?> isolatedClass = isolatingLoader.loadClass(MySerializableObject.class.getName());
+        Constructor<?> constructor = isolatedClass.getDeclaredConstructor(String.class);
+        constructor.setAccessible(true);
+        SerializedObject<byte[]> serializedObject = testSubject.serialize(constructor.newInstance("hello"),
+                                                                          byte[].class);
+        Thread thread = Thread.currentThread();
+        ClassLoader originalLoader = thread.getContextClassLoader();
+        try {
+            thread.setContextClassLoader(isolatingLoader);
+            assertSame(isolatedClass, testSubject.deserialize(serializedObject).getClass());
+            assertSame(isolatedClass, testSubject.classForType(serializedObject.getType()));
+
+            thread.setContextClassLoader(null);
+            assertSame(MySerializableObject.class, testSubject.deserialize(serializedObject).getClass());
+        } finally {
+            thread.setContextClassLoader(originalLoader);
+        }
+    }
+
+    @Test
+    public void testClassDescriptorsAreResolvedPerClassLoader() throws Exception {
+        InMemoryClassDescriptorDictionary dictionary = new InMemoryClassDescriptorDictionary();
+        int identifier = dictionary.identifierOf(ObjectStreamClass.lookup(MySerializableObject.class));
+        ClassLoader isolatingLoader = new IsolatingClassLoader(MySerializableObject.class);
+
+        ObjectStreamClass descriptor = dictionary.descriptorFor(identifier, getClass().getClassLoader());
+        ObjectStreamClass isolatedDescriptor = dictionary.descriptorFor(identifier, isolatingLoader);
+
+        assertSame(MySerializableObject.class, descriptor.forClass());
+        assertNotSame(MySerializableObject.class, isolatedDescriptor.forClass());
+        assertSame(isolatingLoader, isolatedDescriptor.forClass().getClassLoader());
+        assertSame(descriptor.forClass(),
+                   dictionary.descriptorFor(identifier, getClass().getClassLoader()).forClass());
+    }
+
+    /**
+     * Defines its own copy of a single class, and delegates loading other classes to its parent.
+     */
+    private static class IsolatingClassLoader extends ClassLoader {
+
+        private final String isolatedClassName;
+
+        private IsolatingClassLoader(Class<?> isolatedClass) {
+            super(isolatedClass.getClassLoader());
+            this.isolatedClassName = isolatedClass.getName();
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!isolatedClassName.equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded != null) {
+                return loaded;
+            }
+            InputStream classFile = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = classFile.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+                return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            } finally {
+                try {
+                    classFile.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Serializes another object using the same serializer while it is being serialized itself.
+     */
+    private static class NestingObject implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private static JavaSerializer serializer;
+
+        private final String name;
+        private byte[] nestedData;
+
+        private NestingObject(String name) {
+            this.name = name;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            nestedData = serializer.serialize(new MySerializableObject(name + "-nested"), byte[].class).getData();
+            out.defaultWriteObject();
+        }
+    }
+
     private static class MySerializableObject implements Serializable {
 
         private static final long serialVersionUID = 2166108932776672373L;
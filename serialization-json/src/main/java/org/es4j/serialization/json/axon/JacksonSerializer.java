@@ -0,0 +1,707 @@
+package org.es4j.serialization.json.axon;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DatabindContext;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.deser.ValueInstantiator;
+import com.fasterxml.jackson.databind.deser.ValueInstantiators;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.exc.InvalidTypeIdException;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.impl.TypeIdResolverBase;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.es4j.messaging.api.axon.GenericEventMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.SerializedType;
+import org.es4j.serialization.api.axon.Serializer;
+import org.es4j.serialization.core.axon.Assert;
+import org.es4j.serialization.core.axon.ChainingConverterFactory;
+import org.es4j.serialization.core.axon.ConverterFactory;
+import org.es4j.serialization.core.axon.IOUtils;
+import org.es4j.serialization.core.axon.Instantiators;
+import org.es4j.serialization.core.axon.Revision;
+import org.es4j.serialization.core.axon.ReusableByteArrayOutputStream;
+import org.es4j.serialization.core.axon.SimpleSerializedObject;
+import org.es4j.serialization.core.axon.SimpleSerializedType;
+import org.es4j.serialization.core.axon.ThreadLocalBuffers;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializer implementation that uses Jackson to serialize and deserialize object instances to and from JSON. Objects
+ * are written and read in a single streaming pass, without building a tree model. Serialized data is written into a
+ * buffer that is reused by the current thread, and copied once into the resulting <code>byte[]</code>. Other
+ * representations are provided by the {@link ConverterFactory}, except for <code>String</code>, which is written
+ * directly.
+ * <p/>
+ * As with XStream, objects are serialized field by field, including private fields, and do not need a no-arg
+ * constructor to be deserialized. Unknown fields are ignored while deserializing, so that fields may be removed from
+ * a class without breaking the deserialization of earlier revisions. {@link MetaData}, {@link DateTime} and {@link
+ * GenericEventMessage} are handled by dedicated serializers. Values of which the type is not known up front, such as
+ * meta data values and event payloads, are written along with their type identifier. The same goes for nested values
+ * declared as <code>Object</code>, or as an interface or abstract class, such as the elements of a
+ * <code>List&lt;Object&gt;</code>: the type identifier is added to the value in a <code>@type</code> property, or for
+ * values that are not written as a JSON object, in an array containing the type identifier and the value. Integers,
+ * doubles, strings and booleans declared as <code>Object</code> are written without type identifier, as JSON reads
+ * them back as the same type. Values declared as a concrete class are written without type identifier, and read back
+ * as an instance of the declared class.
+ * <p/>
+ * The classes named by type identifiers are loaded as they are read. Only deserialize data from trusted sources.
+ * <p/>
+ * Type identifiers follow the aliasing rules of the {@link #addAlias(String, Class) aliases} and {@link
+ * #addPackageAlias(String, String) package aliases} registered with this serializer, in the same way as the
+ * <code>AbstractXStreamSerializer</code> does. The same default aliases are registered, such as <code>event</code>
+ * for GenericEventMessage and <code>meta-data</code> for MetaData.
+ *
+ * @since 2.0
+ */
+public class JacksonSerializer implements Serializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(JacksonSerializer.class);
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+    private static final String TYPE_FIELD = "@type";
+    private static final String VALUE_FIELD = "@value";
+
+    private final ObjectMapper objectMapper;
+    private final ConverterFactory converterFactory;
+    private final ConcurrentMap<Class<?>, String> aliases = new ConcurrentHashMap<Class<?>, String>();
+    private final ConcurrentMap<String, Class<?>> aliasedTypes = new ConcurrentHashMap<String, Class<?>>();
+    private final Map<String, String> packageAliases = new HashMap<String, String>();
+    // sorted copies, so that the longest matching alias or package name is found first
+    private volatile List<Map.Entry<String, String>> aliasesByLength = Collections.emptyList();
+    private volatile List<Map.Entry<String, String>> packageNamesByLength = Collections.emptyList();
+    private final ThreadLocalBuffers buffers = new ThreadLocalBuffers(MAX_RETAINED_BUFFER_SIZE);
+
+    /**
+     * Initialize a JacksonSerializer using a default ObjectMapper and the {@link
+     * ChainingConverterFactory#sharedInstance() shared converter factory}.
+     */
+    public JacksonSerializer() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     * Initialize a JacksonSerializer using the given <code>objectMapper</code> and the {@link
+     * ChainingConverterFactory#sharedInstance() shared converter factory}. The <code>objectMapper</code> is configured
+     * for use by this serializer.
+     *
+     * @param objectMapper The ObjectMapper to use
+     */
+    public JacksonSerializer(ObjectMapper objectMapper) {
+        this(objectMapper, ChainingConverterFactory.sharedInstance());
+    }
+
+    /**
+     * Initialize a JacksonSerializer using the given <code>objectMapper</code> and <code>converterFactory</code>. The
+     * <code>objectMapper</code> is configured for use by this serializer: it detects fields rather than accessor
+     * methods, ignores unknown properties and uses the dedicated serializers for the most common types in Axon.
+     *
+     * @param objectMapper     The ObjectMapper to use
+     * @param converterFactory The ConverterFactory providing the necessary content converters
+     */
+    public JacksonSerializer(ObjectMapper objectMapper, ConverterFactory converterFactory) {
+        Assert.notNull(objectMapper, "objectMapper may not be null");
+        Assert.notNull(converterFactory, "converterFactory may not be null");
+        this.objectMapper = objectMapper;
+        this.converterFactory = converterFactory;
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        objectMapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        objectMapper.setDefaultTyping(new NestedValueTyping());
+        objectMapper.registerModule(new Es4jModule());
+
+        addPackageAlias("axon.domain", "org.axonframework.domain");
+        addPackageAlias("axon.es", "org.axonframework.eventsourcing");
+        addAlias("event", GenericEventMessage.class);
+        addAlias("meta-data", MetaData.class);
+        addAlias("dateTime", DateTime.class);
+        addAlias("uuid", UUID.class);
+        addAlias("int", Integer.class);
+        addAlias("long", Long.class);
+        addAlias("double", Double.class);
+        addAlias("list", ArrayList.class);
+        addAlias("map", HashMap.class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedType) {
+        T result;
+        try {
+            if (String.class.equals(expectedType)) {
+                result = (T) objectMapper.writeValueAsString(object);
+            } else {
+                result = converterFactory.getConverter(byte[].class, expectedType).convert(writeBytes(object));
+            }
+        } catch (IOException e) {
+            throw new SerializationException("An exception occurred writing serialized data to the output buffer", e);
+        }
+        return new SimpleSerializedObject<T>(result, expectedType, typeIdentifierOf(object.getClass()),
+                                             revisionOf(object.getClass()));
+    }
+
+    private byte[] writeBytes(Object object) throws IOException {
+        ReusableByteArrayOutputStream buffer = buffers.acquire();
+        try {
+            objectMapper.writeValue(buffer, object);
+            return buffer.toByteArray();
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return String.class.equals(expectedRepresentation)
+                || converterFactory.hasConverter(byte[].class, expectedRepresentation);
+    }
+
+    @Override
+    public <T> Object deserialize(SerializedObject<T> serializedObject) {
+        Class<?> type = classForType(serializedObject.getType());
+        if (type == null) {
+            throw new SerializationException("Unable to resolve the class of serialized type "
+                                                     + serializedObject.getType().getName());
+        }
+        InputStream stream = null;
+        JsonParser parser = null;
+        try {
+            Object data = serializedObject.getData();
+            if (data instanceof byte[]) {
+                parser = objectMapper.getFactory().createParser((byte[]) data);
+            } else if (data instanceof String) {
+                parser = objectMapper.getFactory().createParser((String) data);
+            } else {
+                stream = converterFactory.getConverter(serializedObject.getContentType(), InputStream.class)
+                                         .convert(serializedObject.getData());
+                parser = objectMapper.getFactory().createParser(stream);
+            }
+            return objectMapper.readValue(parser, type);
+        } catch (IOException e) {
+            throw new SerializationException("An error occurred while deserializing: " + e.getMessage(), e);
+        } finally {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    // ignore, the data has been read
+                }
+            }
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    @Override
+    public Class classForType(SerializedType type) {
+        String typeIdentifier = type.getName();
+        Class<?> aliasedType = aliasedTypes.get(typeIdentifier);
+        if (aliasedType != null) {
+            return aliasedType;
+        }
+        for (Map.Entry<String, String> packageAlias : aliasesByLength) {
+            if (typeIdentifier.startsWith(packageAlias.getKey() + ".")) {
+                typeIdentifier = packageAlias.getValue() + typeIdentifier.substring(packageAlias.getKey().length());
+                break;
+            }
+        }
+        try {
+            return Class.forName(typeIdentifier);
+        } catch (ClassNotFoundException e) {
+            logger.warn("Could not load class for serialized type [{}] revision {}",
+                        type.getName(), type.getRevision());
+            return null;
+        }
+    }
+
+    /**
+     * Adds an alias to use instead of the fully qualified class name.
+     *
+     * @param name The alias to use
+     * @param type The Class to use the alias for
+     */
+    public void addAlias(String name, Class type) {
+        aliases.put(type, name);
+        aliasedTypes.put(name, type);
+    }
+
+    /**
+     * Add an alias for a package. This allows long package names to be shortened considerably. Will also use the alias
+     * for subpackages of the provided package.
+     * <p/>
+     * E.g. an alias of "axoncore" for the package "org.axonframework.core" will use "axoncore.repository" for the
+     * package "org.axonframework.core.repository".
+     * <p/>
+     * When aliases are registered for nested packages, the alias of the most specific package is used, like XStream
+     * does.
+     *
+     * @param alias   The alias to use.
+     * @param pkgName The package to use the alias for
+     */
+    public void addPackageAlias(String alias, String pkgName) {
+        synchronized (packageAliases) {
+            packageAliases.put(alias, pkgName);
+            aliasesByLength = sortedByLength(packageAliases, true);
+            packageNamesByLength = sortedByLength(packageAliases, false);
+        }
+    }
+
+    private static List<Map.Entry<String, String>> sortedByLength(Map<String, String> packageAliases,
+                                                                  final boolean byAlias) {
+        List<Map.Entry<String, String>> sorted = new ArrayList<Map.Entry<String, String>>();
+        for (Map.Entry<String, String> entry : packageAliases.entrySet()) {
+            sorted.add(new AbstractMap.SimpleImmutableEntry<String, String>(entry));
+        }
+        Collections.sort(sorted, new Comparator<Map.Entry<String, String>>() {
+            @Override
+            public int compare(Map.Entry<String, String> o1, Map.Entry<String, String> o2) {
+                String name1 = byAlias ? o1.getKey() : o1.getValue();
+                String name2 = byAlias ? o2.getKey() : o2.getValue();
+                if (name1.length() != name2.length()) {
+                    return name2.length() - name1.length();
+                }
+                return name1.compareTo(name2);
+            }
+        });
+        return Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Returns a reference to the underlying {@link ObjectMapper}, that does the actual serialization.
+     *
+     * @return the ObjectMapper instance that does the actual (de)serialization
+     */
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Returns the type identifier for the given <code>type</code>. It uses the aliases and package aliases registered
+     * with this serializer.
+     *
+     * @param type The type to get the type identifier of
+     * @return A String containing the type identifier of the given class
+     */
+    protected String typeIdentifierOf(Class<?> type) {
+        String alias = aliases.get(type);
+        if (alias != null) {
+            return alias;
+        }
+        String className = type.getName();
+        for (Map.Entry<String, String> packageAlias : packageNamesByLength) {
+            String packageName = packageAlias.getValue();
+            if (className.startsWith(packageName + ".")) {
+                return packageAlias.getKey() + className.substring(packageName.length());
+            }
+        }
+        return className;
+    }
+
+    /**
+     * Returns the revision number for the given <code>type</code>. The default implementation checks for an {@link
+     * Revision @Revision} annotation, and returns <code>null</code> if none was found. This method can be safely
+     * overridden by subclasses.
+     *
+     * @param type The type for which to return the revision number
+     * @return the revision number for the given <code>type</code>
+     */
+    protected String revisionOf(Class<?> type) {
+        Revision revision = type.getAnnotation(Revision.class);
+        return revision == null ? null : revision.value();
+    }
+
+    /**
+     * Writes a value of which the type is not known up front. Strings and booleans are written as-is. Other values are
+     * written as an object containing the type identifier and the value.
+     */
+    private void writeTypedValue(JsonGenerator generator, SerializerProvider provider, Object value)
+            throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else {
+            generator.writeStartObject();
+            generator.writeStringField(TYPE_FIELD, typeIdentifierOf(value.getClass()));
+            generator.writeFieldName(VALUE_FIELD);
+            provider.defaultSerializeValue(value, generator);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #writeTypedValue(JsonGenerator, SerializerProvider, Object)}. The parser must be
+     * positioned at the first token of the value, and is left at its last token.
+     */
+    private Object readTypedValue(JsonParser parser, DeserializationContext context) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return parser.getBooleanValue();
+            case START_OBJECT:
+                if (parser.nextToken() != JsonToken.FIELD_NAME || !TYPE_FIELD.equals(parser.currentName())) {
+                    throw JsonMappingException.from(parser, "Expected the type of the value in field " + TYPE_FIELD);
+                }
+                String typeIdentifier = parser.nextTextValue();
+                Class<?> type = classForType(new SimpleSerializedType(typeIdentifier, null));
+                if (type == null) {
+                    throw JsonMappingException.from(parser, "Unable to resolve the class of type " + typeIdentifier);
+                }
+                if (parser.nextToken() != JsonToken.FIELD_NAME || !VALUE_FIELD.equals(parser.currentName())) {
+                    throw JsonMappingException.from(parser, "Expected the value in field " + VALUE_FIELD);
+                }
+                parser.nextToken();
+                Object value = context.readValue(parser, type);
+                parser.nextToken();
+                return value;
+            default:
+                throw JsonMappingException.from(parser, "Unexpected token " + parser.currentToken());
+        }
+    }
+
+    private static JsonToken firstFieldToken(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.START_OBJECT ? parser.nextToken() : parser.currentToken();
+    }
+
+    /**
+     * Jackson module registering the serializers for the most common types in Axon, and instantiating classes without
+     * a no-arg constructor.
+     */
+    private final class Es4jModule extends SimpleModule {
+
+        private static final long serialVersionUID = -2719342087734839571L;
+
+        private Es4jModule() {
+            super("es4j");
+            MetaDataSerializer metaDataSerializer = new MetaDataSerializer();
+            MetaDataDeserializer metaDataDeserializer = new MetaDataDeserializer();
+            addSerializer(MetaData.class, metaDataSerializer);
+            addDeserializer(MetaData.class, metaDataDeserializer);
+            addSerializer(DateTime.class, new DateTimeSerializer());
+            addDeserializer(DateTime.class, new DateTimeDeserializer());
+            addSerializer(GenericEventMessage.class, new EventMessageSerializer(metaDataSerializer));
+            addDeserializer(GenericEventMessage.class, new EventMessageDeserializer(metaDataDeserializer));
+        }
+
+        @Override
+        public void setupModule(SetupContext context) {
+            super.setupModule(context);
+            context.addValueInstantiators(new ConstructorlessInstantiators());
+        }
+    }
+
+    /**
+     * Writes MetaData as an object with a field per entry.
+     */
+    private final class MetaDataSerializer extends StdSerializer<MetaData> {
+
+        private static final long serialVersionUID = 4829453417423165270L;
+
+        private MetaDataSerializer() {
+            super(MetaData.class);
+        }
+
+        @Override
+        public void serialize(MetaData metaData, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject();
+            writeFields(metaData, generator, provider);
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void serializeWithType(MetaData metaData, JsonGenerator generator, SerializerProvider provider,
+                                      TypeSerializer typeSerializer) throws IOException {
+            WritableTypeId typeId = typeSerializer.writeTypePrefix(
+                    generator, typeSerializer.typeId(metaData, JsonToken.START_OBJECT));
+            writeFields(metaData, generator, provider);
+            typeSerializer.writeTypeSuffix(generator, typeId);
+        }
+
+        private void writeFields(MetaData metaData, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            for (Map.Entry<String, Object> entry : metaData.entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                writeTypedValue(generator, provider, entry.getValue());
+            }
+        }
+    }
+
+    private final class MetaDataDeserializer extends StdDeserializer<MetaData> {
+
+        private static final long serialVersionUID = -7315431209431257532L;
+
+        private MetaDataDeserializer() {
+            super(MetaData.class);
+        }
+
+        @Override
+        public MetaData deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            Map<String, Object> entries = new HashMap<String, Object>();
+            JsonToken token = firstFieldToken(parser);
+            while (token == JsonToken.FIELD_NAME) {
+                String key = parser.currentName();
+                parser.nextToken();
+                entries.put(key, readTypedValue(parser, context));
+                token = parser.nextToken();
+            }
+            return entries.isEmpty() ? MetaData.emptyInstance() : MetaData.from(entries);
+        }
+    }
+
+    /**
+     * Writes a DateTime as its ISO-8601 representation, as the XStream serializers do.
+     */
+    private static final class DateTimeSerializer extends StdScalarSerializer<DateTime> {
+
+        private static final long serialVersionUID = 1954323785323512437L;
+
+        private DateTimeSerializer() {
+            super(DateTime.class);
+        }
+
+        @Override
+        public void serialize(DateTime dateTime, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeString(dateTime.toString());
+        }
+    }
+
+    private static final class DateTimeDeserializer extends StdDeserializer<DateTime> {
+
+        private static final long serialVersionUID = -3547431859253461730L;
+
+        private DateTimeDeserializer() {
+            super(DateTime.class);
+        }
+
+        @Override
+        public DateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return new DateTime(parser.getText());
+        }
+    }
+
+    /**
+     * Writes a GenericEventMessage as an object containing its identifier, timestamp, typed payload and meta data.
+     */
+    private final class EventMessageSerializer extends StdSerializer<GenericEventMessage> {
+
+        private static final long serialVersionUID = 3157512317512698253L;
+        private final MetaDataSerializer metaDataSerializer;
+
+        private EventMessageSerializer(MetaDataSerializer metaDataSerializer) {
+            super(GenericEventMessage.class);
+            this.metaDataSerializer = metaDataSerializer;
+        }
+
+        @Override
+        public void serialize(GenericEventMessage message, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject();
+            writeFields(message, generator, provider);
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void serializeWithType(GenericEventMessage message, JsonGenerator generator,
+                                      SerializerProvider provider, TypeSerializer typeSerializer)
+                throws IOException {
+            WritableTypeId typeId = typeSerializer.writeTypePrefix(
+                    generator, typeSerializer.typeId(message, JsonToken.START_OBJECT));
+            writeFields(message, generator, provider);
+            typeSerializer.writeTypeSuffix(generator, typeId);
+        }
+
+        private void writeFields(GenericEventMessage message, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStringField("identifier", message.getIdentifier());
+            generator.writeStringField("timestamp", message.getTimestamp().toString());
+            generator.writeFieldName("payload");
+            writeTypedValue(generator, provider, message.getPayload());
+            generator.writeFieldName("metaData");
+            metaDataSerializer.serialize(message.getMetaData(), generator, provider);
+        }
+    }
+
+    private final class EventMessageDeserializer extends StdDeserializer<GenericEventMessage> {
+
+        private static final long serialVersionUID = -1263539462870231263L;
+        private final MetaDataDeserializer metaDataDeserializer;
+
+        private EventMessageDeserializer(MetaDataDeserializer metaDataDeserializer) {
+            super(GenericEventMessage.class);
+            this.metaDataDeserializer = metaDataDeserializer;
+        }
+
+        @Override
+        public GenericEventMessage deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            String identifier = null;
+            DateTime timestamp = null;
+            Object payload = null;
+            MetaData metaData = MetaData.emptyInstance();
+            JsonToken token = firstFieldToken(parser);
+            while (token == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("identifier".equals(field)) {
+                    identifier = parser.getText();
+                } else if ("timestamp".equals(field)) {
+                    timestamp = new DateTime(parser.getText());
+                } else if ("payload".equals(field)) {
+                    payload = readTypedValue(parser, context);
+                } else if ("metaData".equals(field)) {
+                    metaData = metaDataDeserializer.deserialize(parser, context);
+                } else {
+                    parser.skipChildren();
+                }
+                token = parser.nextToken();
+            }
+            return new GenericEventMessage<Object>(identifier, timestamp, payload, metaData);
+        }
+    }
+
+    /**
+     * Adds the type identifier to values declared as <code>Object</code>, or as an interface or abstract class, so that
+     * they are read back as the type they were written as.
+     */
+    private final class NestedValueTyping extends ObjectMapper.DefaultTypeResolverBuilder {
+
+        private static final long serialVersionUID = 6403170952146587394L;
+
+        private NestedValueTyping() {
+            super(ObjectMapper.DefaultTyping.OBJECT_AND_NON_CONCRETE, LaissezFaireSubTypeValidator.instance);
+            init(JsonTypeInfo.Id.CUSTOM, null);
+            inclusion(JsonTypeInfo.As.PROPERTY);
+            typeProperty(TYPE_FIELD);
+        }
+
+        @Override
+        protected TypeIdResolver idResolver(MapperConfig<?> config, JavaType baseType,
+                                            PolymorphicTypeValidator subtypeValidator,
+                                            Collection<NamedType> subtypes, boolean forSer, boolean forDeser) {
+            return new TypeIdentifierResolver(baseType, config);
+        }
+    }
+
+    /**
+     * Resolves type identifiers using the aliases and package aliases registered with this serializer.
+     */
+    private final class TypeIdentifierResolver extends TypeIdResolverBase {
+
+        private TypeIdentifierResolver(JavaType baseType, MapperConfig<?> config) {
+            super(baseType, config.getTypeFactory());
+        }
+
+        @Override
+        public String idFromValue(Object value) {
+            return typeIdentifierOf(value.getClass());
+        }
+
+        @Override
+        public String idFromValueAndType(Object value, Class<?> suggestedType) {
+            return typeIdentifierOf(value == null ? suggestedType : value.getClass());
+        }
+
+        @Override
+        public JavaType typeFromId(DatabindContext context, String id) throws IOException {
+            Class<?> type = classForType(new SimpleSerializedType(id, null));
+            if (type == null) {
+                throw new InvalidTypeIdException(null, "Unable to resolve the class of type " + id, _baseType, id);
+            }
+            return _typeFactory.constructSpecializedType(_baseType, type);
+        }
+
+        @Override
+        public JsonTypeInfo.Id getMechanism() {
+            return JsonTypeInfo.Id.CUSTOM;
+        }
+    }
+
+    /**
+     * Provides instantiators for concrete classes that Jackson cannot instantiate by itself, because they lack a no-arg
+     * constructor or creator annotations. Such classes are instantiated the way Java serialization does, without
+     * invoking any of their constructors.
+     */
+    private static final class ConstructorlessInstantiators extends ValueInstantiators.Base {
+
+        @Override
+        public ValueInstantiator findValueInstantiator(DeserializationConfig config, BeanDescription beanDesc,
+                                                       ValueInstantiator defaultInstantiator) {
+            Class<?> type = beanDesc.getBeanClass();
+            if (defaultInstantiator.canInstantiate() || type.isInterface()
+                    || Modifier.isAbstract(type.getModifiers())) {
+                return defaultInstantiator;
+            }
+            return new ConstructorlessInstantiator(type);
+        }
+    }
+
+    private static final class ConstructorlessInstantiator extends ValueInstantiator.Base {
+
+        private final Constructor<?> constructor;
+
+        private ConstructorlessInstantiator(Class<?> type) {
+            super(type);
+            constructor = Instantiators.constructorlessConstructor(type);
+        }
+
+        @Override
+        public boolean canCreateUsingDefault() {
+            return true;
+        }
+
+        @Override
+        public Object createUsingDefault(DeserializationContext context) throws IOException {
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                return context.handleInstantiationProblem(getValueClass(), null, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.es4j.serlialization.json.axon;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.core.axon.SimpleSerializedObject;
+import org.es4j.serialization.core.axon.SimpleSerializedType;
+import org.es4j.serialization.json.axon.JacksonSerializer;
+import org.joda.time.DateTime;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JacksonSerializerTest {
+
+    private JacksonSerializer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new JacksonSerializer();
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_NestedValuesDeclaredAsObject() {
+        UUID identifier = UUID.randomUUID();
+        ObjectHolder holder = new ObjectHolder();
+        holder.number = 5L;
+        holder.identifier = identifier;
+        holder.timestamp = new DateTime(2012, 3, 4, 5, 6, 7, 8);
+        holder.shape = new Circle(2);
+        holder.metaData = MetaData.from(Collections.<String, Object>singletonMap("key", 1L));
+        holder.values = new ArrayList<Object>(Arrays.<Object>asList(1L, identifier, "text", 3, true));
+        holder.entries = new HashMap<String, Object>(Collections.<String, Object>singletonMap("key", 1L));
+
+        ObjectHolder actual = (ObjectHolder) testSubject.deserialize(testSubject.serialize(holder, String.class));
+        assertEquals(5L, actual.number);
+        assertEquals(identifier, actual.identifier);
+        assertEquals(((DateTime) holder.timestamp).getMillis(), ((DateTime) actual.timestamp).getMillis());
+        assertEquals(2, ((Circle) actual.shape).radius);
+        assertEquals(holder.metaData, actual.metaData);
+        assertEquals(holder.values, actual.values);
+        assertEquals(holder.entries, actual.entries);
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_NestedValuesDeclaredAsInterface() {
+        InterfaceHolder holder = new InterfaceHolder();
+        holder.shape = new Circle(1);
+        holder.shapes = new ArrayList<Shape>(Arrays.<Shape>asList(new Circle(2), new Square(3)));
+        holder.names = new TreeSet<String>(Arrays.asList("b", "a"));
+
+        InterfaceHolder actual = (InterfaceHolder) testSubject.deserialize(
+                testSubject.serialize(holder, byte[].class));
+        assertEquals(1, ((Circle) actual.shape).radius);
+        assertEquals(2, ((Circle) actual.shapes.get(0)).radius);
+        assertEquals(3, ((Square) actual.shapes.get(1)).side);
+        assertEquals(TreeSet.class, actual.names.getClass());
+        assertEquals(holder.names, actual.names);
+    }
+
+    @Test
+    public void testNestedValuesAreWrittenWithAliasedTypeIdentifier() {
+        testSubject.addPackageAlias("json", "org.es4j.serlialization.json");
+        InterfaceHolder holder = new InterfaceHolder();
+        holder.shape = new Circle(1);
+
+        String json = testSubject.serialize(holder, String.class).getData();
+        assertTrue(json, json.contains("\"@type\":\"json.axon.JacksonSerializerTest$Circle\""));
+        assertEquals(1, ((Circle) ((InterfaceHolder) testSubject.deserialize(
+                testSubject.serialize(holder, String.class))).shape).radius);
+
+        ObjectHolder objectHolder = new ObjectHolder();
+        objectHolder.number = 5L;
+        json = testSubject.serialize(objectHolder, String.class).getData();
+        assertTrue(json, json.contains("\"number\":[\"long\",5]"));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testDeserialize_NestedValueOfUnknownType() {
+        String json = "{\"shape\":{\"@type\":\"unknown.Shape\",\"radius\":1}}";
+        testSubject.deserialize(new SimpleSerializedObject<String>(
+                json, String.class, InterfaceHolder.class.getName(), null));
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_MetaDataWithNestedValues() {
+        Map<String, Object> entries = new HashMap<String, Object>();
+        entries.put("list", new ArrayList<Object>(Arrays.<Object>asList(1L, UUID.randomUUID())));
+        entries.put("shape", new Circle(4));
+        MetaData metaData = MetaData.from(entries);
+
+        MetaData actual = (MetaData) testSubject.deserialize(testSubject.serialize(metaData, String.class));
+        assertEquals(entries.get("list"), actual.get("list"));
+        assertEquals(4, ((Circle) actual.get("shape")).radius);
+    }
+
+    @Test
+    public void testAliasesAreUsedAsTypeIdentifier() {
+        testSubject.addAlias("test", TestEvent.class);
+        testSubject.addPackageAlias("json", "org.es4j.serlialization.json");
+        assertEquals("test", testSubject.serialize(new TestEvent("a", 1), byte[].class).getType().getName());
+        assertEquals("json.axon.JacksonSerializerTest$OtherEvent",
+                     testSubject.serialize(new OtherEvent(), byte[].class).getType().getName());
+        assertEquals(OtherEvent.class, testSubject.classForType(
+                new SimpleSerializedType("json.axon.JacksonSerializerTest$OtherEvent", null)));
+    }
+
+    @Test
+    public void testMostSpecificPackageAliasIsUsed() {
+        JacksonSerializer reversed = new JacksonSerializer();
+        testSubject.addPackageAlias("es", "org.es4j.serlialization");
+        testSubject.addPackageAlias("es.j", "org.es4j.serlialization.json.axon");
+        reversed.addPackageAlias("es.j", "org.es4j.serlialization.json.axon");
+        reversed.addPackageAlias("es", "org.es4j.serlialization");
+        for (JacksonSerializer serializer : new JacksonSerializer[]{testSubject, reversed}) {
+            SerializedObject<byte[]> serialized = serializer.serialize(new OtherEvent(), byte[].class);
+            assertEquals("es.j.JacksonSerializerTest$OtherEvent", serialized.getType().getName());
+            assertEquals(OtherEvent.class, serializer.classForType(serialized.getType()));
+        }
+    }
+
+    @Test
+    public void testUnknownFieldsAreIgnored() {
+        String json = "{\"name\":\"hello\",\"count\":3,\"removedField\":{\"nested\":[1,2]}}";
+        TestEvent actual = (TestEvent) testSubject.deserialize(new SimpleSerializedObject<String>(
+                json, String.class, TestEvent.class.getName(), "1"));
+        assertEquals("hello", actual.name);
+        assertEquals(3, actual.count);
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_NestedSerialization() {
+        NestingSerializer.serializer = testSubject;
+        try {
+            NestingEvent event = new NestingEvent();
+            // large enough for the generator to flush to the buffer before the nested value is written
+            event.padding = new String(new char[10000]).replace('\0', 'x');
+            event.nested = new TestEvent("nested", 1);
+            SerializedObject<byte[]> serialized = testSubject.serialize(event, byte[].class);
+
+            NestedDataEvent actual = (NestedDataEvent) testSubject.deserialize(new SimpleSerializedObject<byte[]>(
+                    serialized.getData(), byte[].class, NestedDataEvent.class.getName(), null));
+            assertEquals(event.padding, actual.padding);
+            TestEvent nested = (TestEvent) testSubject.deserialize(new SimpleSerializedObject<byte[]>(
+                    actual.nested, byte[].class, TestEvent.class.getName(), null));
+            assertEquals("nested", nested.name);
+        } finally {
+            NestingSerializer.serializer = null;
+        }
+    }
+
+    public static class TestEvent {
+
+        private final String name;
+        private final int count;
+
+        public TestEvent(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+
+    public interface Shape {
+    }
+
+    public static class Circle implements Shape {
+
+        private final int radius;
+
+        public Circle(int radius) {
+            this.radius = radius;
+        }
+    }
+
+    public static class Square implements Shape {
+
+        private final int side;
+
+        public Square(int side) {
+            this.side = side;
+        }
+    }
+
+    public static class ObjectHolder {
+
+        private Object number;
+        private Object identifier;
+        private Object timestamp;
+        private Object shape;
+        private Object metaData;
+        private List<Object> values;
+        private Map<String, Object> entries;
+    }
+
+    public static class InterfaceHolder {
+
+        private Shape shape;
+        private List<Shape> shapes;
+        private Collection<String> names;
+    }
+
+    public static class OtherEvent {
+    }
+
+    public static class NestingEvent {
+
+        private String padding;
+        @JsonSerialize(using = NestingSerializer.class)
+        private TestEvent nested;
+    }
+
+    /**
+     * The form a NestingEvent is read back in, with the nested value as the bytes it was serialized to.
+     */
+    public static class NestedDataEvent {
+
+        private String padding;
+        private byte[] nested;
+    }
+
+    /**
+     * Writes a value by serializing it with the serializer under test, while the enclosing object is being written.
+     */
+    public static class NestingSerializer extends JsonSerializer<TestEvent> {
+
+        private static JacksonSerializer serializer;
+
+        @Override
+        public void serialize(TestEvent value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeBinary(serializer.serialize(value, byte[].class).getData());
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package org.es4j.serialization.kryo.axon;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.CompatibleFieldSerializer;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.es4j.messaging.api.axon.GenericEventMessage;
+import org.es4j.messaging.api.axon.GenericMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.SerializedType;
+import org.es4j.serialization.api.axon.Serializer;
+import org.es4j.serialization.core.axon.Assert;
+import org.es4j.serialization.core.axon.ChainingConverterFactory;
+import org.es4j.serialization.core.axon.ConverterFactory;
+import org.es4j.serialization.core.axon.IOUtils;
+import org.es4j.serialization.core.axon.Revision;
+import org.es4j.serialization.core.axon.SimpleSerializedObject;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializer implementation that uses Kryo to serialize and deserialize object instances into a compact binary form.
+ * Kryo instances are not thread safe. This serializer keeps a pool of configured instances, each of which is used by
+ * a single thread at a time.
+ * <p/>
+ * Classes can be registered with an identifier using {@link #registerType(Class, int)}, in which case the identifier
+ * is written instead of the class name. Registered identifiers must be the same for the serializer writing and the
+ * serializer reading the data. Identifiers 100 to 199 are used for the types this serializer registers itself, such
+ * as {@link MetaData}, {@link DateTime} and {@link GenericEventMessage}. Unregistered classes are written by name,
+ * unless {@link #setRegistrationRequired(boolean) registration is required}.
+ * <p/>
+ * Objects are written with the names of their fields, so that data written before a class was changed can still be
+ * read: fields that were added are left at their default value, and fields that were removed are skipped. Data of a
+ * field of which the type was changed cannot be read, and results in a {@link SerializationException}.
+ * <p/>
+ * Kryo writes <code>byte[]</code>. Other representations are provided by the {@link ConverterFactory}.
+ *
+ * @since 2.0
+ */
+public class KryoSerializer implements Serializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(KryoSerializer.class);
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+    private static final String CONFIGURATION_VERSION = "es4j.configurationVersion";
+
+    private final ConverterFactory converterFactory;
+    private final Map<Class<?>, Integer> registrations = new LinkedHashMap<Class<?>, Integer>();
+    private volatile boolean registrationRequired;
+    private volatile boolean references;
+    private volatile int configurationVersion;
+
+    private final Pool<Kryo> kryoPool = new Pool<Kryo>(true, false, 64) {
+        @Override
+        protected Kryo create() {
+            return createKryo();
+        }
+    };
+    private final Pool<Output> outputPool = new Pool<Output>(true, false, 64) {
+        @Override
+        protected Output create() {
+            return new Output(DEFAULT_BUFFER_SIZE, -1);
+        }
+    };
+    private final Pool<Input> inputPool = new Pool<Input>(true, false, 64) {
+        @Override
+        protected Input create() {
+            return new Input(DEFAULT_BUFFER_SIZE);
+        }
+    };
+
+    /**
+     * Initialize a KryoSerializer that uses the {@link ChainingConverterFactory#sharedInstance() shared converter
+     * factory} to convert the serialized form to the requested representation.
+     */
+    public KryoSerializer() {
+        this(ChainingConverterFactory.sharedInstance());
+    }
+
+    /**
+     * Initialize a KryoSerializer that uses the given <code>converterFactory</code> to convert the serialized form to
+     * the requested representation.
+     *
+     * @param converterFactory The ConverterFactory providing the necessary content converters
+     */
+    public KryoSerializer(ConverterFactory converterFactory) {
+        Assert.notNull(converterFactory, "converterFactory may not be null");
+        this.converterFactory = converterFactory;
+        registrations.put(MetaData.class, 100);
+        registrations.put(DateTime.class, 101);
+        registrations.put(GenericEventMessage.class, 102);
+        registrations.put(GenericMessage.class, 103);
+        registrations.put(UUID.class, 104);
+        registrations.put(HashMap.class, 105);
+        registrations.put(ArrayList.class, 106);
+    }
+
+    @Override
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedType) {
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        byte[] bytes;
+        try {
+            kryo.writeClassAndObject(output, object);
+            bytes = output.toBytes();
+        } catch (KryoException e) {
+            throw new SerializationException("An exception occurred writing serialized data to the output buffer", e);
+        } catch (IllegalArgumentException e) {
+            // thrown by Kryo when registration is required and a class is not registered
+            throw new SerializationException("Unable to serialize an instance of " + object.getClass().getName(), e);
+        } finally {
+            release(kryo);
+            release(output);
+        }
+        T converted = converterFactory.getConverter(byte[].class, expectedType).convert(bytes);
+        return new SimpleSerializedObject<T>(converted, expectedType, object.getClass().getName(),
+                                             revisionOf(object.getClass()));
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return converterFactory.hasConverter(byte[].class, expectedRepresentation);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Object deserialize(SerializedObject<T> serializedObject) {
+        if (byte[].class.equals(serializedObject.getContentType())) {
+            return deserialize(new Input((byte[]) serializedObject.getData()));
+        }
+        InputStream stream = converterFactory.getConverter(serializedObject.getContentType(), InputStream.class)
+                                             .convert(serializedObject.getData());
+        Input input = inputPool.obtain();
+        try {
+            input.setInputStream(stream);
+            return deserialize(input);
+        } finally {
+            input.setInputStream(null);
+            inputPool.free(input);
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private Object deserialize(Input input) {
+        Kryo kryo = kryoPool.obtain();
+        try {
+            return kryo.readClassAndObject(input);
+        } catch (KryoException e) {
+            throw new SerializationException("An error occurred while deserializing: " + e.getMessage(), e);
+        } finally {
+            release(kryo);
+        }
+    }
+
+    @Override
+    public Class classForType(SerializedType type) {
+        try {
+            return Class.forName(type.getName());
+        } catch (ClassNotFoundException e) {
+            logger.warn("Could not load class for serialized type [{}] revision {}",
+                        type.getName(), type.getRevision());
+            return null;
+        }
+    }
+
+    /**
+     * Registers the given <code>type</code> with the given <code>id</code>. Serialized instances of the type refer to
+     * the type using the id instead of the class name. Registrations should be done before the serializer is used, as
+     * Kryo instances that were created before are discarded.
+     *
+     * @param type The type to register
+     * @param id   The identifier to write instead of the class name
+     */
+    public void registerType(Class<?> type, int id) {
+        Assert.isTrue(id >= 0, "id may not be negative");
+        synchronized (registrations) {
+            registrations.put(type, id);
+            reconfigure();
+        }
+    }
+
+    /**
+     * Indicates whether serializing an instance of a type that was not registered should fail. Defaults to
+     * <code>false</code>, in which case unregistered types are written using their class name.
+     *
+     * @param registrationRequired whether types must be registered before they can be serialized
+     */
+    public void setRegistrationRequired(boolean registrationRequired) {
+        synchronized (registrations) {
+            this.registrationRequired = registrationRequired;
+            reconfigure();
+        }
+    }
+
+    /**
+     * Indicates whether Kryo should track references, which is needed to serialize object graphs that contain the same
+     * instance more than once or contain cycles. Defaults to <code>false</code>.
+     *
+     * @param references whether to track references to instances that were already written
+     */
+    public void setReferences(boolean references) {
+        synchronized (registrations) {
+            this.references = references;
+            reconfigure();
+        }
+    }
+
+    /**
+     * Returns the revision number for the given <code>type</code>. The default implementation checks for an {@link
+     * Revision @Revision} annotation, and returns <code>null</code> if none was found. This method can be safely
+     * overridden by subclasses.
+     *
+     * @param type The type for which to return the revision number
+     * @return the revision number for the given <code>type</code>
+     */
+    protected String revisionOf(Class<?> type) {
+        Revision revision = type.getAnnotation(Revision.class);
+        return revision == null ? null : revision.value();
+    }
+
+    /**
+     * Creates and configures a new Kryo instance. Subclasses may override this method to configure additional
+     * serializers, but should call this implementation first.
+     *
+     * @return a configured Kryo instance
+     */
+    protected Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        kryo.setDefaultSerializer(CompatibleFieldSerializer.class);
+        synchronized (registrations) {
+            kryo.setRegistrationRequired(registrationRequired);
+            kryo.setReferences(references);
+            kryo.getContext().put(CONFIGURATION_VERSION, configurationVersion);
+            for (Map.Entry<Class<?>, Integer> registration : registrations.entrySet()) {
+                kryo.register(registration.getKey(), registration.getValue());
+            }
+            kryo.register(MetaData.class, new MetaDataSerializer(), registrations.get(MetaData.class));
+            kryo.register(DateTime.class, new DateTimeSerializer(), registrations.get(DateTime.class));
+        }
+        return kryo;
+    }
+
+    private void reconfigure() {
+        configurationVersion++;
+        kryoPool.clear();
+    }
+
+    private void release(Kryo kryo) {
+        if (Integer.valueOf(configurationVersion).equals(kryo.getContext().get(CONFIGURATION_VERSION))) {
+            kryoPool.free(kryo);
+        }
+    }
+
+    private void release(Output output) {
+        if (output.getBuffer().length <= MAX_RETAINED_BUFFER_SIZE) {
+            output.reset();
+            outputPool.free(output);
+        }
+    }
+
+    /**
+     * Kryo Serializer that writes MetaData as the number of entries, followed by each key and value.
+     */
+    private static final class MetaDataSerializer extends com.esotericsoftware.kryo.Serializer<MetaData> {
+
+        private MetaDataSerializer() {
+            setImmutable(true);
+        }
+
+        @Override
+        public void write(Kryo kryo, Output output, MetaData metaData) {
+            output.writeVarInt(metaData.size(), true);
+            for (Map.Entry<String, Object> entry : metaData.entrySet()) {
+                output.writeString(entry.getKey());
+                kryo.writeClassAndObject(output, entry.getValue());
+            }
+        }
+
+        @Override
+        public MetaData read(Kryo kryo, Input input, Class<? extends MetaData> type) {
+            int size = input.readVarInt(true);
+            if (size == 0) {
+                return MetaData.emptyInstance();
+            }
+            Map<String, Object> entries = new HashMap<String, Object>(size * 2);
+            for (int i = 0; i < size; i++) {
+                entries.put(input.readString(), kryo.readClassAndObject(input));
+            }
+            return MetaData.from(entries);
+        }
+    }
+
+    /**
+     * Kryo Serializer that writes a DateTime as its milliseconds since the epoch and the identifier of its time zone.
+     */
+    private static final class DateTimeSerializer extends com.esotericsoftware.kryo.Serializer<DateTime> {
+
+        private DateTimeSerializer() {
+            setImmutable(true);
+        }
+
+        @Override
+        public void write(Kryo kryo, Output output, DateTime dateTime) {
+            output.writeLong(dateTime.getMillis());
+            output.writeString(dateTime.getZone().getID());
+        }
+
+        @Override
+        public DateTime read(Kryo kryo, Input input, Class<? extends DateTime> type) {
+            long millis = input.readLong();
+            return new DateTime(millis, DateTimeZone.forID(input.readString()));
+        }
+    }
+}
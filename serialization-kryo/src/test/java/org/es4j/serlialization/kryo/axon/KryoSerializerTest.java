@@ -0,0 +1,165 @@
+package org.es4j.serlialization.kryo.axon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.es4j.messaging.api.axon.GenericEventMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.kryo.axon.KryoSerializer;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KryoSerializerTest {
+
+    private static final int ORDER_PLACED_ID = 1000;
+
+    private KryoSerializer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new KryoSerializer();
+    }
+
+    @Test
+    public void testDeserialize_FieldAddedToClass() {
+        SerializedObject<byte[]> serialized = serializeOrderPlaced();
+
+        OrderPlacedWithPrice actual = (OrderPlacedWithPrice) readAs(OrderPlacedWithPrice.class, serialized);
+        assertEquals("order-1", actual.orderId);
+        assertEquals(3, actual.quantity);
+        assertEquals("fragile", actual.note);
+        assertEquals(0L, actual.price);
+    }
+
+    @Test
+    public void testDeserialize_FieldRemovedFromClass() {
+        SerializedObject<byte[]> serialized = serializeOrderPlaced();
+
+        OrderPlacedWithoutNote actual = (OrderPlacedWithoutNote) readAs(OrderPlacedWithoutNote.class, serialized);
+        assertEquals("order-1", actual.orderId);
+        assertEquals(3, actual.quantity);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testDeserialize_FieldTypeChanged() {
+        readAs(OrderPlacedWithLongQuantity.class, serializeOrderPlaced());
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_EventMessageKeepsTimeZoneAndMetaDataTypes() {
+        Map<String, Object> metaData = new HashMap<String, Object>();
+        metaData.put("correlation", UUID.randomUUID());
+        metaData.put("attempt", 2L);
+        DateTimeZone zone = DateTimeZone.forID("Europe/Amsterdam");
+        GenericEventMessage<OrderPlaced> message = new GenericEventMessage<OrderPlaced>(
+                "id", new DateTime(2012, 3, 4, 5, 6, 7, 8, zone), new OrderPlaced("order-1", 3, null), metaData);
+
+        GenericEventMessage actual = (GenericEventMessage) testSubject.deserialize(
+                testSubject.serialize(message, byte[].class));
+        assertEquals(zone, actual.getTimestamp().getZone());
+        assertEquals(message.getTimestamp(), actual.getTimestamp());
+        assertEquals(message.getMetaData(), actual.getMetaData());
+        assertEquals(Long.class, actual.getMetaData().get("attempt").getClass());
+        assertSame(MetaData.emptyInstance(),
+                   testSubject.deserialize(testSubject.serialize(MetaData.emptyInstance(), byte[].class)));
+    }
+
+    @Test
+    public void testRegisteredTypeIsWrittenById() {
+        OrderPlaced event = new OrderPlaced("a", 1, null);
+        int unregisteredSize = testSubject.serialize(event, byte[].class).getData().length;
+        testSubject.registerType(OrderPlaced.class, ORDER_PLACED_ID);
+        SerializedObject<byte[]> serialized = testSubject.serialize(event, byte[].class);
+        assertTrue(serialized.getData().length < unregisteredSize - OrderPlaced.class.getName().length() + 4);
+        assertEquals("a", ((OrderPlaced) testSubject.deserialize(serialized)).orderId);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testUnregisteredTypeIsRejectedWhenRegistrationIsRequired() {
+        testSubject.setRegistrationRequired(true);
+        testSubject.serialize(new OrderPlaced("a", 1, null), byte[].class);
+    }
+
+    @Test
+    public void testConcurrentSerialization() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<OrderPlaced>> results = new ArrayList<Future<OrderPlaced>>();
+            for (int i = 0; i < 100; i++) {
+                final int quantity = i;
+                results.add(executor.submit(new Callable<OrderPlaced>() {
+                    @Override
+                    public OrderPlaced call() throws Exception {
+                        return (OrderPlaced) testSubject.deserialize(
+                                testSubject.serialize(new OrderPlaced("order", quantity, null), byte[].class));
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i, results.get(i).get().quantity);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SerializedObject<byte[]> serializeOrderPlaced() {
+        testSubject.registerType(OrderPlaced.class, ORDER_PLACED_ID);
+        return testSubject.serialize(new OrderPlaced("order-1", 3, "fragile"), byte[].class);
+    }
+
+    /**
+     * Reads the given data with a serializer that has the given class registered in place of OrderPlaced, as if
+     * OrderPlaced was changed into that class after the data was written.
+     */
+    private Object readAs(Class<?> changedClass, SerializedObject<byte[]> serialized) {
+        KryoSerializer reader = new KryoSerializer();
+        reader.registerType(changedClass, ORDER_PLACED_ID);
+        return reader.deserialize(serialized);
+    }
+
+    public static class OrderPlaced {
+
+        private final String orderId;
+        private final int quantity;
+        private final String note;
+
+        public OrderPlaced(String orderId, int quantity, String note) {
+            this.orderId = orderId;
+            this.quantity = quantity;
+            this.note = note;
+        }
+    }
+
+    public static class OrderPlacedWithPrice {
+
+        private String orderId;
+        private int quantity;
+        private String note;
+        private long price;
+    }
+
+    public static class OrderPlacedWithoutNote {
+
+        private String orderId;
+        private int quantity;
+    }
+
+    public static class OrderPlacedWithLongQuantity {
+
+        private String orderId;
+        private long quantity;
+        private String note;
+    }
+}
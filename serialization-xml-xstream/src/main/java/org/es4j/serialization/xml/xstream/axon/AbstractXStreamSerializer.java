@@ -8,6 +8,7 @@ import com.thoughtworks.xstream.converters.collections.MapConverter;
 import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 import com.thoughtworks.xstream.mapper.Mapper;
+import com.thoughtworks.xstream.mapper.MapperWrapper;
 import java.lang.reflect.Constructor;
 import java.nio.charset.Charset;
 import java.util.HashMap;
@@ -72,12 +73,16 @@ public abstract class AbstractXStreamSerializer implements Serializer {
     /**
      * Initialize the serializer using the given <code>charset</code> and <code>xStream</code> instance. The
      * <code>xStream</code> instance is configured with several converters for the most common types in Axon.
+     * <p/>
+     * The serializer uses an overlay of the {@link ChainingConverterFactory#sharedInstance() shared converter
+     * factory}, so that converters are only detected once per class loader. Converters specific to this serializer are
+     * registered with the overlay.
      *
      * @param charset The character set to use
      * @param xStream The XStream instance to use
      */
     public AbstractXStreamSerializer(Charset charset, XStream xStream) {
-        this(charset, xStream, new ChainingConverterFactory());
+        this(charset, xStream, new ChainingConverterFactory(ChainingConverterFactory.sharedInstance()));
     }
 
     /**
@@ -243,6 +248,46 @@ public abstract class AbstractXStreamSerializer implements Serializer {
         xStream.aliasField(alias, definedIn, fieldName);
     }
 
+    /**
+     * Registers a converter dedicated to the given <code>type</code>, which accesses its fields through method handles
+     * rather than reflection, and resolves the names of its fields once. This speeds up serialization of classes that
+     * are serialized often, such as events. The XML written is the same as without registration.
+     * <p/>
+     * Aliases for the type and its fields must be registered before the type itself is registered. Only classes
+     * without custom serialization methods (such as <code>readResolve</code>), without fields that have the same name
+     * as a field in a superclass and without implicit collections can be registered.
+     *
+     * @param type The class to register a dedicated converter for
+     * @throws IllegalArgumentException if the given type cannot be converted by a dedicated converter
+     */
+    public void registerFastClass(Class<?> type) {
+        xStream.registerConverter(new FieldHandleConverter(type, xStream.getMapper(), xStream.getReflectionProvider(),
+                                                           xStream.getConverterLookup()));
+    }
+
+    /**
+     * Creates an XStream instance that shortens the names of the classes it writes by replacing their package name with
+     * an alias from the given <code>aliasDictionary</code>. Packages are added to the dictionary as classes in them are
+     * written, so that no aliases need to be added by hand. XML containing fully qualified class names can still be
+     * read.
+     * <p/>
+     * Note that the type identifiers of serialized objects are shortened as well, which must be taken into account by
+     * upcasters. The dictionary must be available, with at least the same entries, wherever the XML is read.
+     *
+     * @param aliasDictionary The dictionary containing the aliases of packages
+     * @return an XStream instance that uses aliases from the given dictionary
+     *
+     * @see AutoAliasingMapper
+     */
+    public static XStream createAutoAliasingXStream(final AliasDictionary aliasDictionary) {
+        return new XStream() {
+            @Override
+            protected MapperWrapper wrapMapper(MapperWrapper next) {
+                return new AutoAliasingMapper(next, aliasDictionary);
+            }
+        };
+    }
+
     /**
      * Returns a reference to the underlying {@link com.thoughtworks.xstream.XStream} instance, that does the actual
      * serialization.
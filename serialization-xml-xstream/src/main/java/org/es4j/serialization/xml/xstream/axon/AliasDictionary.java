@@ -0,0 +1,38 @@
+package org.es4j.serialization.xml.xstream.axon;
+
+/**
+ * Dictionary of short aliases for package names, used by the {@link AutoAliasingMapper} to shorten the names of the
+ * classes written to XML. Dictionaries are append-only: once assigned, the alias of a package never changes, so that
+ * XML written with an earlier version of the dictionary remains readable.
+ * <p/>
+ * Aliases must contain a character that is not allowed in Java identifiers, such as a hyphen, so that they can never
+ * be mistaken for the name of an actual package. They must also be valid in XML element names.
+ * <p/>
+ * Implementations must be thread safe.
+ *
+ * @see AbstractXStreamSerializer#createAutoAliasingXStream(AliasDictionary)
+ * @since 2.0
+ */
+public interface AliasDictionary {
+
+    /**
+     * Returns the alias of the package with the given <code>packageName</code>, adding the package to this dictionary
+     * if it is not present yet.
+     *
+     * @param packageName The fully qualified name of the package
+     * @return the alias of the given package
+     *
+     * @throws org.es4j.serialization.api.axon.SerializationException if the package could not be added to this
+     *                                                                 dictionary
+     */
+    String aliasFor(String packageName);
+
+    /**
+     * Returns the name of the package with the given <code>alias</code>, or <code>null</code> if this dictionary does
+     * not contain the alias.
+     *
+     * @param alias The alias of the package
+     * @return the fully qualified name of the package, or <code>null</code> if the alias is unknown
+     */
+    String packageFor(String alias);
+}
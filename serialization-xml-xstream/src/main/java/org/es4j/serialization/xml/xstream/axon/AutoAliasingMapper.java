@@ -0,0 +1,67 @@
+package org.es4j.serialization.xml.xstream.axon;
+
+import com.thoughtworks.xstream.mapper.Mapper;
+import com.thoughtworks.xstream.mapper.MapperWrapper;
+
+/**
+ * XStream Mapper that shortens the names of classes by replacing their package name with an alias from an {@link
+ * AliasDictionary}. Packages are added to the dictionary the first time a class in them is written, so that no aliases
+ * need to be configured by hand. Classes that already have a name assigned by another mapper, such as an alias added
+ * using {@link com.thoughtworks.xstream.XStream#alias(String, Class)}, keep that name.
+ * <p/>
+ * Names that do not start with an alias are resolved by the wrapped mapper, so that XML written without this mapper,
+ * containing fully qualified class names, can still be read.
+ *
+ * @since 2.0
+ */
+public class AutoAliasingMapper extends MapperWrapper {
+
+    private final AliasDictionary dictionary;
+    // a ClassValue holding only Strings, so that the cached names do not keep classes or their loaders reachable
+    private final ClassValue<String> serializedNames = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return aliasedName(type, AutoAliasingMapper.super.serializedClass(type));
+        }
+    };
+
+    /**
+     * Initializes a mapper that wraps the given <code>wrapped</code> mapper, using the given <code>dictionary</code>
+     * to find the aliases of packages.
+     *
+     * @param wrapped    The mapper to delegate to
+     * @param dictionary The dictionary containing the aliases of packages
+     */
+    public AutoAliasingMapper(Mapper wrapped, AliasDictionary dictionary) {
+        super(wrapped);
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public String serializedClass(Class type) {
+        if (type == null) {
+            return super.serializedClass(type);
+        }
+        return serializedNames.get(type);
+    }
+
+    private String aliasedName(Class type, String name) {
+        int packageEnd = name.lastIndexOf('.');
+        if (packageEnd <= 0 || !name.equals(type.getName())) {
+            return name;
+        }
+        return dictionary.aliasFor(name.substring(0, packageEnd)) + name.substring(packageEnd);
+    }
+
+    @Override
+    public Class realClass(String elementName) {
+        int aliasEnd = elementName.indexOf('.');
+        if (aliasEnd > 0 && elementName.lastIndexOf('-', aliasEnd) >= 0) {
+            String packageName = dictionary.packageFor(elementName.substring(0, aliasEnd));
+            if (packageName != null) {
+                return super.realClass(packageName + elementName.substring(aliasEnd));
+            }
+        }
+        return super.realClass(elementName);
+    }
+}
@@ -0,0 +1,109 @@
+package org.es4j.serialization.xml.xstream.axon;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.core.axon.ChainingConverterFactory;
+import org.es4j.serialization.core.axon.ConverterFactory;
+import org.es4j.serialization.core.axon.IOUtils;
+import org.es4j.serialization.core.axon.ReusableByteArrayOutputStream;
+import org.es4j.serialization.core.axon.ThreadLocalBuffers;
+
+/**
+ * Serializer that uses XStream's binary format instead of XML. The same XStream mappings are used as by the {@link
+ * XStreamSerializer}, including all aliases and converters, but the data is written as a stream of binary tokens. This
+ * avoids escaping and parsing text, and each element and attribute name is written only once per serialized object.
+ * <p/>
+ * The output is not XML, and cannot be converted to a Dom4j Document. Upcasters that require an XML representation
+ * can therefore not be used with the data written by this serializer.
+ * <p/>
+ * Serialized data is written into a buffer that is reused by the current thread, and copied once into the resulting
+ * <code>byte[]</code>.
+ *
+ * @see com.thoughtworks.xstream.io.binary.BinaryStreamDriver
+ * @since 2.0
+ */
+public class BinaryXStreamSerializer extends AbstractXStreamSerializer {
+
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    private final ThreadLocalBuffers buffers = new ThreadLocalBuffers(MAX_RETAINED_BUFFER_SIZE);
+
+    /**
+     * Initialize a serializer using a default XStream instance.
+     */
+    public BinaryXStreamSerializer() {
+        this(new XStream());
+    }
+
+    /**
+     * Initialize a serializer using the given <code>xStream</code> instance.
+     *
+     * @param xStream XStream instance to use
+     */
+    public BinaryXStreamSerializer(XStream xStream) {
+        super(IOUtils.UTF8, xStream);
+    }
+
+    /**
+     * Initialize a serializer that shortens the names of classes using aliases from the given
+     * <code>aliasDictionary</code>.
+     *
+     * @param aliasDictionary The dictionary containing the aliases of packages
+     * @see #createAutoAliasingXStream(AliasDictionary)
+     */
+    public BinaryXStreamSerializer(AliasDictionary aliasDictionary) {
+        this(createAutoAliasingXStream(aliasDictionary));
+    }
+
+    /**
+     * Initialize the serializer using the given <code>xStream</code> instance. The given
+     * <code>converterFactory</code> is used to convert serialized objects for use by Upcasters.
+     *
+     * @param xStream          The XStream instance to use
+     * @param converterFactory The factory providing the converter instances for upcasters
+     */
+    public BinaryXStreamSerializer(XStream xStream, ConverterFactory converterFactory) {
+        super(IOUtils.UTF8, xStream, converterFactory);
+    }
+
+    @Override
+    protected <T> T doSerialize(Object object, Class<T> expectedFormat, XStream xStream) {
+        ReusableByteArrayOutputStream buffer = buffers.acquire();
+        try {
+            BinaryStreamWriter writer = new BinaryStreamWriter(buffer);
+            xStream.marshal(object, writer);
+            writer.flush();
+            return convert(byte[].class, expectedFormat, buffer.toByteArray());
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    @Override
+    protected Object doDeserialize(SerializedObject serializedObject, XStream xStream) {
+        Object data = serializedObject.getData();
+        InputStream serializedData;
+        if (data instanceof byte[]) {
+            serializedData = new ByteArrayInputStream((byte[]) data);
+        } else {
+            serializedData = (InputStream) convert(serializedObject.getContentType(), InputStream.class, data);
+        }
+        HierarchicalStreamReader reader = new BinaryStreamReader(serializedData);
+        try {
+            return xStream.unmarshal(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    protected void registerConverters(ChainingConverterFactory converterFactory) {
+        // the binary format cannot be represented in any other way than as bytes
+    }
+}
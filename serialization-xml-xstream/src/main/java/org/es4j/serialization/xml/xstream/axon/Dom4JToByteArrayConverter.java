@@ -1,17 +1,45 @@
 package org.es4j.serialization.xml.xstream.axon;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import org.dom4j.Document;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
 import org.es4j.serialization.core.axon.AbstractContentTypeConverter;
+import org.es4j.serialization.core.axon.ByteStreamWriter;
+import org.es4j.serialization.core.axon.CannotConvertBetweenTypesException;
 import org.es4j.serialization.core.axon.IOUtils;
+import org.es4j.serialization.core.axon.ReusableByteArrayOutputStream;
+import org.es4j.serialization.core.axon.WeightedContentTypeConverter;
 
 /**
- * Converter that converts Dom4j Document instances to a byte array. The Document is written as XML string, and
- * converted to bytes using the UTF-8 character set.
+ * Converter that converts Dom4j Document instances to a byte array. The Document is written as XML, encoded using the
+ * UTF-8 character set.
+ * <p/>
+ * Writing a document involves walking the entire tree, which makes this converter considerably more expensive than
+ * converters that operate on raw data. The XML is encoded while the tree is walked, into a buffer that is reused by
+ * the current thread, and copied once into the resulting <code>byte[]</code>. New buffers are created with the size of
+ * the last document written, so that they rarely need to grow. When followed by a converter that reads from a stream,
+ * the document is written directly into the stream read by that converter.
  *
  * @author Allard Buijze
  * @since 2.0
  */
-public class Dom4JToByteArrayConverter extends AbstractContentTypeConverter<Document, byte[]> {
+public class Dom4JToByteArrayConverter extends AbstractContentTypeConverter<Document, byte[]>
+        implements WeightedContentTypeConverter<Document, byte[]>, ByteStreamWriter<Document> {
+
+    private static final int CONVERSION_COST = 50;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    private volatile int expectedSize = INITIAL_BUFFER_SIZE;
+    private final ThreadLocal<ReusableByteArrayOutputStream> buffers =
+            new ThreadLocal<ReusableByteArrayOutputStream>() {
+                @Override
+                protected ReusableByteArrayOutputStream initialValue() {
+                    return new ReusableByteArrayOutputStream(expectedSize);
+                }
+            };
 
     @Override
     public Class<Document> expectedSourceType() {
@@ -23,8 +51,35 @@ public class Dom4JToByteArrayConverter extends AbstractContentTypeConverter<Docu
         return byte[].class;
     }
 
+    @Override
+    public int conversionCost() {
+        return CONVERSION_COST;
+    }
+
     @Override
     public byte[] convert(Document original) {
-        return original.asXML().getBytes(IOUtils.UTF8);
+        ReusableByteArrayOutputStream buffer = buffers.get();
+        try {
+            writeTo(original, buffer);
+            expectedSize = Math.max(INITIAL_BUFFER_SIZE, Math.min(buffer.size(), MAX_RETAINED_BUFFER_SIZE));
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new CannotConvertBetweenTypesException("Cannot convert from dom4j Document to byte[].", e);
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                buffers.remove();
+            } else {
+                buffer.reset();
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(Document source, OutputStream outputStream) throws IOException {
+        OutputFormat format = new OutputFormat();
+        format.setEncoding(IOUtils.UTF8.name());
+        XMLWriter writer = new XMLWriter(outputStream, format);
+        writer.write(source);
+        writer.flush();
     }
 }
@@ -0,0 +1,284 @@
+package org.es4j.serialization.xml.xstream.axon;
+
+import com.thoughtworks.xstream.converters.ConversionException;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.ConverterLookup;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.SingleValueConverter;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+import com.thoughtworks.xstream.io.ExtendedHierarchicalStreamWriterHelper;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+import java.io.Externalizable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.core.axon.Assert;
+
+/**
+ * XStream Converter for a single class, of which the fields are accessed through method handles instead of reflection.
+ * Element names, attribute names and the converters of immutable field types are resolved once, when the converter is
+ * created. The XML written is the same as the XML written by XStream's reflection converter, so that data written by
+ * either converter can be read by the other.
+ * <p/>
+ * Only classes that are handled by the reflection converter in a straightforward way are supported: classes that do
+ * not define custom serialization methods, and do not declare fields with the same name as a field in a superclass or
+ * fields mapped as implicit collection.
+ *
+ * @since 2.0
+ */
+class FieldHandleConverter implements Converter {
+
+    private static final String[] SERIALIZATION_METHODS = {"writeObject", "readObject", "writeReplace", "readResolve"};
+
+    private final Class<?> type;
+    private final Mapper mapper;
+    private final ReflectionProvider reflectionProvider;
+    private final String classAttributeName;
+    private final List<FieldBinding> attributes = new ArrayList<FieldBinding>();
+    private final List<FieldBinding> elements = new ArrayList<FieldBinding>();
+    private final Map<String, FieldBinding> elementsByName = new HashMap<String, FieldBinding>();
+
+    /**
+     * Creates a converter for the given <code>type</code>. Aliases for the type and its fields must be registered with
+     * the <code>mapper</code> before the converter is created.
+     *
+     * @param type               The class to convert
+     * @param mapper             The mapper providing the names of fields and types
+     * @param reflectionProvider The reflection provider to create new instances with
+     * @param converterLookup    The lookup providing the converters of field types
+     * @throws IllegalArgumentException if the given type is not supported
+     */
+    FieldHandleConverter(Class<?> type, Mapper mapper, ReflectionProvider reflectionProvider,
+                         ConverterLookup converterLookup) {
+        Assert.isFalse(type.isInterface() || type.isArray() || type.isEnum() || type.isPrimitive()
+                               || Modifier.isAbstract(type.getModifiers()),
+                       type.getName() + " is not a concrete class");
+        Assert.isFalse(Externalizable.class.isAssignableFrom(type), type.getName() + " is Externalizable");
+        this.type = type;
+        this.mapper = mapper;
+        this.reflectionProvider = reflectionProvider;
+        this.classAttributeName = mapper.aliasForSystemAttribute("class");
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Set<String> fieldNames = new HashSet<String>();
+        for (Class<?> current : hierarchyOf(type)) {
+            assertNoSerializationMethods(current);
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+                        || !mapper.shouldSerializeMember(current, field.getName())) {
+                    continue;
+                }
+                Assert.isTrue(fieldNames.add(field.getName()), type.getName() + " declares more than one field named "
+                        + field.getName());
+                Assert.isTrue(mapper.getImplicitCollectionDefForFieldName(current, field.getName()) == null,
+                              "Field " + field.getName() + " of " + type.getName() + " is an implicit collection");
+                addBinding(new FieldBinding(field, mapper, converterLookup, lookup));
+            }
+        }
+    }
+
+    private void addBinding(FieldBinding binding) {
+        if (binding.attributeName != null) {
+            attributes.add(binding);
+        } else {
+            elements.add(binding);
+            elementsByName.put(binding.elementName, binding);
+        }
+    }
+
+    private static List<Class<?>> hierarchyOf(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+        return hierarchy;
+    }
+
+    private static void assertNoSerializationMethods(Class<?> type) {
+        for (Method method : type.getDeclaredMethods()) {
+            for (String serializationMethod : SERIALIZATION_METHODS) {
+                Assert.isFalse(serializationMethod.equals(method.getName()),
+                               type.getName() + " defines custom serialization method " + method.getName());
+            }
+        }
+    }
+
+    @Override
+    public boolean canConvert(Class type) {
+        return this.type == type;
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        try {
+            for (FieldBinding attribute : attributes) {
+                Object value = attribute.genericGetter.invokeExact(source);
+                if (value != null) {
+                    writer.addAttribute(attribute.attributeName, attribute.valueConverter.toString(value));
+                }
+            }
+            for (FieldBinding element : elements) {
+                Object value = element.genericGetter.invokeExact(source);
+                if (value != null) {
+                    writeElement(element, value, writer, context);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SerializationException("Unable to read the fields of " + type.getName(), e);
+        }
+    }
+
+    private void writeElement(FieldBinding element, Object value, HierarchicalStreamWriter writer,
+                              MarshallingContext context) {
+        Class<?> actualType = value.getClass();
+        ExtendedHierarchicalStreamWriterHelper.startNode(writer, element.elementName, actualType);
+        if (element.valueConverter != null) {
+            writer.setValue(element.valueConverter.toString(value));
+        } else {
+            if (actualType != element.defaultType && classAttributeName != null) {
+                String serializedClass = element.serializedClassOf(actualType, mapper);
+                if (!serializedClass.equals(element.defaultTypeName)) {
+                    writer.addAttribute(classAttributeName, serializedClass);
+                }
+            }
+            context.convertAnother(value, element.localConverter);
+        }
+        writer.endNode();
+    }
+
+    @Override
+    public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        Object result = reflectionProvider.newInstance(type);
+        try {
+            for (FieldBinding attribute : attributes) {
+                String value = reader.getAttribute(attribute.attributeName);
+                if (value != null) {
+                    attribute.genericSetter.invokeExact(result, attribute.valueConverter.fromString(value));
+                }
+            }
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                FieldBinding element = elementsByName.get(reader.getNodeName());
+                if (element == null) {
+                    throw new ConversionException("No field named " + reader.getNodeName() + " in " + type.getName());
+                }
+                element.genericSetter.invokeExact(result, readElement(element, result, reader, context));
+                reader.moveUp();
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SerializationException("Unable to set the fields of " + type.getName(), e);
+        }
+        return result;
+    }
+
+    private Object readElement(FieldBinding element, Object parent, HierarchicalStreamReader reader,
+                               UnmarshallingContext context) {
+        if (element.valueConverter != null) {
+            return element.valueConverter.fromString(reader.getValue());
+        }
+        String className = classAttributeName == null ? null : reader.getAttribute(classAttributeName);
+        Class<?> valueType = className == null ? element.defaultType : mapper.realClass(className);
+        return context.convertAnother(parent, valueType, element.localConverter);
+    }
+
+    /**
+     * The names, converters and method handles needed to write and read a single field.
+     */
+    private static final class FieldBinding {
+
+        private final String elementName;
+        private final String attributeName;
+        private final Class<?> defaultType;
+        private final String defaultTypeName;
+        private final Converter localConverter;
+        private final SingleValueConverter valueConverter;
+        private final MethodHandle genericGetter;
+        private final MethodHandle genericSetter;
+        private volatile TypeName lastTypeName;
+
+        private FieldBinding(Field field, Mapper mapper, ConverterLookup converterLookup,
+                             MethodHandles.Lookup lookup) {
+            Class<?> definedIn = field.getDeclaringClass();
+            String name = field.getName();
+            String serializedName = mapper.serializedMember(definedIn, name);
+            SingleValueConverter attributeConverter = mapper.getConverterFromItemType(name, field.getType(),
+                                                                                      definedIn);
+            this.defaultType = mapper.defaultImplementationOf(field.getType());
+            this.defaultTypeName = mapper.serializedClass(defaultType);
+            this.localConverter = mapper.getLocalConverter(definedIn, name);
+            if (attributeConverter != null) {
+                this.attributeName = mapper.aliasForAttribute(serializedName);
+                this.elementName = null;
+                this.valueConverter = attributeConverter;
+            } else {
+                this.attributeName = null;
+                this.elementName = serializedName;
+                this.valueConverter = immutableValueConverter(field.getType(), mapper, converterLookup);
+            }
+            try {
+                field.setAccessible(true);
+                this.genericGetter = lookup.unreflectGetter(field)
+                                           .asType(MethodType.methodType(Object.class, Object.class));
+                this.genericSetter = lookup.unreflectSetter(field)
+                                           .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new SerializationException("Unable to access field " + field, e);
+            }
+        }
+
+        /**
+         * Returns the converter to write values of a field of the given <code>fieldType</code> as text directly, or
+         * <code>null</code> if values need to be written by the marshalling context. Only values of which the type is
+         * known to be exactly the field type, and that are not subject to reference tracking, are written directly.
+         */
+        private SingleValueConverter immutableValueConverter(Class<?> fieldType, Mapper mapper,
+                                                             ConverterLookup converterLookup) {
+            if (localConverter != null || (!fieldType.isPrimitive() && !Modifier.isFinal(fieldType.getModifiers()))
+                    || !mapper.isImmutableValueType(defaultType)) {
+                return null;
+            }
+            Converter converter = converterLookup.lookupConverterForType(defaultType);
+            return converter instanceof SingleValueConverter ? (SingleValueConverter) converter : null;
+        }
+
+        private String serializedClassOf(Class<?> actualType, Mapper mapper) {
+            TypeName typeName = lastTypeName;
+            if (typeName == null || typeName.type != actualType) {
+                typeName = new TypeName(actualType, mapper.serializedClass(actualType));
+                lastTypeName = typeName;
+            }
+            return typeName.name;
+        }
+    }
+
+    private static final class TypeName {
+
+        private final Class<?> type;
+        private final String name;
+
+        private TypeName(Class<?> type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.es4j.serialization.xml.xstream.axon;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.core.axon.DictionaryFile;
+import org.es4j.serialization.core.axon.IOUtils;
+
+/**
+ * AliasDictionary that stores its entries in a file. Existing entries are read when the dictionary is created, and new
+ * entries are appended to the file before they are used. The file must not be written to by other dictionary
+ * instances, in this or any other process, while this dictionary is in use.
+ * <p/>
+ * The file is a {@link DictionaryFile} containing the package names in UTF-8. An incomplete entry at the end of the
+ * file, left by a process that stopped while writing it, is removed when the file is read.
+ *
+ * @since 2.0
+ */
+public class FileAliasDictionary extends InMemoryAliasDictionary {
+
+    private static final int MAGIC = 0xE54AA11A;
+
+    private final DictionaryFile dictionaryFile;
+
+    /**
+     * Initializes a dictionary that stores its entries in the given <code>file</code>. If the file exists, the entries
+     * it contains are loaded. Otherwise, it is created.
+     *
+     * @param file The file to store the entries in
+     * @throws SerializationException if the file cannot be read or created, or is not an alias dictionary file
+     */
+    public FileAliasDictionary(File file) {
+        this(new DictionaryFile(file, MAGIC, "alias dictionary"));
+    }
+
+    private FileAliasDictionary(DictionaryFile dictionaryFile) {
+        super(packageNames(dictionaryFile.readEntries()));
+        this.dictionaryFile = dictionaryFile;
+    }
+
+    private static List<String> packageNames(List<byte[]> entries) {
+        List<String> packageNames = new ArrayList<String>(entries.size());
+        for (byte[] entry : entries) {
+            packageNames.add(new String(entry, IOUtils.UTF8));
+        }
+        return packageNames;
+    }
+
+    @Override
+    protected void entryAdded(int position, String packageName) throws IOException {
+        dictionaryFile.append(packageName.getBytes(IOUtils.UTF8));
+    }
+}
@@ -0,0 +1,104 @@
+package org.es4j.serialization.xml.xstream.axon;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.es4j.serialization.api.axon.SerializationException;
+
+/**
+ * AliasDictionary that keeps its aliases in memory. The alias of a package is derived from its position in the
+ * dictionary: <code>p-</code> followed by the position in base 36. The first package added is aliased
+ * <code>p-0</code>, the 37th <code>p-10</code>.
+ * <p/>
+ * The entries of a dictionary can be obtained using {@link #getEntries()}, and passed to {@link
+ * #InMemoryAliasDictionary(java.util.List)} to restore the dictionary. Subclasses may store new entries elsewhere by
+ * overriding {@link #entryAdded(int, String)}.
+ *
+ * @since 2.0
+ */
+public class InMemoryAliasDictionary implements AliasDictionary {
+
+    private static final String ALIAS_PREFIX = "p-";
+
+    private final List<String> entries = new ArrayList<String>();
+    private final ConcurrentMap<String, String> aliases = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String, String> packages = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Initializes an empty dictionary.
+     */
+    public InMemoryAliasDictionary() {
+    }
+
+    /**
+     * Initializes a dictionary containing the given <code>entries</code>, as returned by {@link #getEntries()}. The
+     * position of each package name in the list determines its alias.
+     *
+     * @param entries The package names to initialize the dictionary with
+     */
+    public InMemoryAliasDictionary(List<String> entries) {
+        for (String entry : entries) {
+            addEntry(entry);
+        }
+    }
+
+    @Override
+    public String aliasFor(String packageName) {
+        String alias = aliases.get(packageName);
+        if (alias == null) {
+            synchronized (entries) {
+                alias = aliases.get(packageName);
+                if (alias == null) {
+                    try {
+                        entryAdded(entries.size(), packageName);
+                    } catch (IOException e) {
+                        throw new SerializationException("Unable to add package " + packageName
+                                                                 + " to the alias dictionary", e);
+                    }
+                    alias = addEntry(packageName);
+                }
+            }
+        }
+        return alias;
+    }
+
+    @Override
+    public String packageFor(String alias) {
+        return packages.get(alias);
+    }
+
+    /**
+     * Returns the package names in this dictionary, ordered by their position.
+     *
+     * @return the package names in this dictionary
+     */
+    public List<String> getEntries() {
+        synchronized (entries) {
+            return Collections.unmodifiableList(new ArrayList<String>(entries));
+        }
+    }
+
+    /**
+     * Invoked when a new entry is about to be added to this dictionary. The entry is only added if this method returns
+     * normally. This implementation does nothing.
+     *
+     * @param position    The position of the new entry
+     * @param packageName The name of the package
+     * @throws IOException if the entry could not be stored
+     */
+    protected void entryAdded(int position, String packageName) throws IOException {
+    }
+
+    private String addEntry(String packageName) {
+        synchronized (entries) {
+            String alias = ALIAS_PREFIX + Integer.toString(entries.size(), Character.MAX_RADIX);
+            entries.add(packageName);
+            packages.put(alias, packageName);
+            aliases.put(packageName, alias);
+            return alias;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.es4j.serialization.xml.xstream.axon;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.SingleValueConverter;
+import com.thoughtworks.xstream.io.naming.NameCoder;
+import com.thoughtworks.xstream.io.xml.XmlFriendlyNameCoder;
+import com.thoughtworks.xstream.mapper.Mapper;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.es4j.serialization.api.axon.SerializationException;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.core.axon.Assert;
+
+/**
+ * Reads selected fields from objects serialized to XML by an {@link XStreamSerializer}, without deserializing the
+ * objects. The XML is read using a pull parser, and reading stops as soon as all fields have been found. This is much
+ * cheaper than deserializing the complete object when only one or two of its fields are needed, for instance to find
+ * the aggregate an event applies to.
+ * <p/>
+ * Fields are identified by a path of field names, separated by dots, such as <code>account.id</code>. The path is
+ * resolved against the declared types of the fields, using the aliases configured in the serializer. The last field
+ * in each path must be of a type that XStream writes as a single value, such as a primitive, a String or a UUID. Its
+ * value is converted using the converter XStream would use to read it.
+ * <p/>
+ * Fields that are not present in the XML, because their value was <code>null</code>, or because they were written as
+ * a reference to another part of the object graph, are projected as <code>null</code>. Fields of an intermediate
+ * object that is of a subclass of the declared type of its field cannot be projected.
+ * <p/>
+ * Projections are created using {@link XStreamSerializer#projection(Class, String...)} and are thread safe.
+ *
+ * @since 2.0
+ */
+public class Projection {
+
+    private final XStreamSerializer serializer;
+    private final String typeIdentifier;
+    private final PathNode root = new PathNode();
+    private final String[] fieldPaths;
+    private final String referenceAttribute;
+
+    /**
+     * Initializes a projection of the given <code>fieldPaths</code> of objects of the given <code>type</code>,
+     * serialized by the given <code>serializer</code>.
+     *
+     * @param serializer The serializer that serialized the objects
+     * @param type       The type of the serialized objects
+     * @param fieldPaths The paths of the fields to project
+     * @throws IllegalArgumentException if any of the paths does not identify a field of a single value type
+     */
+    Projection(XStreamSerializer serializer, Class<?> type, String... fieldPaths) {
+        Assert.isTrue(fieldPaths.length > 0, "At least one field path is required");
+        this.serializer = serializer;
+        this.typeIdentifier = serializer.typeIdentifierOf(type);
+        XStream xStream = serializer.getXStream();
+        NameCoder nameCoder = new XmlFriendlyNameCoder();
+        for (String fieldPath : fieldPaths) {
+            addPath(type, fieldPath, xStream, nameCoder);
+        }
+        this.fieldPaths = fieldPaths.clone();
+        String referenceAlias = xStream.getMapper().aliasForSystemAttribute("reference");
+        this.referenceAttribute = referenceAlias == null ? null : nameCoder.encodeAttribute(referenceAlias);
+    }
+
+    private void addPath(Class<?> type, String fieldPath, XStream xStream, NameCoder nameCoder) {
+        Mapper mapper = xStream.getMapper();
+        String[] fieldNames = fieldPath.split("\\.");
+        PathNode node = root;
+        Class<?> currentType = type;
+        for (int i = 0; i < fieldNames.length; i++) {
+            Field field = fieldOf(currentType, fieldNames[i], fieldPath);
+            Class<?> definedIn = field.getDeclaringClass();
+            String serializedName = mapper.serializedMember(definedIn, field.getName());
+            SingleValueConverter attributeConverter = mapper.getConverterFromItemType(field.getName(),
+                                                                                      field.getType(), definedIn);
+            boolean last = i == fieldNames.length - 1;
+            if (attributeConverter != null) {
+                Assert.isTrue(last, "Field path " + fieldPath + " continues beyond attribute " + field.getName());
+                String attributeName = nameCoder.encodeAttribute(mapper.aliasForAttribute(serializedName));
+                Assert.isTrue(node.attributes.put(attributeName, new Leaf(fieldPath, attributeConverter)) == null,
+                              "Field path " + fieldPath + " is projected more than once");
+                return;
+            }
+            PathNode child = node.child(nameCoder.encodeNode(serializedName));
+            currentType = mapper.defaultImplementationOf(field.getType());
+            if (last) {
+                Assert.isTrue(child.leaf == null && child.children.isEmpty() && child.attributes.isEmpty(),
+                              "Field path " + fieldPath + " overlaps with another projected field");
+                child.leaf = new Leaf(fieldPath, valueConverterFor(field, currentType, mapper, xStream));
+            } else {
+                Assert.isTrue(child.leaf == null, "Field path " + fieldPath + " overlaps with another projected field");
+            }
+            node = child;
+        }
+    }
+
+    private static Field fieldOf(Class<?> type, String fieldName, String fieldPath) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                Field field = current.getDeclaredField(fieldName);
+                Assert.isFalse(Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()),
+                               "Field " + fieldName + " in path " + fieldPath + " is not serialized");
+                return field;
+            } catch (NoSuchFieldException e) {
+                // try the superclass
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " in " + type.getName() + " (path "
+                                                   + fieldPath + ")");
+    }
+
+    private static SingleValueConverter valueConverterFor(Field field, Class<?> type, Mapper mapper,
+                                                          XStream xStream) {
+        Converter converter = mapper.getLocalConverter(field.getDeclaringClass(), field.getName());
+        if (converter == null) {
+            converter = xStream.getConverterLookup().lookupConverterForType(type);
+        }
+        Assert.isTrue(converter instanceof SingleValueConverter, "Field " + field.getName() + " of "
+                + field.getDeclaringClass().getName() + " is not written as a single value");
+        return (SingleValueConverter) converter;
+    }
+
+    /**
+     * Reads the projected fields from the given <code>serializedObject</code>. The returned map contains an entry for
+     * each projected field path, in the order in which the paths were given. Fields not present in the XML have a
+     * <code>null</code> value.
+     *
+     * @param serializedObject The serialized object to read the fields from
+     * @return the values of the projected fields, by field path
+     *
+     * @throws IllegalArgumentException if the serialized object is not of the type this projection was created for
+     * @throws SerializationException   if the XML cannot be read
+     */
+    public Map<String, Object> project(SerializedObject<?> serializedObject) {
+        Assert.isTrue(typeIdentifier.equals(serializedObject.getType().getName()), "Cannot project fields of "
+                + serializedObject.getType().getName() + " using a projection for " + typeIdentifier);
+        Map<String, Object> values = new HashMap<String, Object>();
+        XMLStreamReader reader = null;
+        try {
+            reader = createReader(serializedObject);
+            read(reader, values);
+        } catch (XMLStreamException e) {
+            throw new SerializationException("Unable to read the serialized XML", e);
+        } finally {
+            closeQuietly(reader);
+        }
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        for (String fieldPath : fieldPaths) {
+            result.put(fieldPath, values.get(fieldPath));
+        }
+        return result;
+    }
+
+    private void read(XMLStreamReader reader, Map<String, Object> values) throws XMLStreamException {
+        PathNode[] stack = new PathNode[16];
+        int depth = -1;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                PathNode parent = depth < 0 ? null : stack[depth];
+                PathNode node = depth < 0 ? root : parent == null ? null : parent.children.get(reader.getLocalName());
+                if (node != null && node.leaf != null) {
+                    Leaf leaf = node.leaf;
+                    boolean isReference = referenceAttribute != null
+                            && reader.getAttributeValue(null, referenceAttribute) != null;
+                    String text = reader.getElementText();
+                    values.put(leaf.fieldPath, isReference ? null : leaf.converter.fromString(text));
+                    if (values.size() == fieldPaths.length) {
+                        return;
+                    }
+                    continue;
+                }
+                if (node != null && !node.attributes.isEmpty()) {
+                    for (Map.Entry<String, Leaf> attribute : node.attributes.entrySet()) {
+                        String value = reader.getAttributeValue(null, attribute.getKey());
+                        Leaf leaf = attribute.getValue();
+                        values.put(leaf.fieldPath, value == null ? null : leaf.converter.fromString(value));
+                    }
+                    if (values.size() == fieldPaths.length) {
+                        return;
+                    }
+                }
+                if (++depth == stack.length) {
+                    PathNode[] grown = new PathNode[stack.length * 2];
+                    System.arraycopy(stack, 0, grown, 0, stack.length);
+                    stack = grown;
+                }
+                stack[depth] = node;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private XMLStreamReader createReader(SerializedObject<?> serializedObject) throws XMLStreamException {
+        Object data = serializedObject.getData();
+        if (data instanceof byte[]) {
+            return StaxInput.createStreamReader(new ByteArrayInputStream((byte[]) data), serializer.getCharset());
+        } else if (data instanceof String) {
+            return StaxInput.createStreamReader(new StringReader((String) data));
+        }
+        InputStream inputStream = convertToInputStream(serializedObject);
+        return StaxInput.createStreamReader(inputStream, serializer.getCharset());
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private InputStream convertToInputStream(SerializedObject serializedObject) {
+        return (InputStream) serializer.getConverterFactory()
+                                       .getConverter(serializedObject.getContentType(), InputStream.class)
+                                       .convert(serializedObject.getData());
+    }
+
+    private static void closeQuietly(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Node in the tree of element names leading to the projected fields.
+     */
+    private static final class PathNode {
+
+        private final Map<String, PathNode> children = new HashMap<String, PathNode>();
+        private final Map<String, Leaf> attributes = new HashMap<String, Leaf>();
+        private Leaf leaf;
+
+        private PathNode child(String elementName) {
+            PathNode child = children.get(elementName);
+            if (child == null) {
+                child = new PathNode();
+                children.put(elementName, child);
+            }
+            return child;
+        }
+    }
+
+    /**
+     * A projected field, and the converter to read its value with.
+     */
+    private static final class Leaf {
+
+        private final String fieldPath;
+        private final SingleValueConverter converter;
+
+        private Leaf(String fieldPath, SingleValueConverter converter) {
+            this.fieldPath = fieldPath;
+            this.converter = converter;
+        }
+    }
+}
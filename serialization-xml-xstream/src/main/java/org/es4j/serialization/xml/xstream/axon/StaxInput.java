@@ -0,0 +1,74 @@
+package org.es4j.serialization.xml.xstream.axon;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Holder of the XMLInputFactory shared by the XStream serializer and converters. Looking up and configuring a factory
+ * is far more expensive than creating a reader with one, so the factory is created once and only used to create
+ * readers afterwards, which is safe to do from several threads at the same time.
+ * <p/>
+ * Serialized XML never contains a DTD, so DTD processing and external entities are disabled.
+ *
+ * @since 2.0
+ */
+final class StaxInput {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private StaxInput() {
+        // utility class
+    }
+
+    /**
+     * Creates a reader for the XML in the given <code>inputStream</code>, encoded using the given
+     * <code>charset</code>.
+     *
+     * @param inputStream The stream providing the XML
+     * @param charset     The character set the XML is encoded in
+     * @return a reader for the XML in the given stream
+     *
+     * @throws XMLStreamException if the start of the XML cannot be read
+     */
+    static XMLStreamReader createStreamReader(InputStream inputStream, Charset charset) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(inputStream, charset.name());
+    }
+
+    /**
+     * Creates a reader for the XML provided by the given <code>reader</code>.
+     *
+     * @param reader The reader providing the XML
+     * @return a reader for the XML provided by the given reader
+     *
+     * @throws XMLStreamException if the start of the XML cannot be read
+     */
+    static XMLStreamReader createStreamReader(Reader reader) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(reader);
+    }
+
+    /**
+     * Creates an event reader for the XML in the given <code>inputStream</code>, encoded using the given
+     * <code>charset</code>.
+     *
+     * @param inputStream The stream providing the XML
+     * @param charset     The character set the XML is encoded in
+     * @return an event reader for the XML in the given stream
+     *
+     * @throws XMLStreamException if the start of the XML cannot be read
+     */
+    static XMLEventReader createEventReader(InputStream inputStream, Charset charset) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLEventReader(inputStream, charset.name());
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+}
@@ -17,17 +17,33 @@
 package org.es4j.serialization.xml.xstream.axon;
 
 import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.xml.CompactWriter;
 import com.thoughtworks.xstream.io.xml.Dom4JReader;
+import com.thoughtworks.xstream.io.xml.QNameMap;
+import com.thoughtworks.xstream.io.xml.StaxReader;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.dom4j.Document;
+import org.es4j.serialization.api.axon.SerializationException;
 import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.SerializedType;
+import org.es4j.serialization.api.axon.StreamingSerializer;
 import org.es4j.serialization.core.axon.ChainingConverterFactory;
 import org.es4j.serialization.core.axon.ConverterFactory;
+import org.es4j.serialization.core.axon.SimpleSerializedType;
 
 /**
  * Serializer that uses XStream to serialize and deserialize arbitrary objects. The XStream instance is configured to
@@ -36,12 +52,22 @@ import org.es4j.serialization.core.axon.ConverterFactory;
  * When running on a Sun JVM, XStream does not pose any restrictions on classes to serialize. On other JVM's, however,
  * you need to either implement Serializable, or provide a default constructor (accessible under the JVM's security
  * policy). That means that for portability, you should do either of these two.
+ * <p/>
+ * Large objects, such as aggregate snapshots, can be written to and read from streams and channels directly, using the
+ * methods of {@link StreamingSerializer}. The XML is then encoded and decoded while it is written and read, without
+ * holding it in memory as a whole.
+ * <p/>
+ * Serialized data is read by feeding XStream directly from a StAX reader, created by an XMLInputFactory shared by all
+ * instances. A Dom4j Document is only built when the serialized data is explicitly converted to one, for example by an
+ * upcaster.
  *
  * @author Allard Buijze
  * @see com.thoughtworks.xstream.XStream
  * @since 1.2
  */
-public class XStreamSerializer extends AbstractXStreamSerializer {
+public class XStreamSerializer extends AbstractXStreamSerializer implements StreamingSerializer {
+
+    private final QNameMap qNameMap = new QNameMap();
 
     /**
      * Initialize a generic serializer using the UTF-8 character set. A default XStream instance (with {@link
@@ -60,6 +86,17 @@ public class XStreamSerializer extends AbstractXStreamSerializer {
         super(xStream);
     }
 
+    /**
+     * Initialize a serializer using the UTF-8 character set, that shortens the names of classes using aliases from the
+     * given <code>aliasDictionary</code>.
+     *
+     * @param aliasDictionary The dictionary containing the aliases of packages
+     * @see #createAutoAliasingXStream(AliasDictionary)
+     */
+    public XStreamSerializer(AliasDictionary aliasDictionary) {
+        super(createAutoAliasingXStream(aliasDictionary));
+    }
+
     /**
      * Initialize the serializer using the given <code>charset</code>. A default XStream instance (with {@link
      * com.thoughtworks.xstream.io.xml.XppDriver}) is used to perform the serialization.
@@ -101,6 +138,37 @@ public class XStreamSerializer extends AbstractXStreamSerializer {
         return convert(byte[].class, expectedFormat, baos.toByteArray());
     }
 
+    @Override
+    public SerializedType serialize(Object object, OutputStream outputStream) {
+        Writer writer = new OutputStreamWriter(outputStream, getCharset());
+        getXStream().marshal(object, new CompactWriter(writer));
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new SerializationException("An exception occurred writing serialized data to the output stream", e);
+        }
+        return new SimpleSerializedType(typeIdentifierOf(object.getClass()), revisionOf(object.getClass()));
+    }
+
+    @Override
+    public SerializedType serialize(Object object, WritableByteChannel channel) {
+        return serialize(object, Channels.newOutputStream(channel));
+    }
+
+    @Override
+    public Object deserialize(SerializedType type, InputStream inputStream) {
+        try {
+            return unmarshal(getXStream(), StaxInput.createStreamReader(inputStream, getCharset()));
+        } catch (XMLStreamException e) {
+            throw new SerializationException("Unable to read serialized data from the input stream", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(SerializedType type, ReadableByteChannel channel) {
+        return deserialize(type, Channels.newInputStream(channel));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -110,9 +178,47 @@ public class XStreamSerializer extends AbstractXStreamSerializer {
         if ("org.dom4j.Document".equals(serializedObject.getContentType().getName())) {
             return xStream.unmarshal(new Dom4JReader((Document) serializedObject.getData()));
         }
-        InputStream serializedData = (InputStream) convert(serializedObject.getContentType(), InputStream.class,
-                                                           serializedObject.getData());
-        return xStream.fromXML(new InputStreamReader(serializedData, getCharset()));
+        Object data = serializedObject.getData();
+        try {
+            XMLStreamReader streamReader;
+            if (data instanceof byte[]) {
+                streamReader = StaxInput.createStreamReader(new ByteArrayInputStream((byte[]) data), getCharset());
+            } else if (data instanceof String) {
+                streamReader = StaxInput.createStreamReader(new StringReader((String) data));
+            } else {
+                InputStream serializedData = (InputStream) convert(serializedObject.getContentType(),
+                                                                   InputStream.class, data);
+                streamReader = StaxInput.createStreamReader(serializedData, getCharset());
+            }
+            return unmarshal(xStream, streamReader);
+        } catch (XMLStreamException e) {
+            throw new SerializationException("Unable to read the serialized XML", e);
+        }
+    }
+
+    private Object unmarshal(XStream xStream, XMLStreamReader streamReader) {
+        HierarchicalStreamReader reader = new StaxReader(qNameMap, streamReader);
+        try {
+            return xStream.unmarshal(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Creates a projection that reads the fields with the given <code>fieldPaths</code> from objects of the given
+     * <code>type</code> serialized by this serializer, without deserializing those objects. Aliases must be
+     * registered with this serializer before the projection is created.
+     *
+     * @param type       The type of the serialized objects
+     * @param fieldPaths The paths of the fields to read, such as <code>account.id</code>
+     * @return a projection reading the given fields
+     *
+     * @throws IllegalArgumentException if any of the paths does not identify a field of a single value type
+     * @see Projection
+     */
+    public Projection projection(Class<?> type, String... fieldPaths) {
+        return new Projection(this, type, fieldPaths);
     }
 
     @Override
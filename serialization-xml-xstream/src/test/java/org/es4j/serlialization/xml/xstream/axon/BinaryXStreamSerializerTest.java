@@ -0,0 +1,108 @@
+package org.es4j.serlialization.xml.xstream.axon;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import org.dom4j.Document;
+import org.es4j.messaging.api.axon.GenericEventMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.xml.xstream.axon.BinaryXStreamSerializer;
+import org.es4j.serialization.xml.xstream.axon.InMemoryAliasDictionary;
+import org.es4j.serialization.xml.xstream.axon.XStreamSerializer;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryXStreamSerializerTest {
+
+    private BinaryXStreamSerializer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new BinaryXStreamSerializer();
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_EventMessage() {
+        GenericEventMessage<XStreamSerializerTest.TestEvent> message =
+                new GenericEventMessage<XStreamSerializerTest.TestEvent>(
+                        new XStreamSerializerTest.TestEvent("hello", 1),
+                        Collections.<String, Object>singletonMap("key", "value"));
+        SerializedObject<byte[]> serialized = testSubject.serialize(message, byte[].class);
+        assertEquals("event", serialized.getType().getName());
+
+        GenericEventMessage actual = (GenericEventMessage) testSubject.deserialize(serialized);
+        assertEquals(message.getIdentifier(), actual.getIdentifier());
+        assertEquals(message.getTimestamp(), actual.getTimestamp());
+        assertEquals(MetaData.from(message.getMetaData()), actual.getMetaData());
+        assertEquals(XStreamSerializerTest.TestEvent.class, actual.getPayload().getClass());
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_OtherRepresentations() {
+        XStreamSerializerTest.TestEvent event = new XStreamSerializerTest.TestEvent("hello", 42);
+        for (Class<?> representation : new Class<?>[]{InputStream.class, ByteBuffer.class}) {
+            SerializedObject<?> serialized = testSubject.serialize(event, representation);
+            assertEquals(representation, serialized.getContentType());
+            assertEquals(event.getClass(), testSubject.deserialize(serialized).getClass());
+        }
+        assertFalse(testSubject.canSerializeTo(Document.class));
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_NestedSerialization() {
+        NestingEvent.serializer = testSubject;
+        try {
+            SerializedObject<byte[]> serialized = testSubject.serialize(new NestingEvent("outer"), byte[].class);
+            NestingEvent actual = (NestingEvent) testSubject.deserialize(serialized);
+            assertEquals("outer", actual.name);
+            assertNotNull(actual.nestedData);
+        } finally {
+            NestingEvent.serializer = null;
+        }
+    }
+
+    @Test
+    public void testSerializedForm_SmallerThanXml() {
+        XStreamSerializerTest.TestEvent event = new XStreamSerializerTest.TestEvent("hello", 42);
+        byte[] xml = new XStreamSerializer().serialize(event, byte[].class).getData();
+        byte[] binary = testSubject.serialize(event, byte[].class).getData();
+        assertTrue(binary.length < xml.length);
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_AutoAliasing() {
+        BinaryXStreamSerializer aliasingSerializer = new BinaryXStreamSerializer(new InMemoryAliasDictionary());
+        SerializedObject<byte[]> serialized = aliasingSerializer.serialize(
+                new XStreamSerializerTest.TestEvent("hello", 42), byte[].class);
+        assertEquals("p-0.XStreamSerializerTest$TestEvent", serialized.getType().getName());
+        assertEquals(XStreamSerializerTest.TestEvent.class,
+                     aliasingSerializer.deserialize(serialized).getClass());
+    }
+
+    /**
+     * Serializes another object using the same serializer while it is being serialized itself.
+     */
+    public static class NestingEvent implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private static BinaryXStreamSerializer serializer;
+
+        private final String name;
+        private byte[] nestedData;
+
+        public NestingEvent(String name) {
+            this.name = name;
+        }
+
+        private Object writeReplace() {
+            if (serializer != null) {
+                nestedData = serializer.serialize(new XStreamSerializerTest.TestEvent(name, 1), byte[].class)
+                                       .getData();
+            }
+            return this;
+        }
+    }
+}
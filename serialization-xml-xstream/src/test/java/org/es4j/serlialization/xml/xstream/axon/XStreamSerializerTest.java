@@ -0,0 +1,368 @@
+package org.es4j.serlialization.xml.xstream.axon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.dom4j.Document;
+import org.es4j.messaging.api.axon.GenericEventMessage;
+import org.es4j.messaging.api.axon.MetaData;
+import org.es4j.serialization.api.axon.SerializedObject;
+import org.es4j.serialization.api.axon.SerializedType;
+import org.es4j.serialization.core.axon.ChainedConverter;
+import org.es4j.serialization.core.axon.ContentTypeConverter;
+import org.es4j.serialization.core.axon.InputStreamToByteArrayConverter;
+import org.es4j.serialization.core.axon.Revision;
+import org.es4j.serialization.core.axon.SimpleSerializedObject;
+import org.es4j.serialization.xml.xstream.axon.FileAliasDictionary;
+import org.es4j.serialization.xml.xstream.axon.InMemoryAliasDictionary;
+import org.es4j.serialization.xml.xstream.axon.Projection;
+import org.es4j.serialization.xml.xstream.axon.XStreamSerializer;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class XStreamSerializerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private XStreamSerializer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new XStreamSerializer();
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_ByteArray() {
+        SerializedObject<byte[]> serialized = testSubject.serialize(new TestEvent("hello", 42), byte[].class);
+        assertEquals(TestEvent.class.getName(), serialized.getType().getName());
+        assertEquals("2", serialized.getType().getRevision());
+        assertEquals(TestEvent.class, testSubject.classForType(serialized.getType()));
+
+        TestEvent actual = (TestEvent) testSubject.deserialize(serialized);
+        assertEquals("hello", actual.name);
+        assertEquals(42, actual.count);
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_OtherRepresentations() {
+        TestEvent event = new TestEvent("hello", 42);
+        for (Class<?> representation : new Class<?>[]{InputStream.class, ByteBuffer.class, String.class,
+                Document.class}) {
+            assertTrue(testSubject.canSerializeTo(representation));
+            SerializedObject<?> serialized = testSubject.serialize(event, representation);
+            assertEquals(representation, serialized.getContentType());
+            assertEquals("hello", ((TestEvent) testSubject.deserialize(serialized)).name);
+        }
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_EventMessage() {
+        GenericEventMessage<TestEvent> message = new GenericEventMessage<TestEvent>(
+                new TestEvent("hello", 1), Collections.<String, Object>singletonMap("key", "value"));
+        SerializedObject<byte[]> serialized = testSubject.serialize(message, byte[].class);
+        assertEquals("event", serialized.getType().getName());
+
+        GenericEventMessage actual = (GenericEventMessage) testSubject.deserialize(serialized);
+        assertEquals(message.getIdentifier(), actual.getIdentifier());
+        assertEquals(message.getTimestamp(), actual.getTimestamp());
+        assertEquals(MetaData.from(message.getMetaData()), actual.getMetaData());
+        assertEquals("hello", ((TestEvent) actual.getPayload()).name);
+    }
+
+    @Test
+    public void testSerializeAndDeserialize_Streaming() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SerializedType type = testSubject.serialize(new TestEvent("hello", 42), outputStream);
+        assertEquals(TestEvent.class.getName(), type.getName());
+        assertEquals("2", type.getRevision());
+        assertArrayEquals(testSubject.serialize(new TestEvent("hello", 42), byte[].class).getData(),
+                          outputStream.toByteArray());
+
+        TestEvent actual = (TestEvent) testSubject.deserialize(type, new ByteArrayInputStream(
+                outputStream.toByteArray()));
+        assertEquals("hello", actual.name);
+
+        ByteArrayOutputStream channelOutput = new ByteArrayOutputStream();
+        testSubject.serialize(new TestEvent("channel", 1), Channels.newChannel(channelOutput));
+        actual = (TestEvent) testSubject.deserialize(type, Channels.newChannel(new ByteArrayInputStream(
+                channelOutput.toByteArray())));
+        assertEquals("channel", actual.name);
+    }
+
+    @Test
+    public void testDeserialize_UsesConfiguredCharset() {
+        XStreamSerializer utf16Serializer = new XStreamSerializer(Charset.forName("UTF-16"));
+        SerializedObject<byte[]> serialized = utf16Serializer.serialize(new TestEvent("h\u00e9llo \u20ac", 1),
+                                                                         byte[].class);
+        TestEvent actual = (TestEvent) utf16Serializer.deserialize(serialized);
+        assertEquals("h\u00e9llo \u20ac", actual.name);
+        assertEquals(1, actual.count);
+    }
+
+    @Test
+    public void testDeserialize_DocumentOnlyBuiltWhenRequested() {
+        SerializedObject<byte[]> serialized = testSubject.serialize(new TestEvent("hello", 42), byte[].class);
+        Document document = testSubject.getConverterFactory().getConverter(byte[].class, Document.class)
+                                       .convert(serialized.getData());
+        assertEquals("hello", document.getRootElement().elementText("name"));
+
+        TestEvent actual = (TestEvent) testSubject.deserialize(
+                new SimpleSerializedObject<Document>(document, Document.class, serialized.getType()));
+        assertEquals("hello", actual.name);
+    }
+
+    @Test
+    public void testConvertDocument_WritesUtf8Xml() throws Exception {
+        Document document = testSubject.serialize(new TestEvent("h\u00e9llo \u20ac", 42), Document.class).getData();
+        byte[] expected = document.asXML().getBytes("UTF-8");
+
+        ContentTypeConverter<Document, byte[]> toBytes = testSubject.getConverterFactory()
+                                                                    .getConverter(Document.class, byte[].class);
+        assertArrayEquals(expected, toBytes.convert(document));
+        assertArrayEquals(expected, toBytes.convert(document));
+
+        ContentTypeConverter<Document, InputStream> toStream =
+                testSubject.getConverterFactory().getConverter(Document.class, InputStream.class);
+        assertArrayEquals(expected, new InputStreamToByteArrayConverter().convert(toStream.convert(document)));
+    }
+
+    @Test
+    public void testAutoAliasing_ShortensPackageNames() throws Exception {
+        File dictionaryFile = new File(temporaryFolder.getRoot(), "aliases");
+        XStreamSerializer aliasingSerializer = new XStreamSerializer(new FileAliasDictionary(dictionaryFile));
+        RichEvent event = new RichEvent();
+        event.nested = new TestEvent("nested", 3);
+        event.value = new TestEvent("value", 4);
+        SerializedObject<String> serialized = aliasingSerializer.serialize(event, String.class);
+        String packageName = TestEvent.class.getPackage().getName();
+        assertEquals("p-0.XStreamSerializerTest$RichEvent", serialized.getType().getName());
+        assertFalse(serialized.getData().contains(packageName));
+        assertTrue(serialized.getData().contains("<value class=\"p-0.XStreamSerializerTest$TestEvent\">"));
+        assertEquals(RichEvent.class, aliasingSerializer.classForType(serialized.getType()));
+        assertEquals("nested", ((RichEvent) aliasingSerializer.deserialize(serialized)).nested.name);
+
+        XStreamSerializer reopened = new XStreamSerializer(new FileAliasDictionary(dictionaryFile));
+        assertEquals(serialized.getData(), reopened.serialize(event, String.class).getData());
+        assertEquals("nested", ((RichEvent) reopened.deserialize(serialized)).nested.name);
+    }
+
+    @Test
+    public void testAutoAliasing_ReadsFullyQualifiedNames() {
+        XStreamSerializer aliasingSerializer = new XStreamSerializer(new InMemoryAliasDictionary());
+        SerializedObject<byte[]> serialized = testSubject.serialize(new TestEvent("hello", 42), byte[].class);
+        assertEquals("hello", ((TestEvent) aliasingSerializer.deserialize(serialized)).name);
+
+        SerializedObject<byte[]> message = aliasingSerializer.serialize(
+                new GenericEventMessage<TestEvent>(new TestEvent("hello", 1)), byte[].class);
+        assertEquals("event", message.getType().getName());
+    }
+
+    @Test
+    public void testAliasDictionary_RemovesIncompleteEntry() throws Exception {
+        File dictionaryFile = new File(temporaryFolder.getRoot(), "aliases");
+        FileAliasDictionary dictionary = new FileAliasDictionary(dictionaryFile);
+        assertEquals("p-0", dictionary.aliasFor("com.example.first"));
+        assertEquals("p-1", dictionary.aliasFor("com.example.second"));
+        long completeLength = dictionaryFile.length();
+        FileOutputStream out = new FileOutputStream(dictionaryFile, true);
+        out.write(new byte[]{0, 0, 0, 20, 'c', 'o', 'm'});
+        out.close();
+
+        FileAliasDictionary reopened = new FileAliasDictionary(dictionaryFile);
+        assertEquals(completeLength, dictionaryFile.length());
+        assertEquals("com.example.second", reopened.packageFor("p-1"));
+        assertEquals("p-2", reopened.aliasFor("com.example.third"));
+        assertNull(reopened.packageFor("p-3"));
+    }
+
+    @Test
+    public void testProjection_ReadsSelectedFields() {
+        RichEvent event = new RichEvent();
+        event.name = "rich";
+        event.nested = new TestEvent("nested", 3);
+        event.flag = true;
+        event.amount = 1.5;
+        testSubject.addFieldAlias("n", RichEvent.class, "nested");
+        testSubject.getXStream().useAttributeFor(RichEvent.class, "flag");
+        Projection projection = testSubject.projection(RichEvent.class, "nested.count", "flag", "amount", "name",
+                                                       "nested.name");
+
+        for (Class<?> representation : new Class<?>[]{byte[].class, String.class, InputStream.class}) {
+            Map<String, Object> values = projection.project(testSubject.serialize(event, representation));
+            assertEquals(Arrays.asList("nested.count", "flag", "amount", "name", "nested.name"),
+                         new ArrayList<String>(values.keySet()));
+            assertEquals(3, values.get("nested.count"));
+            assertEquals(Boolean.TRUE, values.get("flag"));
+            assertEquals(1.5, values.get("amount"));
+            assertEquals("rich", values.get("name"));
+            assertEquals("nested", values.get("nested.name"));
+        }
+
+        event.name = null;
+        assertNull(testSubject.projection(RichEvent.class, "name")
+                              .project(testSubject.serialize(event, byte[].class)).get("name"));
+    }
+
+    @Test
+    public void testProjection_FieldsWrittenAsReferenceAreNull() {
+        SharedValueEvent event = new SharedValueEvent();
+        event.first = UUID.randomUUID();
+        event.second = event.first;
+        event.created = new Date();
+        event.modified = event.created;
+        SerializedObject<String> serialized = testSubject.serialize(event, String.class);
+        // UUIDs are registered as immutable, so only the Date is written as a reference
+        assertTrue(serialized.getData().contains("<modified reference="));
+
+        Map<String, Object> values = testSubject.projection(SharedValueEvent.class, "first", "second", "created",
+                                                            "modified", "name").project(serialized);
+        assertEquals(event.first, values.get("first"));
+        assertEquals(event.first, values.get("second"));
+        assertEquals(event.created, values.get("created"));
+        assertNull(values.get("modified"));
+        assertEquals("shared", values.get("name"));
+    }
+
+    @Test
+    public void testProjection_RejectsInvalidPaths() {
+        for (String fieldPath : new String[]{"nested", "unknown", "ignored", "nested.unknown", "values"}) {
+            try {
+                testSubject.projection(RichEvent.class, fieldPath);
+                fail("Expected projection of " + fieldPath + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        try {
+            testSubject.projection(RichEvent.class, "name")
+                       .project(testSubject.serialize(new TestEvent("hello", 1), byte[].class));
+            fail("Expected projection of another type to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRegisterFastClass_WritesSameXml() {
+        RichEvent event = new RichEvent();
+        event.nested = new TestEvent("nested", 3);
+        event.value = 12L;
+        event.values.add("first");
+        event.values.add(2);
+        event.flag = true;
+        event.amount = 1.5;
+        byte[] expected = testSubject.serialize(event, byte[].class).getData();
+
+        testSubject.registerFastClass(RichEvent.class);
+        testSubject.registerFastClass(TestEvent.class);
+        SerializedObject<byte[]> serialized = testSubject.serialize(event, byte[].class);
+        assertEquals(new String(expected, testSubject.getCharset()),
+                     new String(serialized.getData(), testSubject.getCharset()));
+
+        RichEvent actual = (RichEvent) testSubject.deserialize(serialized);
+        assertEquals("nested", actual.nested.name);
+        assertEquals(3, actual.nested.count);
+        assertEquals(12L, actual.value);
+        assertEquals(event.values, actual.values);
+        assertTrue(actual.flag);
+        assertEquals(1.5, actual.amount, 0);
+        assertNull(actual.name);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterFastClass_RejectsCustomSerialization() {
+        testSubject.registerFastClass(ResolvingEvent.class);
+    }
+
+    @Test(expected = StackOverflowError.class)
+    public void testRegisterFastClass_ErrorsAreNotWrapped() {
+        testSubject.registerFastClass(ChainEvent.class);
+        ChainEvent chain = new ChainEvent();
+        for (int i = 0; i < 1000000; i++) {
+            ChainEvent previous = new ChainEvent();
+            previous.next = chain;
+            chain = previous;
+        }
+        testSubject.serialize(chain, byte[].class);
+    }
+
+    @Test
+    public void testRoutesAvoidDocumentUnlessRequested() {
+        ContentTypeConverter<InputStream, byte[]> toBytes = testSubject.getConverterFactory()
+                                                                       .getConverter(InputStream.class, byte[].class);
+        assertTrue(toBytes instanceof InputStreamToByteArrayConverter);
+
+        ContentTypeConverter<ByteBuffer, byte[]> bufferToBytes =
+                testSubject.getConverterFactory().getConverter(ByteBuffer.class, byte[].class);
+        assertFalse(bufferToBytes.toString().contains(Document.class.getName()));
+
+        ContentTypeConverter<byte[], Document> toDocument = testSubject.getConverterFactory()
+                                                                       .getConverter(byte[].class, Document.class);
+        assertTrue(toDocument instanceof ChainedConverter);
+        assertEquals(101, ((ChainedConverter) toDocument).conversionCost());
+    }
+
+    @Revision("2")
+    public static class TestEvent implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final String name;
+        private final int count;
+
+        public TestEvent(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+
+    public static class RichEvent {
+
+        private String name;
+        private TestEvent nested;
+        private Object value;
+        private final List<Object> values = new ArrayList<Object>();
+        private boolean flag;
+        private double amount;
+        private transient String ignored = "ignored";
+    }
+
+    public static class ChainEvent {
+
+        private ChainEvent next;
+    }
+
+    public static class SharedValueEvent {
+
+        private UUID first;
+        private UUID second;
+        private Date created;
+        private Date modified;
+        private String name = "shared";
+    }
+
+    public static class ResolvingEvent implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Object readResolve() {
+            return this;
+        }
+    }
+}